@@ -1,6 +1,7 @@
 package com.retailshop.config;
 
 import com.retailshop.service.JwtService;
+import com.retailshop.service.VerifiedPrincipalCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,8 +10,10 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -23,6 +26,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final VerifiedPrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(
@@ -31,25 +35,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
-
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authHeader.substring(7);
+            UserDetails principal = principalCache.get(jwt);
+            if (principal == null) {
+                principal = verify(jwt);
+            }
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        principal.getAuthorities()
                 );
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -57,4 +60,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails verify(String jwt) {
+        JwtService.Claims claims = jwtService.parseToken(jwt);
+        if (claims == null) {
+            return null;
+        }
+
+        long generation = principalCache.generation(claims.subject());
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(claims.subject());
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+        if (!userDetails.isEnabled()) {
+            return null;
+        }
+
+        // Only the name and authorities are cached, not the user entity with its password hash
+        UserDetails principal = User.withUsername(userDetails.getUsername())
+                .password("")
+                .authorities(userDetails.getAuthorities())
+                .build();
+        principalCache.put(jwt, principal, claims.expiresAt(), generation);
+        return principal;
+    }
 }
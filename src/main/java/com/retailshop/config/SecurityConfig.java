@@ -53,6 +53,9 @@ public class SecurityConfig {
                         .requestMatchers("/webjars/**").permitAll()
                         .requestMatchers("/api/webjars/**").permitAll()
 
+                        // ✅ NODE-TO-NODE SHARD CALLS (sharded nodes only, checked against the shard secret by the controller)
+                        .requestMatchers("/internal/shard/**").permitAll()
+
                         // ✅ H2 Console
                         .requestMatchers("/h2-console/**").permitAll()
 
@@ -0,0 +1,34 @@
+package com.retailshop.config;
+
+import com.retailshop.service.WarehouseShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ShardConfig {
+
+    private static final String FORMER_DEFAULT_SECRET = "change-this-shard-secret";
+
+    @Value("${inventory.shard.node-id:node-1}")
+    private String nodeId;
+
+    @Value("${inventory.shard.nodes:}")
+    private String nodes;
+
+    @Value("${inventory.shard.assignments:}")
+    private String assignments;
+
+    @Value("${inventory.shard.secret:}")
+    private String secret;
+
+    @Bean
+    public WarehouseShardRouter warehouseShardRouter() {
+        WarehouseShardRouter router = WarehouseShardRouter.parse(nodeId, nodes, assignments);
+        // The secret is the only thing guarding the internal shard endpoints, so a sharded node needs a real one
+        if (router.isSharded() && (secret.isBlank() || secret.equals(FORMER_DEFAULT_SECRET))) {
+            throw new IllegalStateException("inventory.shard.secret must be set when inventory.shard.nodes lists more than one node");
+        }
+        return router;
+    }
+}
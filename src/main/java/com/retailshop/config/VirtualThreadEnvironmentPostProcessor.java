@@ -0,0 +1,28 @@
+package com.retailshop.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Sizes the virtual thread scheduler before the first virtual thread is started. The MySQL driver
+ * blocks inside synchronized sections, so every thread holding a pooled connection can pin its carrier;
+ * with one carrier per core, a busy pool would leave no carriers for requests that never touch the
+ * database. Adding a carrier per pooled connection keeps those requests running. An explicit
+ * {@code -Djdk.virtualThreadScheduler.parallelism} always wins.
+ */
+public class VirtualThreadEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                || System.getProperty(PARALLELISM_PROPERTY) != null) {
+            return;
+        }
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int parallelism = Runtime.getRuntime().availableProcessors() + poolSize;
+        System.setProperty(PARALLELISM_PROPERTY, Integer.toString(parallelism));
+    }
+}
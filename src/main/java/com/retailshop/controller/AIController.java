@@ -1,15 +1,18 @@
 package com.retailshop.controller;
 
 import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.DemandForecastResponse;
 import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.dto.response.ReorderRecommendationsResponse;
+import com.retailshop.forecast.ForecastMethod;
 import com.retailshop.service.IAISearchService;
 import com.retailshop.service.IDemandForecastService;
+import com.retailshop.util.Constants;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -20,8 +23,11 @@ public class AIController {
     private final IDemandForecastService demandForecastService;
 
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<ProductResponse>>> intelligentSearch(@RequestParam String query) {
-        List<ProductResponse> products = aiSearchService.intelligentProductSearch(query);
+    public ResponseEntity<ApiResponse<List<ProductResponse>>> intelligentSearch(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size) {
+        List<ProductResponse> products = aiSearchService.intelligentProductSearch(query, offset, size);
         ApiResponse<List<ProductResponse>> response = ApiResponse.<List<ProductResponse>>builder()
                 .success(true)
                 .message("AI search completed successfully")
@@ -53,11 +59,12 @@ public class AIController {
     }
 
     @GetMapping("/forecast/{productId}")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> forecastDemand(
+    public ResponseEntity<ApiResponse<DemandForecastResponse>> forecastDemand(
             @PathVariable Long productId,
-            @RequestParam(defaultValue = "30") Integer days) {
-        Map<String, Object> forecast = demandForecastService.forecastDemand(productId, days);
-        ApiResponse<Map<String, Object>> response = ApiResponse.<Map<String, Object>>builder()
+            @RequestParam(defaultValue = "30") Integer days,
+            @RequestParam(defaultValue = "SMA") ForecastMethod method) {
+        DemandForecastResponse forecast = demandForecastService.forecastDemand(productId, days, method);
+        ApiResponse<DemandForecastResponse> response = ApiResponse.<DemandForecastResponse>builder()
                 .success(true)
                 .message("Demand forecast generated successfully")
                 .data(forecast)
@@ -66,9 +73,9 @@ public class AIController {
     }
 
     @GetMapping("/reorder-recommendations")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> getReorderRecommendations() {
-        Map<String, Object> recommendations = demandForecastService.getReorderRecommendations();
-        ApiResponse<Map<String, Object>> response = ApiResponse.<Map<String, Object>>builder()
+    public ResponseEntity<ApiResponse<ReorderRecommendationsResponse>> getReorderRecommendations() {
+        ReorderRecommendationsResponse recommendations = demandForecastService.getReorderRecommendations();
+        ApiResponse<ReorderRecommendationsResponse> response = ApiResponse.<ReorderRecommendationsResponse>builder()
                 .success(true)
                 .message("Reorder recommendations generated successfully")
                 .data(recommendations)
@@ -1,13 +1,18 @@
 package com.retailshop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.entity.Customer;
 import com.retailshop.service.ICustomerService;
+import com.retailshop.util.Constants;
+import com.retailshop.util.NdjsonWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -17,6 +22,7 @@ import java.util.List;
 public class CustomerController {
 
     private final ICustomerService customerService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<Customer>>> getAllCustomers() {
@@ -29,6 +35,29 @@ public class CustomerController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<Customer>>> getCustomersPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size) {
+        CursorPage<Customer> page = customerService.getCustomersPage(after, size);
+        ApiResponse<CursorPage<Customer>> response = ApiResponse.<CursorPage<Customer>>builder()
+                .success(true)
+                .message("Customers retrieved successfully")
+                .data(page)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            customerService.streamCustomers(writer::accept);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.MEDIA_TYPE).body(body);
+    }
+
     @GetMapping("/{customerId}")
     public ResponseEntity<ApiResponse<Customer>> getCustomerById(@PathVariable Long customerId) {
         Customer customer = customerService.getCustomerById(customerId);
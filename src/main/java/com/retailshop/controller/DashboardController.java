@@ -2,45 +2,27 @@ package com.retailshop.controller;
 
 import com.retailshop.dto.response.ApiResponse;
 import com.retailshop.dto.response.DashboardResponse;
-import com.retailshop.service.*;
+import com.retailshop.service.IDashboardService;
+import com.retailshop.service.ISalesRollupService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/dashboard")
 @RequiredArgsConstructor
 public class DashboardController {
 
-    private final IProductService productService;
-    private final ICustomerService customerService;
-    private final ISupplierService supplierService;
-    private final IInventoryService inventoryService;
-    private final IPurchaseOrderService purchaseOrderService;
-    private final ISalesOrderService salesOrderService;
+    private final IDashboardService dashboardService;
+    private final ISalesRollupService salesRollupService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<DashboardResponse>> getDashboardData() {
-        DashboardResponse dashboard = DashboardResponse.builder()
-                .totalProducts((long) productService.getAllProducts().size())
-                .totalCustomers((long) customerService.getAllCustomers().size())
-                .totalSuppliers((long) supplierService.getAllSuppliers().size())
-                .lowStockItems((long) inventoryService.getLowStockItems().size())
-                .outOfStockItems((long) inventoryService.getOutOfStockItems().size())
-                .pendingPurchaseOrders((long) purchaseOrderService.getPendingOrders().size())
-                .pendingSalesOrders((long) salesOrderService.getPendingOrders().size())
-                .totalSalesToday(BigDecimal.ZERO) // Calculate from transactions
-                .totalSalesThisMonth(BigDecimal.ZERO) // Calculate from transactions
-                .totalInventoryValue(calculateInventoryValue())
-                .recentTransactions(new HashMap<>())
-                .topSellingProducts(new HashMap<>())
-                .build();
+        DashboardResponse dashboard = dashboardService.getDashboard();
 
         ApiResponse<DashboardResponse> response = ApiResponse.<DashboardResponse>builder()
                 .success(true)
@@ -50,12 +32,18 @@ public class DashboardController {
         return ResponseEntity.ok(response);
     }
 
-    private BigDecimal calculateInventoryValue() {
-        return inventoryService.getAllInventory().stream()
-                .map(inv -> {
-                    var product = productService.getProductById(inv.getProductId());
-                    return product.getCostPrice().multiply(new BigDecimal(inv.getQuantityOnHand()));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    @PostMapping("/sales-rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Integer>> rebuildSalesRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int rows = salesRollupService.rebuild(from, to);
+
+        ApiResponse<Integer> response = ApiResponse.<Integer>builder()
+                .success(true)
+                .message("Sales rollup rebuilt successfully")
+                .data(rows)
+                .build();
+        return ResponseEntity.ok(response);
     }
 }
@@ -1,14 +1,19 @@
 package com.retailshop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retailshop.dto.request.InventoryUpdateRequest;
 import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.InventoryResponse;
 import com.retailshop.service.IInventoryService;
+import com.retailshop.util.Constants;
+import com.retailshop.util.NdjsonWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -18,6 +23,7 @@ import java.util.List;
 public class InventoryController {
 
     private final IInventoryService inventoryService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<InventoryResponse>>> getAllInventory() {
@@ -30,6 +36,29 @@ public class InventoryController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<InventoryResponse>>> getInventoryPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size) {
+        CursorPage<InventoryResponse> page = inventoryService.getInventoryPage(after, size);
+        ApiResponse<CursorPage<InventoryResponse>> response = ApiResponse.<CursorPage<InventoryResponse>>builder()
+                .success(true)
+                .message("Inventory retrieved successfully")
+                .data(page)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportInventory() {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            inventoryService.streamInventory(writer::accept);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.MEDIA_TYPE).body(body);
+    }
+
     @GetMapping("/product/{productId}")
     public ResponseEntity<ApiResponse<List<InventoryResponse>>> getInventoryByProduct(@PathVariable Long productId) {
         List<InventoryResponse> inventory = inventoryService.getInventoryByProduct(productId);
@@ -131,6 +160,31 @@ public class InventoryController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/product/{productId}/warehouse/{warehouseId}/available")
+    public ResponseEntity<ApiResponse<Integer>> getQuantityAvailable(
+            @PathVariable Long productId,
+            @PathVariable Long warehouseId) {
+        Integer available = inventoryService.getQuantityAvailable(productId, warehouseId);
+        ApiResponse<Integer> response = ApiResponse.<Integer>builder()
+                .success(true)
+                .message("Available quantity retrieved successfully")
+                .data(available)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/ledger/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Integer>> reconcileStockLedger() {
+        Integer corrections = inventoryService.reconcileStockLedger();
+        ApiResponse<Integer> response = ApiResponse.<Integer>builder()
+                .success(true)
+                .message("Stock ledger reconciled successfully")
+                .data(corrections)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/product/{productId}/total")
     public ResponseEntity<ApiResponse<Integer>> getTotalStockByProduct(@PathVariable Long productId) {
         Integer total = inventoryService.getTotalStockByProduct(productId);
@@ -0,0 +1,88 @@
+package com.retailshop.controller;
+
+import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.InventoryDriftResponse;
+import com.retailshop.dto.response.InventoryProjectionResponse;
+import com.retailshop.dto.response.StockAtTimeResponse;
+import com.retailshop.service.IInventoryHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/inventory/history")
+@RequiredArgsConstructor
+public class InventoryHistoryController {
+
+    private final IInventoryHistoryService inventoryHistoryService;
+
+    @GetMapping("/product/{productId}/warehouse/{warehouseId}")
+    public ResponseEntity<ApiResponse<StockAtTimeResponse>> getStockAt(
+            @PathVariable Long productId,
+            @PathVariable Long warehouseId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        StockAtTimeResponse stock = inventoryHistoryService.getStockAt(productId, warehouseId,
+                at != null ? at : LocalDateTime.now());
+        ApiResponse<StockAtTimeResponse> response = ApiResponse.<StockAtTimeResponse>builder()
+                .success(true)
+                .message("Stock retrieved successfully")
+                .data(stock)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/warehouse/{warehouseId}")
+    public ResponseEntity<ApiResponse<List<StockAtTimeResponse>>> getWarehouseStockAt(
+            @PathVariable Long warehouseId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        List<StockAtTimeResponse> stock = inventoryHistoryService.getWarehouseStockAt(warehouseId,
+                at != null ? at : LocalDateTime.now());
+        ApiResponse<List<StockAtTimeResponse>> response = ApiResponse.<List<StockAtTimeResponse>>builder()
+                .success(true)
+                .message("Stock retrieved successfully")
+                .data(stock)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/warehouse/{warehouseId}/drift")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<List<InventoryDriftResponse>>> findDrift(@PathVariable Long warehouseId) {
+        List<InventoryDriftResponse> drift = inventoryHistoryService.findDrift(warehouseId);
+        ApiResponse<List<InventoryDriftResponse>> response = ApiResponse.<List<InventoryDriftResponse>>builder()
+                .success(true)
+                .message(drift.isEmpty() ? "Inventory matches its transaction history" : "Inventory drift found")
+                .data(drift)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/project")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<InventoryProjectionResponse>> projectEvents() {
+        InventoryProjectionResponse projection = inventoryHistoryService.projectEvents();
+        ApiResponse<InventoryProjectionResponse> response = ApiResponse.<InventoryProjectionResponse>builder()
+                .success(true)
+                .message("Inventory projection updated")
+                .data(projection)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<InventoryProjectionResponse>> rebuildProjection() {
+        InventoryProjectionResponse projection = inventoryHistoryService.rebuildProjection();
+        ApiResponse<InventoryProjectionResponse> response = ApiResponse.<InventoryProjectionResponse>builder()
+                .success(true)
+                .message("Inventory projection rebuilt")
+                .data(projection)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,50 @@
+package com.retailshop.controller;
+
+import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.InventoryValuationResponse;
+import com.retailshop.service.IInventoryValuationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/inventory/valuation")
+@RequiredArgsConstructor
+public class InventoryValuationController {
+
+    private final IInventoryValuationService inventoryValuationService;
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<InventoryValuationResponse>> getValuation(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+            @RequestParam(required = false) Long warehouseId) {
+        InventoryValuationResponse valuation = inventoryValuationService.getValuation(
+                asOf != null ? asOf : LocalDateTime.now(), warehouseId);
+        ApiResponse<InventoryValuationResponse> response = ApiResponse.<InventoryValuationResponse>builder()
+                .success(true)
+                .message("Inventory valuation calculated successfully")
+                .data(valuation)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/checkpoint")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Long>> createCheckpoint(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate before) {
+        long through = inventoryValuationService.createCheckpoint(
+                (before != null ? before : LocalDate.now()).atStartOfDay());
+        ApiResponse<Long> response = ApiResponse.<Long>builder()
+                .success(true)
+                .message("Inventory valuation checkpoint written")
+                .data(through)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,16 +1,29 @@
 package com.retailshop.controller;
 
+import com.retailshop.dto.request.ProductFileFormat;
 import com.retailshop.dto.request.ProductRequest;
 import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.CursorPage;
+import com.retailshop.dto.response.ProductImportResponse;
 import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.dto.response.ProductScanResponse;
+import com.retailshop.service.IProductBulkService;
 import com.retailshop.service.IProductService;
+import com.retailshop.util.Constants;
+import com.retailshop.util.CsvWriter;
+import com.retailshop.util.NdjsonWriter;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -19,6 +32,7 @@ import java.util.List;
 public class ProductController {
 
     private final IProductService productService;
+    private final IProductBulkService productBulkService;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getAllProducts() {
@@ -31,6 +45,67 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<ProductResponse>>> getProductsPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size) {
+        CursorPage<ProductResponse> page = productService.getProductsPage(after, size);
+        ApiResponse<CursorPage<ProductResponse>> response = ApiResponse.<CursorPage<ProductResponse>>builder()
+                .success(true)
+                .message("Products retrieved successfully")
+                .data(page)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "NDJSON") ProductFileFormat format) {
+        StreamingResponseBody body = out -> productBulkService.exportProducts(format, out);
+        return ResponseEntity.ok()
+                .contentType(format == ProductFileFormat.CSV ? CsvWriter.MEDIA_TYPE : NdjsonWriter.MEDIA_TYPE)
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = "multipart/form-data")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<ProductImportResponse>> importProducts(
+            @RequestParam("file") MultipartFile file) throws IOException {
+        ProductFileFormat format = ProductFileFormat.fromContentType(file.getContentType(), file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            return importAccepted(productBulkService.startImport(in, format));
+        }
+    }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<ProductImportResponse>> importProductsStream(
+            HttpServletRequest request) throws IOException {
+        ProductFileFormat format = ProductFileFormat.fromContentType(request.getContentType(), null);
+        return importAccepted(productBulkService.startImport(request.getInputStream(), format));
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ApiResponse<ProductImportResponse>> getImport(@PathVariable String jobId) {
+        ProductImportResponse job = productBulkService.getImport(jobId);
+        ApiResponse<ProductImportResponse> response = ApiResponse.<ProductImportResponse>builder()
+                .success(true)
+                .message("Import status retrieved successfully")
+                .data(job)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/import/{jobId}/errors")
+    public ResponseEntity<StreamingResponseBody> getImportErrors(@PathVariable String jobId) {
+        // Checked before the body is built: once streaming starts the 200 is already committed
+        if (productBulkService.getImport(jobId).getFinishedAt() == null) {
+            throw new IllegalStateException("Import is still running");
+        }
+        StreamingResponseBody body = out -> productBulkService.writeImportErrors(jobId, out);
+        return ResponseEntity.ok().contentType(NdjsonWriter.MEDIA_TYPE).body(body);
+    }
+
     @GetMapping("/active")
     public ResponseEntity<ApiResponse<List<ProductResponse>>> getActiveProducts() {
         List<ProductResponse> products = productService.getActiveProducts();
@@ -65,8 +140,10 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<ProductResponse>>> searchProducts(@RequestParam String keyword) {
-        List<ProductResponse> products = productService.searchProducts(keyword);
+    public ResponseEntity<ApiResponse<List<ProductResponse>>> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int limit) {
+        List<ProductResponse> products = productService.searchProducts(keyword, limit);
         ApiResponse<List<ProductResponse>> response = ApiResponse.<List<ProductResponse>>builder()
                 .success(true)
                 .message("Search completed successfully")
@@ -75,6 +152,19 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/scan/{code}")
+    public ResponseEntity<ApiResponse<ProductScanResponse>> scanProduct(
+            @PathVariable String code,
+            @RequestParam(required = false) Long warehouseId) {
+        ProductScanResponse product = productService.scanProduct(code, warehouseId);
+        ApiResponse<ProductScanResponse> response = ApiResponse.<ProductScanResponse>builder()
+                .success(true)
+                .message("Product resolved successfully")
+                .data(product)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping
 //    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     public ResponseEntity<ApiResponse<ProductResponse>> createProduct(@Valid @RequestBody ProductRequest request) {
@@ -124,4 +214,13 @@ public class ProductController {
                 .build();
         return ResponseEntity.ok(response);
     }
+
+    private ResponseEntity<ApiResponse<ProductImportResponse>> importAccepted(ProductImportResponse job) {
+        ApiResponse<ProductImportResponse> response = ApiResponse.<ProductImportResponse>builder()
+                .success(true)
+                .message("Product import accepted")
+                .data(job)
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
 }
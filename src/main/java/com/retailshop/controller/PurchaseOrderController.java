@@ -1,16 +1,21 @@
 package com.retailshop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retailshop.dto.request.PurchaseOrderRequest;
 import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.PurchaseOrderResponse;
 import com.retailshop.entity.PurchaseOrder;
 import com.retailshop.service.IPurchaseOrderService;
+import com.retailshop.util.Constants;
+import com.retailshop.util.NdjsonWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -20,6 +25,7 @@ import java.util.List;
 public class PurchaseOrderController {
 
     private final IPurchaseOrderService purchaseOrderService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<PurchaseOrderResponse>>> getAllPurchaseOrders() {
@@ -32,6 +38,29 @@ public class PurchaseOrderController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<PurchaseOrderResponse>>> getPurchaseOrdersPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size) {
+        CursorPage<PurchaseOrderResponse> page = purchaseOrderService.getPurchaseOrdersPage(after, size);
+        ApiResponse<CursorPage<PurchaseOrderResponse>> response = ApiResponse.<CursorPage<PurchaseOrderResponse>>builder()
+                .success(true)
+                .message("Purchase orders retrieved successfully")
+                .data(page)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportPurchaseOrders() {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            purchaseOrderService.streamPurchaseOrders(writer::accept);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.MEDIA_TYPE).body(body);
+    }
+
     @GetMapping("/{poId}")
     public ResponseEntity<ApiResponse<PurchaseOrderResponse>> getPurchaseOrderById(@PathVariable Long poId) {
         PurchaseOrderResponse order = purchaseOrderService.getPurchaseOrderById(poId);
@@ -1,16 +1,21 @@
 package com.retailshop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retailshop.dto.request.SalesOrderRequest;
 import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.SalesOrderResponse;
 import com.retailshop.entity.SalesOrder;
 import com.retailshop.service.ISalesOrderService;
+import com.retailshop.util.Constants;
+import com.retailshop.util.NdjsonWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -20,6 +25,7 @@ import java.util.List;
 public class SalesOrderController {
 
     private final ISalesOrderService salesOrderService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<SalesOrderResponse>>> getAllSalesOrders() {
@@ -32,6 +38,29 @@ public class SalesOrderController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<SalesOrderResponse>>> getSalesOrdersPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size) {
+        CursorPage<SalesOrderResponse> page = salesOrderService.getSalesOrdersPage(after, size);
+        ApiResponse<CursorPage<SalesOrderResponse>> response = ApiResponse.<CursorPage<SalesOrderResponse>>builder()
+                .success(true)
+                .message("Sales orders retrieved successfully")
+                .data(page)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportSalesOrders() {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            salesOrderService.streamSalesOrders(writer::accept);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.MEDIA_TYPE).body(body);
+    }
+
     @GetMapping("/{soId}")
     public ResponseEntity<ApiResponse<SalesOrderResponse>> getSalesOrderById(@PathVariable Long soId) {
         SalesOrderResponse order = salesOrderService.getSalesOrderById(soId);
@@ -0,0 +1,248 @@
+package com.retailshop.controller;
+
+import com.retailshop.dto.request.InventoryUpdateRequest;
+import com.retailshop.dto.request.SalesOrderRequest;
+import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.InventoryResponse;
+import com.retailshop.dto.response.SalesOrderResponse;
+import com.retailshop.exception.DuplicateResourceException;
+import com.retailshop.exception.InsufficientStockException;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.retailshop.service.*;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Node-to-node endpoints used by {@link ShardClient}. They run the concrete local services, never the routing
+ * ones, so a call is never forwarded twice.
+ */
+@RestController
+@RequestMapping("/internal/shard")
+@RequiredArgsConstructor
+public class ShardController {
+
+    private final InventoryService inventoryService;
+    private final SalesOrderService salesOrderService;
+    private final IStockTransferService stockTransferService;
+    private final StockLedger stockLedger;
+    private final WarehouseShardRouter shardRouter;
+
+    @Value("${inventory.shard.secret}")
+    private String secret;
+
+    // Runs before any handler argument is read: a single node has no peers, so these endpoints do not exist there
+    @ModelAttribute
+    void requireSharded() {
+        if (!shardRouter.isSharded()) {
+            throw new ShardingDisabledException();
+        }
+    }
+
+    @PostMapping("/inventory/update")
+    public ResponseEntity<ApiResponse<InventoryResponse>> updateInventory(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @Valid @RequestBody InventoryUpdateRequest request) {
+        return run(shardSecret, username, "Inventory updated successfully", () -> {
+            shardRouter.requireLocal(request.getWarehouseId());
+            return inventoryService.updateInventory(request);
+        });
+    }
+
+    @PostMapping("/inventory/adjust")
+    public ResponseEntity<ApiResponse<InventoryResponse>> adjustInventory(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @RequestParam Long productId,
+            @RequestParam Long warehouseId,
+            @RequestParam Integer quantity,
+            @RequestParam(required = false) String reason) {
+        return run(shardSecret, username, "Inventory adjusted successfully", () -> {
+            shardRouter.requireLocal(warehouseId);
+            return inventoryService.adjustInventory(productId, warehouseId, quantity, reason);
+        });
+    }
+
+    @PostMapping("/inventory/reserve")
+    public ResponseEntity<ApiResponse<Void>> reserveStock(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @RequestParam Long productId,
+            @RequestParam Long warehouseId,
+            @RequestParam Integer quantity) {
+        return run(shardSecret, username, "Stock reserved successfully", () -> {
+            shardRouter.requireLocal(warehouseId);
+            inventoryService.reserveStock(productId, warehouseId, quantity);
+            return null;
+        });
+    }
+
+    @PostMapping("/inventory/release")
+    public ResponseEntity<ApiResponse<Void>> releaseReservedStock(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @RequestParam Long productId,
+            @RequestParam Long warehouseId,
+            @RequestParam Integer quantity) {
+        return run(shardSecret, username, "Reserved stock released successfully", () -> {
+            shardRouter.requireLocal(warehouseId);
+            inventoryService.releaseReservedStock(productId, warehouseId, quantity);
+            return null;
+        });
+    }
+
+    @PostMapping("/ledger/apply")
+    public ResponseEntity<ApiResponse<Void>> applyLedgerDelta(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestParam Long productId,
+            @RequestParam Long warehouseId,
+            @RequestParam int onHandDelta,
+            @RequestParam int reservedDelta) {
+        return run(shardSecret, null, "Ledger delta applied", () -> {
+            stockLedger.applyForwarded(productId, warehouseId, onHandDelta, reservedDelta);
+            return null;
+        });
+    }
+
+    @PostMapping("/transfers/prepare")
+    public ResponseEntity<ApiResponse<Long>> prepareTransfer(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @RequestParam Long productId,
+            @RequestParam Long fromWarehouseId,
+            @RequestParam Long toWarehouseId,
+            @RequestParam Integer quantity) {
+        return run(shardSecret, username, "Transfer prepared",
+                () -> stockTransferService.prepareTransfer(productId, fromWarehouseId, toWarehouseId, quantity));
+    }
+
+    @PostMapping("/transfers/{transferId}/commit")
+    public ResponseEntity<ApiResponse<Void>> commitTransfer(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @PathVariable Long transferId) {
+        return run(shardSecret, null, "Transfer committed", () -> {
+            stockTransferService.commitTransfer(transferId);
+            return null;
+        });
+    }
+
+    @PostMapping("/transfers/{transferId}/abort")
+    public ResponseEntity<ApiResponse<Boolean>> abortTransfer(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @PathVariable Long transferId) {
+        return run(shardSecret, null, "Transfer resolved", () -> stockTransferService.abortTransfer(transferId));
+    }
+
+    @PostMapping("/sales-orders")
+    public ResponseEntity<ApiResponse<SalesOrderResponse>> createSalesOrder(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @Valid @RequestBody SalesOrderRequest request) {
+        return run(shardSecret, username, "Sales order created successfully", () -> {
+            shardRouter.requireLocal(request.getWarehouseId());
+            return salesOrderService.createSalesOrder(request);
+        });
+    }
+
+    @PutMapping("/sales-orders/{soId}")
+    public ResponseEntity<ApiResponse<SalesOrderResponse>> updateSalesOrder(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @PathVariable Long soId,
+            @Valid @RequestBody SalesOrderRequest request) {
+        return run(shardSecret, username, "Sales order updated successfully",
+                () -> salesOrderService.updateSalesOrder(soId, request));
+    }
+
+    @PostMapping("/sales-orders/{soId}/ship")
+    public ResponseEntity<ApiResponse<SalesOrderResponse>> shipSalesOrder(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @PathVariable Long soId) {
+        return run(shardSecret, username, "Sales order shipped successfully",
+                () -> salesOrderService.shipSalesOrder(soId));
+    }
+
+    @PostMapping("/sales-orders/{soId}/cancel")
+    public ResponseEntity<ApiResponse<SalesOrderResponse>> cancelSalesOrder(
+            @RequestHeader(ShardClient.SECRET_HEADER) String shardSecret,
+            @RequestHeader(value = ShardClient.USER_HEADER, required = false) String username,
+            @PathVariable Long soId) {
+        return run(shardSecret, username, "Sales order cancelled successfully",
+                () -> salesOrderService.cancelSalesOrder(soId));
+    }
+
+    // Business failures keep their type, so the calling node can rethrow the same exception
+    @ExceptionHandler({ResourceNotFoundException.class, InsufficientStockException.class,
+            DuplicateResourceException.class, IllegalStateException.class})
+    public ResponseEntity<ApiResponse<String>> handleParticipantFailure(RuntimeException ex) {
+        ApiResponse<String> response = ApiResponse.<String>builder()
+                .success(false)
+                .message(ex.getMessage())
+                .data(null)
+                .build();
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .header(ShardClient.ERROR_HEADER, ex.getClass().getSimpleName())
+                .body(response);
+    }
+
+    @ExceptionHandler(ShardingDisabledException.class)
+    public ResponseEntity<ApiResponse<String>> handleShardingDisabled(ShardingDisabledException ex) {
+        ApiResponse<String> response = ApiResponse.<String>builder()
+                .success(false)
+                .message("Not found")
+                .data(null)
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<ApiResponse<String>> handleAccessDenied(AccessDeniedException ex) {
+        ApiResponse<String> response = ApiResponse.<String>builder()
+                .success(false)
+                .message(ex.getMessage())
+                .data(null)
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> run(String shardSecret, String username, String message, Supplier<T> operation) {
+        if (!MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), shardSecret.getBytes(StandardCharsets.UTF_8))) {
+            throw new AccessDeniedException("Invalid shard secret");
+        }
+
+        // The operation runs as the user who made the original request, so audit columns stay correct
+        SecurityContext previous = SecurityContextHolder.getContext();
+        if (username != null) {
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+            SecurityContextHolder.setContext(context);
+        }
+        try {
+            ApiResponse<T> response = ApiResponse.<T>builder()
+                    .success(true)
+                    .message(message)
+                    .data(operation.get())
+                    .build();
+            return ResponseEntity.ok(response);
+        } finally {
+            SecurityContextHolder.setContext(previous);
+        }
+    }
+
+    private static class ShardingDisabledException extends RuntimeException {
+    }
+}
@@ -0,0 +1,113 @@
+package com.retailshop.controller;
+
+import com.retailshop.dto.request.StockTakeCountRequest;
+import com.retailshop.dto.request.StockTakeSessionRequest;
+import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.StockTakeCountResponse;
+import com.retailshop.dto.response.StockTakeSessionResponse;
+import com.retailshop.service.IStockTakeService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stock-takes")
+@RequiredArgsConstructor
+public class StockTakeController {
+
+    private final IStockTakeService stockTakeService;
+
+    @PostMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<StockTakeSessionResponse>> openSession(
+            @Valid @RequestBody StockTakeSessionRequest request) {
+        StockTakeSessionResponse session = stockTakeService.openSession(request);
+        ApiResponse<StockTakeSessionResponse> response = ApiResponse.<StockTakeSessionResponse>builder()
+                .success(true)
+                .message("Stock take opened successfully")
+                .data(session)
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<ApiResponse<StockTakeSessionResponse>> getSession(@PathVariable Long sessionId) {
+        StockTakeSessionResponse session = stockTakeService.getSession(sessionId);
+        ApiResponse<StockTakeSessionResponse> response = ApiResponse.<StockTakeSessionResponse>builder()
+                .success(true)
+                .message("Stock take retrieved successfully")
+                .data(session)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/warehouse/{warehouseId}")
+    public ResponseEntity<ApiResponse<List<StockTakeSessionResponse>>> getSessionsByWarehouse(
+            @PathVariable Long warehouseId) {
+        List<StockTakeSessionResponse> sessions = stockTakeService.getSessionsByWarehouse(warehouseId);
+        ApiResponse<List<StockTakeSessionResponse>> response = ApiResponse.<List<StockTakeSessionResponse>>builder()
+                .success(true)
+                .message("Stock takes retrieved successfully")
+                .data(sessions)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/{sessionId}/counts", consumes = "application/json")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'STAFF')")
+    public ResponseEntity<ApiResponse<StockTakeCountResponse>> recordCounts(
+            @PathVariable Long sessionId,
+            @RequestBody List<StockTakeCountRequest> counts) {
+        return countsRecorded(stockTakeService.recordCounts(sessionId, counts));
+    }
+
+    @PostMapping(value = "/{sessionId}/counts", consumes = "application/x-ndjson")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'STAFF')")
+    public ResponseEntity<ApiResponse<StockTakeCountResponse>> recordCountsStream(
+            @PathVariable Long sessionId,
+            HttpServletRequest request) throws IOException {
+        return countsRecorded(stockTakeService.recordCounts(sessionId, request.getInputStream()));
+    }
+
+    @PostMapping("/{sessionId}/close")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<StockTakeSessionResponse>> closeSession(
+            @PathVariable Long sessionId,
+            @RequestParam(defaultValue = "false") boolean zeroUncounted) {
+        StockTakeSessionResponse session = stockTakeService.closeSession(sessionId, zeroUncounted);
+        ApiResponse<StockTakeSessionResponse> response = ApiResponse.<StockTakeSessionResponse>builder()
+                .success(true)
+                .message("Stock take closed successfully")
+                .data(session)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/{sessionId}/cancel")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<ApiResponse<StockTakeSessionResponse>> cancelSession(@PathVariable Long sessionId) {
+        StockTakeSessionResponse session = stockTakeService.cancelSession(sessionId);
+        ApiResponse<StockTakeSessionResponse> response = ApiResponse.<StockTakeSessionResponse>builder()
+                .success(true)
+                .message("Stock take cancelled successfully")
+                .data(session)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<ApiResponse<StockTakeCountResponse>> countsRecorded(StockTakeCountResponse result) {
+        ApiResponse<StockTakeCountResponse> response = ApiResponse.<StockTakeCountResponse>builder()
+                .success(true)
+                .message("Counts recorded successfully")
+                .data(result)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,13 +1,18 @@
 package com.retailshop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.entity.Supplier;
 import com.retailshop.service.ISupplierService;
+import com.retailshop.util.Constants;
+import com.retailshop.util.NdjsonWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -17,6 +22,7 @@ import java.util.List;
 public class SupplierController {
 
     private final ISupplierService supplierService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<Supplier>>> getAllSuppliers() {
@@ -29,6 +35,29 @@ public class SupplierController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPage<Supplier>>> getSuppliersPage(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size) {
+        CursorPage<Supplier> page = supplierService.getSuppliersPage(after, size);
+        ApiResponse<CursorPage<Supplier>> response = ApiResponse.<CursorPage<Supplier>>builder()
+                .success(true)
+                .message("Suppliers retrieved successfully")
+                .data(page)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportSuppliers() {
+        StreamingResponseBody body = out -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            supplierService.streamSuppliers(writer::accept);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(NdjsonWriter.MEDIA_TYPE).body(body);
+    }
+
     @GetMapping("/{supplierId}")
     public ResponseEntity<ApiResponse<Supplier>> getSupplierById(@PathVariable Long supplierId) {
         Supplier supplier = supplierService.getSupplierById(supplierId);
@@ -0,0 +1,30 @@
+package com.retailshop.dto.request;
+
+import org.springframework.http.MediaType;
+
+public enum ProductFileFormat {
+    CSV,
+    NDJSON;
+
+    public static ProductFileFormat fromContentType(String contentType, String filename) {
+        if (contentType != null) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if ("csv".equalsIgnoreCase(mediaType.getSubtype())) {
+                return CSV;
+            }
+            if ("x-ndjson".equalsIgnoreCase(mediaType.getSubtype())) {
+                return NDJSON;
+            }
+        }
+        if (filename != null) {
+            String lowerName = filename.toLowerCase();
+            if (lowerName.endsWith(".csv")) {
+                return CSV;
+            }
+            if (lowerName.endsWith(".ndjson") || lowerName.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+        }
+        throw new IllegalStateException("Upload must be CSV (text/csv) or NDJSON (application/x-ndjson)");
+    }
+}
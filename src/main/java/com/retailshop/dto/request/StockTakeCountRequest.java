@@ -0,0 +1,21 @@
+package com.retailshop.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class StockTakeCountRequest {
+    // Either the product id or the scanned barcode identifies the product
+    private Long productId;
+
+    private String barcode;
+
+    @Size(max = 50)
+    private String binLocation;
+
+    @NotNull(message = "Counted quantity is required")
+    @Min(value = 0, message = "Counted quantity cannot be negative")
+    private Integer countedQuantity;
+}
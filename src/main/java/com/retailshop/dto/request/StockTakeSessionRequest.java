@@ -0,0 +1,12 @@
+package com.retailshop.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class StockTakeSessionRequest {
+    @NotNull(message = "Warehouse ID is required")
+    private Long warehouseId;
+
+    private String notes;
+}
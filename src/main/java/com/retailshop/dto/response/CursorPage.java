@@ -0,0 +1,34 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private Long nextCursor;
+    private boolean hasNext;
+    private int size;
+
+    public static <E, T> CursorPage<T> of(Slice<E> slice, Function<E, Long> idExtractor, Function<E, T> mapper) {
+        List<E> entities = slice.getContent();
+        Long nextCursor = slice.hasNext() && !entities.isEmpty()
+                ? idExtractor.apply(entities.get(entities.size() - 1))
+                : null;
+        return CursorPage.<T>builder()
+                .content(entities.stream().map(mapper).toList())
+                .nextCursor(nextCursor)
+                .hasNext(slice.hasNext())
+                .size(entities.size())
+                .build();
+    }
+}
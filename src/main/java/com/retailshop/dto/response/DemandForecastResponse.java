@@ -0,0 +1,34 @@
+package com.retailshop.dto.response;
+
+import com.retailshop.forecast.ForecastMethod;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DemandForecastResponse {
+    private Long productId;
+    private String productName;
+    private ForecastMethod forecastMethod;
+    private String forecastMethodDescription;
+    private Integer historicalPeriodDays;
+    private Integer totalSalesInPeriod;
+    private Double averageDailySales;
+    private Double forecastedDemand30Days;
+    private List<Double> dailyForecast;
+    private Integer recommendedReorderQuantity;
+    private Integer currentReorderPoint;
+    private Integer evaluatedDays;
+    private Double meanAbsoluteError;
+    private Double rootMeanSquaredError;
+    private Double bias;
+    private Double weightedAbsolutePercentageError;
+    private LocalDateTime generatedAt;
+}
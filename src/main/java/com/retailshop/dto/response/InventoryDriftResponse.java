@@ -0,0 +1,18 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryDriftResponse {
+    private Long productId;
+    private Long warehouseId;
+    private Integer quantityOnHand;
+    private Integer eventSourcedQuantity;
+    private Integer difference;
+}
@@ -0,0 +1,16 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryProjectionResponse {
+    private long eventsApplied;
+    private long checkpointTransactionId;
+    private long elapsedMs;
+}
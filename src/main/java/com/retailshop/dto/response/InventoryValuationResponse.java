@@ -0,0 +1,38 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryValuationResponse {
+    private LocalDateTime asOf;
+    private Long warehouseId;
+    private Long checkpointThroughTransactionId;
+    private long eventsReplayed;
+    private long totalQuantity;
+    private BigDecimal fifoValue;
+    private BigDecimal weightedAverageValue;
+    private List<ValuationLine> warehouses;
+    private List<ValuationLine> categories;
+    private long elapsedMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ValuationLine {
+        private Long id;
+        private String name;
+        private long quantity;
+        private BigDecimal fifoValue;
+        private BigDecimal weightedAverageValue;
+    }
+}
@@ -0,0 +1,41 @@
+package com.retailshop.dto.response;
+
+import com.retailshop.dto.request.ProductFileFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResponse {
+    private String jobId;
+    private Status status;
+    private ProductFileFormat format;
+    private Long rowsRead;
+    private Long inserted;
+    private Long updated;
+    private Long failed;
+    private List<RowError> errors;
+    private String message;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private Integer row;
+        private String sku;
+        private String message;
+    }
+}
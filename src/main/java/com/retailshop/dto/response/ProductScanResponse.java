@@ -0,0 +1,33 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductScanResponse {
+    private Long productId;
+    private String sku;
+    private String barcode;
+    private String productName;
+    private String unitOfMeasure;
+    private BigDecimal sellingPrice;
+    private Boolean isActive;
+    private List<WarehouseStock> stock;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class WarehouseStock {
+        private Long warehouseId;
+        private Integer quantityOnHand;
+        private Integer quantityAvailable;
+    }
+}
@@ -0,0 +1,23 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReorderRecommendation {
+    private Long productId;
+    private String sku;
+    private String productName;
+    private Integer totalSalesInPeriod;
+    private Double averageDailySales;
+    private Double forecastedDemand30Days;
+    private Integer recommendedReorderQuantity;
+    private Integer currentStock;
+    private Integer currentReorderPoint;
+    private Double daysOfCover;
+}
@@ -0,0 +1,21 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReorderRecommendationsResponse {
+    private List<ReorderRecommendation> recommendations;
+    private Integer totalProducts;
+    private Integer historicalPeriodDays;
+    private String forecastMethod;
+    private LocalDateTime generatedAt;
+}
@@ -0,0 +1,21 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAtTimeResponse {
+    private Long productId;
+    private Long warehouseId;
+    private LocalDateTime at;
+    private Integer quantityOnHand;
+    private Long snapshotThroughTransactionId;
+    private Long eventsReplayed;
+}
@@ -0,0 +1,19 @@
+package com.retailshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTakeCountResponse {
+    private Long sessionId;
+    private long accepted;
+    private long rejected;
+    private List<String> errors;
+}
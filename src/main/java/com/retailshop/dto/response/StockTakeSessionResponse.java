@@ -0,0 +1,29 @@
+package com.retailshop.dto.response;
+
+import com.retailshop.entity.StockTakeSession;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTakeSessionResponse {
+    private Long sessionId;
+    private Long warehouseId;
+    private String warehouseName;
+    private StockTakeSession.Status status;
+    private String notes;
+    private String createdBy;
+    private Long countedProducts;
+    private Integer adjustedProducts;
+    private Long unitsGained;
+    private Long unitsLost;
+    private LocalDateTime openedAt;
+    private LocalDateTime lastCountAt;
+    private LocalDateTime closedAt;
+}
@@ -0,0 +1,47 @@
+package com.retailshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "daily_sales_rollup", indexes = {
+        @Index(name = "idx_rollup_sale_date", columnList = "saleDate")
+})
+@IdClass(DailySalesRollup.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesRollup {
+
+    @Id
+    private Long productId;
+
+    @Id
+    private Long warehouseId;
+
+    @Id
+    private LocalDate saleDate;
+
+    @Column(nullable = false)
+    private Long quantitySold;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long productId;
+        private Long warehouseId;
+        private LocalDate saleDate;
+    }
+}
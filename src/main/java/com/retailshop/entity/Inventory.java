@@ -51,6 +51,9 @@ public class Inventory {
     @Column(length = 50)
     private String binLocation;
 
+    @Version
+    private Long version;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @Table(name = "inventory_transactions", indexes = {
         @Index(name = "idx_product", columnList = "product_id"),
         @Index(name = "idx_warehouse", columnList = "warehouse_id"),
-        @Index(name = "idx_transaction_date", columnList = "transactionDate")
+        @Index(name = "idx_transaction_date", columnList = "transactionDate"),
+        @Index(name = "idx_inventory_tx_product_warehouse_id", columnList = "product_id, warehouse_id, transactionId")
 })
 @Data
 @Builder
@@ -0,0 +1,45 @@
+package com.retailshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_take_counts")
+@IdClass(StockTakeCount.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTakeCount {
+
+    @Id
+    private Long sessionId;
+
+    @Id
+    private Long productId;
+
+    @Id
+    @Column(length = 50)
+    private String binLocation;
+
+    @Column(nullable = false)
+    private Integer countedQuantity;
+
+    @Column(nullable = false)
+    private LocalDateTime countedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long sessionId;
+        private Long productId;
+        private String binLocation;
+    }
+}
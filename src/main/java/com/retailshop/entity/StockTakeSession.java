@@ -0,0 +1,62 @@
+package com.retailshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stock_take_sessions", indexes = {
+        @Index(name = "idx_stock_take_warehouse_status", columnList = "warehouse_id, status")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTakeSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long sessionId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id", nullable = false)
+    private Warehouse warehouse;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @Column(columnDefinition = "TEXT")
+    private String notes;
+
+    @Column(nullable = false)
+    private Long appliedThroughProductId;
+
+    @Column(nullable = false)
+    private Integer adjustedProducts;
+
+    @Column(nullable = false)
+    private Long unitsGained;
+
+    @Column(nullable = false)
+    private Long unitsLost;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by")
+    private User createdBy;
+
+    @Column(nullable = false)
+    private LocalDateTime openedAt;
+
+    private LocalDateTime lastCountAt;
+
+    private LocalDateTime closedAt;
+
+    public enum Status {
+        OPEN, CLOSING, CLOSED, CANCELLED
+    }
+}
@@ -0,0 +1,26 @@
+package com.retailshop.exception;
+
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * A failure answered by the node that owns a warehouse which has no local exception type, such as a concurrent
+ * modification or a failed validation. Carries the owner's status and response data so the caller answers the same.
+ */
+public class RemoteShardException extends RuntimeException {
+    private final HttpStatusCode status;
+    private final Object data;
+
+    public RemoteShardException(HttpStatusCode status, String message, Object data) {
+        super(message);
+        this.status = status;
+        this.data = data;
+    }
+
+    public HttpStatusCode getStatus() {
+        return status;
+    }
+
+    public Object getData() {
+        return data;
+    }
+}
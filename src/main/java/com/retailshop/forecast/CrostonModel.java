@@ -0,0 +1,43 @@
+package com.retailshop.forecast;
+
+import java.util.Arrays;
+
+/**
+ * Croston's method for intermittent demand: smooths the size of non-zero sales and the interval
+ * between them separately, and forecasts their ratio as the daily rate.
+ */
+public final class CrostonModel implements ForecastModel {
+
+    private final double alpha;
+
+    public CrostonModel(double alpha) {
+        this.alpha = ForecastMethod.checkSmoothing("alpha", alpha);
+    }
+
+    @Override
+    public void fit(double[] series, ForecastWorkspace workspace) {
+        workspace.checkSeries(series);
+        double[] fitted = workspace.fitted;
+
+        double size = Double.NaN;
+        double interval = Double.NaN;
+        int daysSinceDemand = 1;
+        for (int t = 0; t < series.length; t++) {
+            fitted[t] = size / interval;
+            if (series[t] > 0) {
+                if (Double.isNaN(size)) {
+                    size = series[t];
+                    interval = daysSinceDemand;
+                } else {
+                    size += alpha * (series[t] - size);
+                    interval += alpha * (daysSinceDemand - interval);
+                }
+                daysSinceDemand = 1;
+            } else {
+                daysSinceDemand++;
+            }
+        }
+
+        Arrays.fill(workspace.forecast, Double.isNaN(size) ? 0 : size / interval);
+    }
+}
@@ -0,0 +1,27 @@
+package com.retailshop.forecast;
+
+import java.util.Arrays;
+
+public final class ExponentialSmoothingModel implements ForecastModel {
+
+    private final double alpha;
+
+    public ExponentialSmoothingModel(double alpha) {
+        this.alpha = ForecastMethod.checkSmoothing("alpha", alpha);
+    }
+
+    @Override
+    public void fit(double[] series, ForecastWorkspace workspace) {
+        workspace.checkSeries(series);
+        double[] fitted = workspace.fitted;
+
+        double level = series[0];
+        fitted[0] = Double.NaN;
+        for (int t = 1; t < series.length; t++) {
+            fitted[t] = level;
+            level += alpha * (series[t] - level);
+        }
+
+        Arrays.fill(workspace.forecast, level);
+    }
+}
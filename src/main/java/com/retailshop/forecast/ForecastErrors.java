@@ -0,0 +1,34 @@
+package com.retailshop.forecast;
+
+/**
+ * In-sample one-step-ahead errors over the days where the model had a prediction. WAPE is used
+ * instead of MAPE because most SKUs have zero-sale days.
+ */
+public record ForecastErrors(int evaluatedDays, double meanAbsoluteError, double rootMeanSquaredError,
+                             double bias, double weightedAbsolutePercentageError) {
+
+    public static ForecastErrors evaluate(double[] series, double[] fitted) {
+        int count = 0;
+        double absolute = 0;
+        double squared = 0;
+        double signed = 0;
+        double actual = 0;
+        for (int t = 0; t < series.length; t++) {
+            if (Double.isNaN(fitted[t])) {
+                continue;
+            }
+            double error = fitted[t] - series[t];
+            count++;
+            absolute += Math.abs(error);
+            squared += error * error;
+            signed += error;
+            actual += series[t];
+        }
+
+        if (count == 0) {
+            return new ForecastErrors(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        return new ForecastErrors(count, absolute / count, Math.sqrt(squared / count), signed / count,
+                actual > 0 ? absolute / actual : Double.NaN);
+    }
+}
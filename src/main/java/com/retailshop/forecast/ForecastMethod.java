@@ -0,0 +1,26 @@
+package com.retailshop.forecast;
+
+import lombok.Getter;
+
+@Getter
+public enum ForecastMethod {
+    SMA("Simple Moving Average (28-day window)", new SimpleMovingAverageModel(28)),
+    SES("Simple Exponential Smoothing", new ExponentialSmoothingModel(0.3)),
+    HOLT_WINTERS("Holt-Winters Additive (weekly season)", new HoltWintersModel(0.3, 0.05, 0.2, 7)),
+    CROSTON("Croston Intermittent Demand", new CrostonModel(0.1));
+
+    private final String description;
+    private final ForecastModel model;
+
+    ForecastMethod(String description, ForecastModel model) {
+        this.description = description;
+        this.model = model;
+    }
+
+    static double checkSmoothing(String name, double value) {
+        if (!(value > 0 && value <= 1)) {
+            throw new IllegalStateException("Smoothing parameter " + name + " must be in (0, 1]");
+        }
+        return value;
+    }
+}
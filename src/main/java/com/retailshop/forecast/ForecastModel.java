@@ -0,0 +1,12 @@
+package com.retailshop.forecast;
+
+public interface ForecastModel {
+
+    /**
+     * Fits the model to a daily demand series, oldest day first. Writes the one-step-ahead in-sample
+     * prediction for each day into {@link ForecastWorkspace#fitted()} (NaN while the model has no
+     * estimate yet) and the following days into {@link ForecastWorkspace#forecast()}.
+     * Implementations keep their state in locals and the workspace, so fitting allocates nothing.
+     */
+    void fit(double[] series, ForecastWorkspace workspace);
+}
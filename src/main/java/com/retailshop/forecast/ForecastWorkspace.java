@@ -0,0 +1,37 @@
+package com.retailshop.forecast;
+
+/**
+ * Reusable buffers for fitting one series at a time. A batch job can keep one workspace per thread
+ * and fit the whole catalog through it.
+ */
+public final class ForecastWorkspace {
+
+    static final int MAX_SEASON_LENGTH = 366;
+
+    final double[] fitted;
+    final double[] forecast;
+    final double[] seasonal;
+
+    public ForecastWorkspace(int historyDays, int horizonDays) {
+        if (historyDays < 1 || horizonDays < 1) {
+            throw new IllegalStateException("Forecast history and horizon must each cover at least one day");
+        }
+        this.fitted = new double[historyDays];
+        this.forecast = new double[horizonDays];
+        this.seasonal = new double[MAX_SEASON_LENGTH];
+    }
+
+    public double[] fitted() {
+        return fitted;
+    }
+
+    public double[] forecast() {
+        return forecast;
+    }
+
+    void checkSeries(double[] series) {
+        if (series.length != fitted.length) {
+            throw new IllegalStateException("Series has " + series.length + " days but the workspace holds " + fitted.length);
+        }
+    }
+}
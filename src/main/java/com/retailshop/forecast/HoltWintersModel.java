@@ -0,0 +1,66 @@
+package com.retailshop.forecast;
+
+/**
+ * Additive Holt-Winters: level, trend and one seasonal index per position in the season. Needs two
+ * full seasons of history to initialise; shorter series are fitted with simple exponential smoothing.
+ */
+public final class HoltWintersModel implements ForecastModel {
+
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+    private final int period;
+    private final ExponentialSmoothingModel shortSeriesModel;
+
+    public HoltWintersModel(double alpha, double beta, double gamma, int period) {
+        if (period < 2 || period > ForecastWorkspace.MAX_SEASON_LENGTH) {
+            throw new IllegalStateException("Season length must be between 2 and " + ForecastWorkspace.MAX_SEASON_LENGTH + " days");
+        }
+        this.alpha = ForecastMethod.checkSmoothing("alpha", alpha);
+        this.beta = ForecastMethod.checkSmoothing("beta", beta);
+        this.gamma = ForecastMethod.checkSmoothing("gamma", gamma);
+        this.period = period;
+        this.shortSeriesModel = new ExponentialSmoothingModel(alpha);
+    }
+
+    @Override
+    public void fit(double[] series, ForecastWorkspace workspace) {
+        workspace.checkSeries(series);
+        int n = series.length;
+        if (n < 2 * period) {
+            shortSeriesModel.fit(series, workspace);
+            return;
+        }
+
+        double[] fitted = workspace.fitted;
+        double[] seasonal = workspace.seasonal;
+
+        double firstSeason = 0;
+        double secondSeason = 0;
+        for (int i = 0; i < period; i++) {
+            firstSeason += series[i];
+            secondSeason += series[period + i];
+        }
+        double level = firstSeason / period;
+        double trend = (secondSeason - firstSeason) / ((double) period * period);
+        for (int i = 0; i < period; i++) {
+            seasonal[i] = series[i] - level;
+            fitted[i] = Double.NaN;
+        }
+
+        for (int t = period; t < n; t++) {
+            int s = t % period;
+            fitted[t] = level + trend + seasonal[s];
+            double previousLevel = level;
+            level = alpha * (series[t] - seasonal[s]) + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+            seasonal[s] = gamma * (series[t] - level) + (1 - gamma) * seasonal[s];
+        }
+
+        // Demand cannot go negative even when the trend and a weak seasonal day pull below zero
+        double[] forecast = workspace.forecast;
+        for (int h = 0; h < forecast.length; h++) {
+            forecast[h] = Math.max(0, level + (h + 1) * trend + seasonal[(n + h) % period]);
+        }
+    }
+}
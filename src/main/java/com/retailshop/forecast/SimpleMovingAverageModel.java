@@ -0,0 +1,35 @@
+package com.retailshop.forecast;
+
+import java.util.Arrays;
+
+public final class SimpleMovingAverageModel implements ForecastModel {
+
+    private final int window;
+
+    public SimpleMovingAverageModel(int window) {
+        if (window < 1) {
+            throw new IllegalStateException("Moving average window must be at least one day");
+        }
+        this.window = window;
+    }
+
+    @Override
+    public void fit(double[] series, ForecastWorkspace workspace) {
+        workspace.checkSeries(series);
+        double[] fitted = workspace.fitted;
+        int n = series.length;
+
+        // Running sum over the trailing window, so each day costs one add and one subtract
+        double sum = 0;
+        for (int t = 0; t < n; t++) {
+            int count = Math.min(t, window);
+            fitted[t] = count == 0 ? Double.NaN : sum / count;
+            sum += series[t];
+            if (t >= window) {
+                sum -= series[t - window];
+            }
+        }
+
+        Arrays.fill(workspace.forecast, sum / Math.min(n, window));
+    }
+}
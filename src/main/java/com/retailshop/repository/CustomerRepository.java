@@ -1,11 +1,19 @@
 package com.retailshop.repository;
 
 import com.retailshop.entity.Customer;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
@@ -13,4 +21,13 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     List<Customer> findByIsActiveTrue();
     Boolean existsByCustomerCode(String customerCode);
     Optional<Customer> findByEmail(String email);
+
+    Slice<Customer> findByCustomerIdGreaterThanOrderByCustomerIdAsc(Long customerId, Pageable pageable);
+
+    @Query("SELECT c FROM Customer c ORDER BY c.customerId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Customer> streamAll();
 }
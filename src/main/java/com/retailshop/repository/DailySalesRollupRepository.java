@@ -0,0 +1,70 @@
+package com.retailshop.repository;
+
+import com.retailshop.entity.DailySalesRollup;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, DailySalesRollup.Key> {
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (product_id, warehouse_id, sale_date, quantity_sold, revenue) " +
+            "VALUES (:productId, :warehouseId, :saleDate, :quantity, :revenue) " +
+            "ON DUPLICATE KEY UPDATE quantity_sold = quantity_sold + :quantity, revenue = revenue + :revenue",
+            nativeQuery = true)
+    int addSale(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId,
+                @Param("saleDate") LocalDate saleDate, @Param("quantity") Integer quantity,
+                @Param("revenue") BigDecimal revenue);
+
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM DailySalesRollup r WHERE r.saleDate >= :from AND r.saleDate <= :to")
+    BigDecimal sumRevenueBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT r.saleDate, SUM(r.quantitySold) FROM DailySalesRollup r " +
+            "WHERE r.productId = :productId AND r.saleDate >= :from GROUP BY r.saleDate")
+    List<Object[]> findDailySalesSince(@Param("productId") Long productId, @Param("from") LocalDate from);
+
+    @Query("SELECT p.sku, p.productName, SUM(r.quantitySold) FROM DailySalesRollup r JOIN Product p ON p.productId = r.productId " +
+            "WHERE r.saleDate >= :from GROUP BY p.productId, p.sku, p.productName ORDER BY SUM(r.quantitySold) DESC")
+    List<Object[]> findTopSellingProducts(@Param("from") LocalDate from, Pageable pageable);
+
+    @Query("SELECT r.productId, r.saleDate, SUM(r.quantitySold) FROM DailySalesRollup r " +
+            "WHERE r.saleDate >= :from GROUP BY r.productId, r.saleDate")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamDailySalesSince(@Param("from") LocalDate from);
+
+    @Modifying
+    @Query(value = "DELETE FROM daily_sales_rollup WHERE sale_date >= :from AND sale_date < :to", nativeQuery = true)
+    int deleteBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Revenue per SALE row is its quantity at the order line's net unit price (after line discount, before tax)
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (product_id, warehouse_id, sale_date, quantity_sold, revenue) " +
+            "SELECT t.product_id, t.warehouse_id, DATE(t.transaction_date), SUM(-t.quantity_change), " +
+            "COALESCE(SUM(-t.quantity_change * li.net_amount / li.quantity), 0) " +
+            "FROM inventory_transactions t " +
+            "LEFT JOIN (SELECT so_id, product_id, SUM(quantity) AS quantity, " +
+            "SUM(unit_price * quantity * (100 - COALESCE(discount_percent, 0)) / 100) AS net_amount " +
+            "FROM sales_order_items GROUP BY so_id, product_id) li " +
+            "ON t.reference_type = 'SALES_ORDER' AND li.so_id = t.reference_id AND li.product_id = t.product_id " +
+            "WHERE t.transaction_type = 'SALE' AND t.transaction_date >= :from AND t.transaction_date < :to " +
+            "GROUP BY t.product_id, t.warehouse_id, DATE(t.transaction_date)",
+            nativeQuery = true)
+    int rebuildBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -1,26 +1,90 @@
 package com.retailshop.repository;
 
 import com.retailshop.entity.Inventory;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"product", "warehouse"})
+    List<Inventory> findAll();
+
     Optional<Inventory> findByProduct_ProductIdAndWarehouse_WarehouseId(Long productId, Long warehouseId);
+    Boolean existsByProduct_ProductIdAndWarehouse_WarehouseId(Long productId, Long warehouseId);
+
+    @EntityGraph(attributePaths = {"product", "warehouse"})
     List<Inventory> findByProduct_ProductId(Long productId);
+
+    @EntityGraph(attributePaths = {"product", "warehouse"})
     List<Inventory> findByWarehouse_WarehouseId(Long warehouseId);
 
+    @EntityGraph(attributePaths = {"product", "warehouse"})
     @Query("SELECT i FROM Inventory i WHERE i.quantityOnHand <= i.product.reorderPoint")
     List<Inventory> findLowStockItems();
 
+    @EntityGraph(attributePaths = {"product", "warehouse"})
     @Query("SELECT i FROM Inventory i WHERE i.quantityOnHand = 0")
     List<Inventory> findOutOfStockItems();
 
     @Query("SELECT SUM(i.quantityOnHand) FROM Inventory i WHERE i.product.productId = :productId")
     Integer getTotalStockByProduct(@Param("productId") Long productId);
+
+    @Query("SELECT i.product.productId, SUM(i.quantityOnHand) FROM Inventory i GROUP BY i.product.productId")
+    List<Object[]> sumOnHandByProduct();
+
+    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.quantityOnHand <= i.product.reorderPoint")
+    long countLowStockItems();
+
+    @Query("SELECT COUNT(i) FROM Inventory i WHERE i.quantityOnHand = 0")
+    long countOutOfStockItems();
+
+    @Query("SELECT COALESCE(SUM(i.quantityOnHand * i.product.costPrice), 0) FROM Inventory i")
+    BigDecimal getTotalInventoryValue();
+
+    @Query("SELECT i.inventoryId, i.product.productId, i.warehouse.warehouseId, i.quantityOnHand, i.quantityReserved " +
+            "FROM Inventory i WHERE i.inventoryId > :afterId ORDER BY i.inventoryId")
+    List<Object[]> findStockLevelsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT i.product.productId, i.quantityOnHand - i.quantityReserved FROM Inventory i " +
+            "WHERE i.warehouse.warehouseId = :warehouseId AND i.product.productId IN :productIds")
+    List<Object[]> findAvailableQuantities(@Param("warehouseId") Long warehouseId, @Param("productIds") Collection<Long> productIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity_reserved = quantity_reserved + :quantity, version = version + 1, updated_at = NOW() " +
+            "WHERE product_id = :productId AND warehouse_id = :warehouseId AND quantity_on_hand - quantity_reserved >= :quantity",
+            nativeQuery = true)
+    int reserveIfAvailable(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId, @Param("quantity") Integer quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity_reserved = quantity_reserved - :quantity, version = version + 1, updated_at = NOW() " +
+            "WHERE product_id = :productId AND warehouse_id = :warehouseId AND quantity_reserved >= :quantity",
+            nativeQuery = true)
+    int releaseIfReserved(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId, @Param("quantity") Integer quantity);
+
+    @EntityGraph(attributePaths = {"product", "warehouse"})
+    Slice<Inventory> findByInventoryIdGreaterThanOrderByInventoryIdAsc(Long inventoryId, Pageable pageable);
+
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product JOIN FETCH i.warehouse ORDER BY i.inventoryId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Inventory> streamAll();
 }
@@ -18,4 +18,7 @@ public interface InventoryTransactionRepository extends JpaRepository<InventoryT
 
     @Query("SELECT it FROM InventoryTransaction it WHERE it.product.productId = :productId AND it.warehouse.warehouseId = :warehouseId ORDER BY it.transactionDate DESC")
     List<InventoryTransaction> findTransactionHistory(@Param("productId") Long productId, @Param("warehouseId") Long warehouseId);
+
+    @Query("SELECT it.transactionType, COUNT(it), COALESCE(SUM(it.quantityChange), 0) FROM InventoryTransaction it WHERE it.transactionDate >= :since GROUP BY it.transactionType")
+    List<Object[]> summarizeTransactionsSince(@Param("since") LocalDateTime since);
 }
@@ -1,24 +1,91 @@
 package com.retailshop.repository;
 
 import com.retailshop.entity.Product;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"category"})
+    List<Product> findAll();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "product-lookup")
+    })
     Optional<Product> findBySku(String sku);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "product-lookup")
+    })
     Optional<Product> findByBarcode(String barcode);
+
+    @EntityGraph(attributePaths = {"category"})
     List<Product> findByIsActiveTrue();
+
+    @EntityGraph(attributePaths = {"category"})
     List<Product> findByCategory_CategoryId(Long categoryId);
 
-    @Query("SELECT p FROM Product p WHERE LOWER(p.productName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Product> searchProducts(@Param("keyword") String keyword);
+    @EntityGraph(attributePaths = {"category"})
+    @Query("SELECT p FROM Product p WHERE LOWER(p.productName) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.sku) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+            "ORDER BY p.productId LIMIT :limit OFFSET :offset")
+    List<Product> searchProducts(@Param("keyword") String keyword, @Param("offset") int offset, @Param("limit") int limit);
+
+    @Query("SELECT p FROM Product p WHERE p.category.categoryId = :categoryId AND p.productId <> :productId " +
+            "AND p.isActive = true AND p.sellingPrice BETWEEN :minPrice AND :maxPrice " +
+            "ORDER BY ABS(p.sellingPrice - :price), p.productId")
+    List<Product> findSimilarInPriceBand(@Param("categoryId") Long categoryId, @Param("productId") Long productId,
+                                         @Param("price") BigDecimal price, @Param("minPrice") BigDecimal minPrice,
+                                         @Param("maxPrice") BigDecimal maxPrice, Pageable pageable);
+
+    @Query("SELECT p.sku FROM Product p WHERE p.sku IN :skus")
+    List<String> findExistingSkus(@Param("skus") Collection<String> skus);
+
+    @Query("SELECT p.barcode, p.sku FROM Product p WHERE p.barcode IN :barcodes")
+    List<Object[]> findSkusByBarcodes(@Param("barcodes") Collection<String> barcodes);
+
+    @Query("SELECT p.productId FROM Product p WHERE p.productId IN :productIds")
+    List<Long> findExistingIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT p.barcode, p.productId FROM Product p WHERE p.barcode IN :barcodes")
+    List<Object[]> findIdsByBarcodes(@Param("barcodes") Collection<String> barcodes);
+
+    @Query("SELECT p.productId, p.sku, p.productName, p.reorderPoint FROM Product p")
+    List<Object[]> findReorderAttributes();
+
+    @Query("SELECT p.productId, p.reorderPoint FROM Product p WHERE p.productId IN :productIds")
+    List<Object[]> findReorderPoints(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT p.productId, c.categoryId, c.categoryName, p.costPrice FROM Product p LEFT JOIN p.category c")
+    List<Object[]> findValuationAttributes();
 
     Boolean existsBySku(String sku);
     Boolean existsByBarcode(String barcode);
+
+    @EntityGraph(attributePaths = {"category"})
+    Slice<Product> findByProductIdGreaterThanOrderByProductIdAsc(Long productId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category ORDER BY p.productId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Product> streamAll();
 }
@@ -1,23 +1,54 @@
 package com.retailshop.repository;
 
 import com.retailshop.entity.PurchaseOrder;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"supplier", "warehouse", "createdBy", "approvedBy"})
+    List<PurchaseOrder> findAll();
+
     Optional<PurchaseOrder> findByPoNumber(String poNumber);
+
+    @EntityGraph(attributePaths = {"supplier", "warehouse", "createdBy", "approvedBy"})
     List<PurchaseOrder> findBySupplier_SupplierId(Long supplierId);
+
+    @EntityGraph(attributePaths = {"supplier", "warehouse", "createdBy", "approvedBy"})
     List<PurchaseOrder> findByStatus(PurchaseOrder.OrderStatus status);
+
     List<PurchaseOrder> findByOrderDateBetween(LocalDate startDate, LocalDate endDate);
 
+    @EntityGraph(attributePaths = {"supplier", "warehouse", "createdBy", "approvedBy"})
     @Query("SELECT po FROM PurchaseOrder po WHERE po.status = 'SUBMITTED' OR po.status = 'APPROVED'")
     List<PurchaseOrder> findPendingOrders();
 
+    @Query("SELECT COUNT(po) FROM PurchaseOrder po WHERE po.status = 'SUBMITTED' OR po.status = 'APPROVED'")
+    long countPendingOrders();
+
     Boolean existsByPoNumber(String poNumber);
+
+    @EntityGraph(attributePaths = {"supplier", "warehouse", "createdBy", "approvedBy"})
+    Slice<PurchaseOrder> findByPoIdGreaterThanOrderByPoIdAsc(Long poId, Pageable pageable);
+
+    @Query("SELECT po FROM PurchaseOrder po JOIN FETCH po.supplier JOIN FETCH po.warehouse LEFT JOIN FETCH po.createdBy LEFT JOIN FETCH po.approvedBy ORDER BY po.poId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<PurchaseOrder> streamAll();
 }
@@ -1,13 +1,36 @@
 package com.retailshop.repository;
 
 import com.retailshop.entity.SalesOrderItem;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface SalesOrderItemRepository extends JpaRepository<SalesOrderItem, Long> {
     List<SalesOrderItem> findBySalesOrder_SoId(Long soId);
     List<SalesOrderItem> findByProduct_ProductId(Long productId);
+
+    @Query(value = "SELECT i.product_id, COUNT(DISTINCT i.so_id) FROM sales_order_items i " +
+            "JOIN sales_orders o ON o.so_id = i.so_id WHERE o.status IN ('SHIPPED', 'DELIVERED') " +
+            "GROUP BY i.product_id",
+            nativeQuery = true)
+    List<Object[]> countShippedOrdersByProduct();
+
+    @Query(value = "SELECT a.product_id, b.product_id, COUNT(DISTINCT a.so_id) FROM sales_order_items a " +
+            "JOIN sales_order_items b ON b.so_id = a.so_id AND b.product_id <> a.product_id " +
+            "JOIN sales_orders o ON o.so_id = a.so_id WHERE o.status IN ('SHIPPED', 'DELIVERED') " +
+            "GROUP BY a.product_id, b.product_id",
+            nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamShippedCoPurchaseCounts();
 }
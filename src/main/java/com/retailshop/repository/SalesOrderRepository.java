@@ -1,24 +1,59 @@
 package com.retailshop.repository;
 
 import com.retailshop.entity.SalesOrder;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"customer", "warehouse", "createdBy"})
+    List<SalesOrder> findAll();
+
     Optional<SalesOrder> findBySoNumber(String soNumber);
+
+    @EntityGraph(attributePaths = {"customer", "warehouse", "createdBy"})
     List<SalesOrder> findByCustomer_CustomerId(Long customerId);
+
+    @EntityGraph(attributePaths = {"customer", "warehouse", "createdBy"})
     List<SalesOrder> findByStatus(SalesOrder.OrderStatus status);
+
     List<SalesOrder> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     List<SalesOrder> findByPaymentStatus(SalesOrder.PaymentStatus paymentStatus);
 
+    @EntityGraph(attributePaths = {"customer", "warehouse", "createdBy"})
     @Query("SELECT so FROM SalesOrder so WHERE so.status = 'PENDING' OR so.status = 'CONFIRMED'")
     List<SalesOrder> findPendingOrders();
 
+    @Query("SELECT COUNT(so) FROM SalesOrder so WHERE so.status = 'PENDING' OR so.status = 'CONFIRMED'")
+    long countPendingOrders();
+
     Boolean existsBySoNumber(String soNumber);
+
+    @Query("SELECT so.warehouse.warehouseId FROM SalesOrder so WHERE so.soId = :soId")
+    Optional<Long> findWarehouseIdBySoId(@Param("soId") Long soId);
+
+    @EntityGraph(attributePaths = {"customer", "warehouse", "createdBy"})
+    Slice<SalesOrder> findBySoIdGreaterThanOrderBySoIdAsc(Long soId, Pageable pageable);
+
+    @Query("SELECT so FROM SalesOrder so JOIN FETCH so.customer JOIN FETCH so.warehouse LEFT JOIN FETCH so.createdBy ORDER BY so.soId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<SalesOrder> streamAll();
 }
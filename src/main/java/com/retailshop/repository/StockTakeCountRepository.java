@@ -0,0 +1,44 @@
+package com.retailshop.repository;
+
+import com.retailshop.entity.StockTakeCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StockTakeCountRepository extends JpaRepository<StockTakeCount, StockTakeCount.Key> {
+    @Query(value = "SELECT COUNT(DISTINCT product_id) FROM stock_take_counts WHERE session_id = :sessionId",
+            nativeQuery = true)
+    long countProducts(@Param("sessionId") Long sessionId);
+
+    /**
+     * Counted totals per product next to the current inventory row, in product id order. Returns
+     * [productId, countedQuantity, binLocation, inventoryId, quantityOnHand, version]; the inventory
+     * columns are null when the product has no row in the warehouse yet.
+     */
+    @Query(value = "SELECT c.product_id, SUM(c.counted_quantity), MAX(NULLIF(c.bin_location, '')), " +
+            "i.inventory_id, i.quantity_on_hand, i.version " +
+            "FROM stock_take_counts c " +
+            "LEFT JOIN inventory i ON i.product_id = c.product_id AND i.warehouse_id = :warehouseId " +
+            "WHERE c.session_id = :sessionId AND c.product_id > :afterProductId " +
+            "GROUP BY c.product_id, i.inventory_id, i.quantity_on_hand, i.version " +
+            "ORDER BY c.product_id LIMIT :limit", nativeQuery = true)
+    List<Object[]> findVarianceChunk(@Param("sessionId") Long sessionId, @Param("warehouseId") Long warehouseId,
+                                     @Param("afterProductId") Long afterProductId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "INSERT INTO stock_take_counts (session_id, product_id, bin_location, counted_quantity, counted_at) " +
+            "SELECT :sessionId, i.product_id, '', 0, NOW() FROM inventory i " +
+            "WHERE i.warehouse_id = :warehouseId AND NOT EXISTS (" +
+            "SELECT 1 FROM stock_take_counts c WHERE c.session_id = :sessionId AND c.product_id = i.product_id)",
+            nativeQuery = true)
+    int countUncountedAsZero(@Param("sessionId") Long sessionId, @Param("warehouseId") Long warehouseId);
+
+    @Modifying
+    @Query(value = "DELETE FROM stock_take_counts WHERE session_id = :sessionId", nativeQuery = true)
+    int deleteBySessionId(@Param("sessionId") Long sessionId);
+}
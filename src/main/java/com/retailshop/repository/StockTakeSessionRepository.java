@@ -0,0 +1,59 @@
+package com.retailshop.repository;
+
+import com.retailshop.entity.StockTakeSession;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockTakeSessionRepository extends JpaRepository<StockTakeSession, Long> {
+    @EntityGraph(attributePaths = {"warehouse", "createdBy"})
+    Optional<StockTakeSession> findWithDetailsBySessionId(Long sessionId);
+
+    @EntityGraph(attributePaths = {"warehouse", "createdBy"})
+    List<StockTakeSession> findByWarehouse_WarehouseIdOrderBySessionIdDesc(Long warehouseId);
+
+    boolean existsByWarehouse_WarehouseIdAndStatusIn(Long warehouseId, Collection<StockTakeSession.Status> statuses);
+
+    // Also locks the session row, so a concurrent close waits for counts that are being written
+    @Modifying
+    @Query(value = "UPDATE stock_take_sessions SET last_count_at = NOW() WHERE session_id = :sessionId AND status = 'OPEN'",
+            nativeQuery = true)
+    int touchIfOpen(@Param("sessionId") Long sessionId);
+
+    @Modifying
+    @Query(value = "UPDATE stock_take_sessions SET status = 'CLOSING' WHERE session_id = :sessionId AND status = 'OPEN'",
+            nativeQuery = true)
+    int startClosing(@Param("sessionId") Long sessionId);
+
+    @Modifying
+    @Query(value = "UPDATE stock_take_sessions SET applied_through_product_id = :throughProductId " +
+            "WHERE session_id = :sessionId AND status = 'CLOSING' AND applied_through_product_id = :afterProductId",
+            nativeQuery = true)
+    int claimChunk(@Param("sessionId") Long sessionId, @Param("afterProductId") Long afterProductId,
+                   @Param("throughProductId") Long throughProductId);
+
+    @Modifying
+    @Query(value = "UPDATE stock_take_sessions SET adjusted_products = adjusted_products + :adjusted, " +
+            "units_gained = units_gained + :gained, units_lost = units_lost + :lost WHERE session_id = :sessionId",
+            nativeQuery = true)
+    int addTotals(@Param("sessionId") Long sessionId, @Param("adjusted") int adjusted,
+                  @Param("gained") long gained, @Param("lost") long lost);
+
+    @Modifying
+    @Query(value = "UPDATE stock_take_sessions SET status = 'CLOSED', closed_at = NOW() " +
+            "WHERE session_id = :sessionId AND status = 'CLOSING'", nativeQuery = true)
+    int finishClosing(@Param("sessionId") Long sessionId);
+
+    @Modifying
+    @Query(value = "UPDATE stock_take_sessions SET status = 'CANCELLED', closed_at = NOW() " +
+            "WHERE session_id = :sessionId AND status = 'OPEN'", nativeQuery = true)
+    int cancelIfOpen(@Param("sessionId") Long sessionId);
+}
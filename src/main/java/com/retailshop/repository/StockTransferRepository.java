@@ -0,0 +1,28 @@
+package com.retailshop.repository;
+
+import com.retailshop.entity.StockTransfer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockTransferRepository extends JpaRepository<StockTransfer, Long> {
+    // Commit and abort both leave PREPARED through this guard, so exactly one of them can win
+    @Modifying
+    @Query(value = "UPDATE stock_transfers SET status = :status, updated_at = NOW() " +
+            "WHERE transfer_id = :transferId AND status = 'PREPARED'", nativeQuery = true)
+    int resolvePrepared(@Param("transferId") Long transferId, @Param("status") String status);
+
+    @Query("SELECT t.status FROM StockTransfer t WHERE t.transferId = :transferId")
+    Optional<StockTransfer.Status> findStatus(@Param("transferId") Long transferId);
+
+    @Query("SELECT t FROM StockTransfer t WHERE t.status = 'PREPARED' AND t.updatedAt < :before ORDER BY t.transferId")
+    List<StockTransfer> findStalePrepared(@Param("before") LocalDateTime before, Pageable pageable);
+}
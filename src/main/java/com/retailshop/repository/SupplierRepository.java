@@ -1,15 +1,32 @@
 package com.retailshop.repository;
 
 import com.retailshop.entity.Supplier;
+import com.retailshop.util.Constants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     Optional<Supplier> findBySupplierCode(String supplierCode);
     List<Supplier> findByIsActiveTrue();
     Boolean existsBySupplierCode(String supplierCode);
+
+    Slice<Supplier> findBySupplierIdGreaterThanOrderBySupplierIdAsc(Long supplierId, Pageable pageable);
+
+    @Query("SELECT s FROM Supplier s ORDER BY s.supplierId")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Supplier> streamAll();
 }
@@ -2,12 +2,18 @@ package com.retailshop.service;
 
 import com.retailshop.dto.response.ProductResponse;
 import com.retailshop.entity.Product;
+import com.retailshop.exception.ResourceNotFoundException;
 import com.retailshop.repository.ProductRepository;
+import com.retailshop.util.PageUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,54 +21,71 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AISearchService implements IAISearchService {
 
+    private static final int RECOMMENDATION_LIMIT = 5;
+    private static final BigDecimal PRICE_BAND_LOWER = new BigDecimal("0.5");
+    private static final BigDecimal PRICE_BAND_UPPER = new BigDecimal("1.5");
+
     private final ProductRepository productRepository;
     private final IProductService productService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductRecommendationIndex productRecommendationIndex;
 
     @Override
-    public List<ProductResponse> intelligentProductSearch(String query) {
+    public List<ProductResponse> intelligentProductSearch(String query, int offset, int size) {
         log.info("Performing intelligent search for query: {}", query);
 
-        // Enhanced search logic without AI
-        String[] keywords = query.toLowerCase().split("\\s+");
-
-        List<Product> products = productRepository.searchProducts(query);
+        int start = Math.max(0, offset);
+        int pageSize = PageUtil.pageSize(size);
 
-        return products.stream()
-                .map(p -> productService.getProductById(p.getProductId()))
-                .collect(Collectors.toList());
+        // Any query word may match; products matching more of them rank first
+        return productSearchIndex.isReady()
+                ? productSearchIndex.search(query, start, pageSize, false)
+                : productService.findProductsMatching(query, start, pageSize);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public String getProductRecommendations(Long productId) {
         log.info("Getting recommendations for product: {}", productId);
 
         Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
 
-        // Simple recommendation logic
         StringBuilder recommendations = new StringBuilder();
         recommendations.append("Recommended products based on: ").append(product.getProductName()).append("\n\n");
 
-        // Find products in the same category
+        // Precomputed co-purchase neighbours first, topped up by category and price for new or rarely sold products
+        List<Product> boughtTogether = findAllInOrder(
+                productRecommendationIndex.getRelated(productId, RECOMMENDATION_LIMIT));
+        if (!boughtTogether.isEmpty()) {
+            recommendations.append("Frequently bought together:\n");
+            appendProducts(recommendations, boughtTogether);
+        }
+
+        int remaining = RECOMMENDATION_LIMIT - boughtTogether.size();
+        if (remaining == 0) {
+            return recommendations.toString();
+        }
+
         if (product.getCategory() != null) {
-            List<Product> relatedProducts = productRepository
-                    .findByCategory_CategoryId(product.getCategory().getCategoryId())
+            BigDecimal price = product.getSellingPrice();
+            Set<Long> listed = boughtTogether.stream().map(Product::getProductId).collect(Collectors.toSet());
+            List<Product> similarProducts = productRepository.findSimilarInPriceBand(
+                            product.getCategory().getCategoryId(), productId, price,
+                            price.multiply(PRICE_BAND_LOWER), price.multiply(PRICE_BAND_UPPER),
+                            PageRequest.of(0, RECOMMENDATION_LIMIT))
                     .stream()
-                    .filter(p -> !p.getProductId().equals(productId))
-                    .limit(5)
+                    .filter(p -> !listed.contains(p.getProductId()))
+                    .limit(remaining)
                     .collect(Collectors.toList());
 
-            if (!relatedProducts.isEmpty()) {
-                recommendations.append("Related products in ").append(product.getCategory().getCategoryName()).append(":\n");
-                for (Product p : relatedProducts) {
-                    recommendations.append("- ").append(p.getProductName())
-                            .append(" (SKU: ").append(p.getSku())
-                            .append(", Price: $").append(p.getSellingPrice()).append(")\n");
-                }
-            } else {
+            if (!similarProducts.isEmpty()) {
+                recommendations.append("Similar products in ").append(product.getCategory().getCategoryName()).append(":\n");
+                appendProducts(recommendations, similarProducts);
+            } else if (boughtTogether.isEmpty()) {
                 recommendations.append("No related products found in this category.\n");
             }
-        } else {
+        } else if (boughtTogether.isEmpty()) {
             recommendations.append("This product has no category assigned. Unable to provide recommendations.\n");
         }
 
@@ -106,4 +129,22 @@ public class AISearchService implements IAISearchService {
                 question
         );
     }
+
+    private List<Product> findAllInOrder(long[] productIds) {
+        if (productIds.length == 0) {
+            return List.of();
+        }
+        List<Long> ids = Arrays.stream(productIds).boxed().toList();
+        Map<Long, Product> products = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        return ids.stream().map(products::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private void appendProducts(StringBuilder recommendations, List<Product> products) {
+        for (Product p : products) {
+            recommendations.append("- ").append(p.getProductName())
+                    .append(" (SKU: ").append(p.getSku())
+                    .append(", Price: $").append(p.getSellingPrice()).append(")\n");
+        }
+    }
 }
@@ -14,6 +14,7 @@ import java.util.List;
 public class CategoryService implements ICategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ProductSearchIndex productSearchIndex;
 
     @Override
     @Transactional
@@ -29,6 +30,7 @@ public class CategoryService implements ICategoryService {
         existingCategory.setDescription(category.getDescription());
         existingCategory.setParentCategory(category.getParentCategory());
         existingCategory.setIsActive(category.getIsActive());
+        productSearchIndex.renameCategoryAfterCommit(categoryId, category.getCategoryName());
         return categoryRepository.save(existingCategory);
     }
 
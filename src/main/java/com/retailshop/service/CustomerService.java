@@ -1,20 +1,27 @@
 package com.retailshop.service;
 
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.entity.Customer;
 import com.retailshop.exception.DuplicateResourceException;
 import com.retailshop.exception.ResourceNotFoundException;
 import com.retailshop.repository.CustomerRepository;
+import com.retailshop.util.PageUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class CustomerService implements ICustomerService {
 
     private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
 
     @Override
     @Transactional
@@ -57,6 +64,22 @@ public class CustomerService implements ICustomerService {
         return customerRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Customer> getCustomersPage(Long afterId, int size) {
+        return CursorPage.of(
+                customerRepository.findByCustomerIdGreaterThanOrderByCustomerIdAsc(PageUtil.cursor(afterId), PageUtil.firstPage(size)),
+                Customer::getCustomerId, Function.identity());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamCustomers(Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = customerRepository.streamAll()) {
+            PageUtil.forEachDetached(customers, entityManager, consumer);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Customer> getActiveCustomers() {
@@ -0,0 +1,115 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.DashboardResponse;
+import com.retailshop.repository.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardService implements IDashboardService {
+
+    private static final int TOP_SELLING_LIMIT = 5;
+
+    private final ProductRepository productRepository;
+    private final CustomerRepository customerRepository;
+    private final SupplierRepository supplierRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryTransactionRepository transactionRepository;
+    private final PurchaseOrderRepository purchaseOrderRepository;
+    private final SalesOrderRepository salesOrderRepository;
+    private final DailySalesRollupRepository rollupRepository;
+
+    @Value("${dashboard.snapshot-ttl-ms:5000}")
+    private long snapshotTtlMs;
+
+    // A lock rather than synchronized: the rebuild runs JDBC calls, which would pin a virtual thread's carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    @Override
+    public DashboardResponse getDashboard() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired()) {
+            return current.data();
+        }
+
+        // Only one caller rebuilds an expired snapshot; the others wait and reuse its result
+        rebuildLock.lock();
+        try {
+            current = snapshot;
+            if (current == null || current.isExpired()) {
+                current = new Snapshot(buildDashboard(), System.currentTimeMillis() + snapshotTtlMs);
+                snapshot = current;
+            }
+            return current.data();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private DashboardResponse buildDashboard() {
+        log.debug("Rebuilding dashboard snapshot");
+
+        LocalDate today = LocalDate.now();
+        LocalDate startOfMonth = today.withDayOfMonth(1);
+
+        return DashboardResponse.builder()
+                .totalProducts(productRepository.count())
+                .totalCustomers(customerRepository.count())
+                .totalSuppliers(supplierRepository.count())
+                .lowStockItems(inventoryRepository.countLowStockItems())
+                .outOfStockItems(inventoryRepository.countOutOfStockItems())
+                .pendingPurchaseOrders(purchaseOrderRepository.countPendingOrders())
+                .pendingSalesOrders(salesOrderRepository.countPendingOrders())
+                .totalSalesToday(rollupRepository.sumRevenueBetween(today, today))
+                .totalSalesThisMonth(rollupRepository.sumRevenueBetween(startOfMonth, today))
+                .totalInventoryValue(inventoryRepository.getTotalInventoryValue())
+                .recentTransactions(getRecentTransactions(today.atStartOfDay()))
+                .topSellingProducts(getTopSellingProducts(startOfMonth))
+                .build();
+    }
+
+    private Map<String, Object> getRecentTransactions(LocalDateTime since) {
+        Map<String, Object> recentTransactions = new LinkedHashMap<>();
+        for (Object[] row : transactionRepository.summarizeTransactionsSince(since)) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", row[1]);
+            summary.put("quantityChange", row[2]);
+            recentTransactions.put(row[0].toString(), summary);
+        }
+        return recentTransactions;
+    }
+
+    private Map<String, Object> getTopSellingProducts(LocalDate since) {
+        Map<String, Object> topSellingProducts = new LinkedHashMap<>();
+        for (Object[] row : rollupRepository.findTopSellingProducts(since, PageRequest.of(0, TOP_SELLING_LIMIT))) {
+            Map<String, Object> product = new LinkedHashMap<>();
+            product.put("productName", row[1]);
+            product.put("quantitySold", row[2]);
+            topSellingProducts.put((String) row[0], product);
+        }
+        return topSellingProducts;
+    }
+
+    private record Snapshot(DashboardResponse data, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
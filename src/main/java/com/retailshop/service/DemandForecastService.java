@@ -1,105 +1,193 @@
 package com.retailshop.service;
 
-import com.retailshop.entity.InventoryTransaction;
+import com.retailshop.dto.response.DemandForecastResponse;
+import com.retailshop.dto.response.ReorderRecommendation;
+import com.retailshop.dto.response.ReorderRecommendationsResponse;
 import com.retailshop.entity.Product;
-import com.retailshop.repository.InventoryTransactionRepository;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.retailshop.forecast.ForecastErrors;
+import com.retailshop.forecast.ForecastMethod;
+import com.retailshop.forecast.ForecastWorkspace;
+import com.retailshop.repository.DailySalesRollupRepository;
+import com.retailshop.repository.InventoryRepository;
 import com.retailshop.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DemandForecastService implements IDemandForecastService {
 
-    private final InventoryTransactionRepository transactionRepository;
+    private static final int RECOMMENDATION_HISTORY_DAYS = 30;
+    private static final int FORECAST_HORIZON_DAYS = 30;
+    private static final int MAX_HISTORY_DAYS = 3 * 365;
+    private static final double SAFETY_FACTOR = 1.2;
+
+    private final DailySalesRollupRepository rollupRepository;
     private final ProductRepository productRepository;
+    private final InventoryRepository inventoryRepository;
 
     @Override
-    public Map<String, Object> forecastDemand(Long productId, Integer days) {
-        log.info("Forecasting demand for product: {} over {} days", productId, days);
+    @Transactional(readOnly = true)
+    public DemandForecastResponse forecastDemand(Long productId, Integer days, ForecastMethod method) {
+        log.info("Forecasting demand for product: {} over {} days with {}", productId, days, method);
+
+        if (days == null || days < 1 || days > MAX_HISTORY_DAYS) {
+            throw new IllegalStateException("Forecast history must cover between 1 and " + MAX_HISTORY_DAYS + " days");
+        }
 
         Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        LocalDateTime startDate = LocalDateTime.now().minusDays(days);
-        List<InventoryTransaction> transactions = transactionRepository
-                .findByProduct_ProductId(productId).stream()
-                .filter(t -> t.getTransactionType() == InventoryTransaction.TransactionType.SALE)
-                .filter(t -> t.getTransactionDate().isAfter(startDate))
-                .collect(Collectors.toList());
-
-        // Simple moving average calculation
-        double totalSales = transactions.stream()
-                .mapToInt(t -> Math.abs(t.getQuantityChange()))
-                .sum();
-
-        double averageDailySales = days > 0 ? totalSales / days : 0;
-        double forecastedDemand = averageDailySales * 30; // Next 30 days
-        double recommendedReorder = Math.ceil(forecastedDemand * 1.2); // 20% buffer
-
-        Map<String, Object> forecast = new HashMap<>();
-        forecast.put("productId", productId);
-        forecast.put("productName", product.getProductName());
-        forecast.put("historicalPeriodDays", days);
-        forecast.put("totalSalesInPeriod", (int) totalSales);
-        forecast.put("averageDailySales", Math.round(averageDailySales * 100.0) / 100.0);
-        forecast.put("forecastedDemand30Days", Math.round(forecastedDemand * 100.0) / 100.0);
-        forecast.put("recommendedReorderQuantity", (int) recommendedReorder);
-        forecast.put("currentReorderPoint", product.getReorderPoint());
-        forecast.put("forecastMethod", "Simple Moving Average");
-        forecast.put("generatedAt", LocalDateTime.now());
-
-        return forecast;
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+
+        double[] series = loadDailySeries(productId, LocalDate.now().minusDays(days - 1), days);
+        ForecastWorkspace workspace = new ForecastWorkspace(days, FORECAST_HORIZON_DAYS);
+        method.getModel().fit(series, workspace);
+        ForecastErrors errors = ForecastErrors.evaluate(series, workspace.fitted());
+
+        double totalSales = sum(series);
+        double forecastedDemand = sum(workspace.forecast());
+        List<Double> dailyForecast = new ArrayList<>(FORECAST_HORIZON_DAYS);
+        for (double value : workspace.forecast()) {
+            dailyForecast.add(round2(value));
+        }
+
+        return DemandForecastResponse.builder()
+                .productId(productId)
+                .productName(product.getProductName())
+                .forecastMethod(method)
+                .forecastMethodDescription(method.getDescription())
+                .historicalPeriodDays(days)
+                .totalSalesInPeriod((int) totalSales)
+                .averageDailySales(round2(totalSales / days))
+                .forecastedDemand30Days(round2(forecastedDemand))
+                .dailyForecast(dailyForecast)
+                .recommendedReorderQuantity((int) Math.ceil(forecastedDemand * SAFETY_FACTOR))
+                .currentReorderPoint(product.getReorderPoint())
+                .evaluatedDays(errors.evaluatedDays())
+                .meanAbsoluteError(roundOrNull(errors.meanAbsoluteError()))
+                .rootMeanSquaredError(roundOrNull(errors.rootMeanSquaredError()))
+                .bias(roundOrNull(errors.bias()))
+                .weightedAbsolutePercentageError(roundOrNull(errors.weightedAbsolutePercentageError()))
+                .generatedAt(LocalDateTime.now())
+                .build();
     }
 
     @Override
-    public Map<String, Object> getReorderRecommendations() {
+    @Transactional(readOnly = true)
+    public ReorderRecommendationsResponse getReorderRecommendations() {
         log.info("Generating reorder recommendations");
+        long started = System.currentTimeMillis();
+
+        LocalDate firstDay = LocalDate.now().minusDays(RECOMMENDATION_HISTORY_DAYS - 1);
+        Map<Long, double[]> dailySales = loadDailySales(firstDay, RECOMMENDATION_HISTORY_DAYS);
+        Map<Long, Integer> stock = loadStockOnHand();
+
+        // Only products that sold in the window can get a recommendation; forecasting is CPU bound, so fan out
+        List<ReorderRecommendation> recommendations = productRepository.findReorderAttributes().parallelStream()
+                .filter(row -> dailySales.containsKey((Long) row[0]))
+                .map(row -> recommend(row, dailySales.get((Long) row[0]), stock.getOrDefault((Long) row[0], 0)))
+                .filter(recommendation -> recommendation.getAverageDailySales() > 0)
+                .sorted(Comparator.comparing(ReorderRecommendation::getForecastedDemand30Days).reversed())
+                .toList();
+
+        log.info("Generated {} reorder recommendations in {} ms", recommendations.size(),
+                System.currentTimeMillis() - started);
+
+        return ReorderRecommendationsResponse.builder()
+                .recommendations(recommendations)
+                .totalProducts(recommendations.size())
+                .historicalPeriodDays(RECOMMENDATION_HISTORY_DAYS)
+                .forecastMethod("Simple Moving Average (30-day history)")
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
 
-        List<Product> products = productRepository.findAll();
-        List<Map<String, Object>> recommendations = new ArrayList<>();
+    @Override
+    @Transactional(readOnly = true)
+    public Double predictNextMonthSales(Long productId) {
+        log.info("Predicting next month sales for product: {}", productId);
 
-        for (Product product : products) {
-            try {
-                Map<String, Object> forecast = forecastDemand(product.getProductId(), 30);
-                double avgDailySales = (Double) forecast.get("averageDailySales");
+        return forecastDemand(productId, 60, ForecastMethod.SMA).getForecastedDemand30Days();
+    }
 
-                // Add to recommendations if there's significant demand
-                if (avgDailySales > 0) {
-                    recommendations.add(forecast);
-                }
-            } catch (Exception e) {
-                log.error("Error forecasting for product: {}", product.getProductId(), e);
+    private double[] loadDailySeries(Long productId, LocalDate firstDay, int days) {
+        double[] series = new double[days];
+        for (Object[] row : rollupRepository.findDailySalesSince(productId, firstDay)) {
+            int dayIndex = (int) ChronoUnit.DAYS.between(firstDay, (LocalDate) row[0]);
+            if (dayIndex >= 0 && dayIndex < days) {
+                series[dayIndex] = ((Number) row[1]).doubleValue();
             }
         }
+        return series;
+    }
 
-        // Sort by forecasted demand (highest first)
-        recommendations.sort((a, b) -> {
-            Double demandA = (Double) a.get("forecastedDemand30Days");
-            Double demandB = (Double) b.get("forecastedDemand30Days");
-            return demandB.compareTo(demandA);
-        });
+    // One pass over the rollup date range, folded into a per-product daily series
+    private Map<Long, double[]> loadDailySales(LocalDate firstDay, int days) {
+        Map<Long, double[]> dailySales = new HashMap<>();
+        try (Stream<Object[]> rows = rollupRepository.streamDailySalesSince(firstDay)) {
+            rows.forEach(row -> {
+                int dayIndex = (int) ChronoUnit.DAYS.between(firstDay, (LocalDate) row[1]);
+                if (dayIndex >= 0 && dayIndex < days) {
+                    dailySales.computeIfAbsent((Long) row[0], id -> new double[days])[dayIndex] +=
+                            ((Number) row[2]).doubleValue();
+                }
+            });
+        }
+        return dailySales;
+    }
 
-        Map<String, Object> result = new HashMap<>();
-        result.put("recommendations", recommendations);
-        result.put("totalProducts", recommendations.size());
-        result.put("generatedAt", LocalDateTime.now());
-        result.put("forecastMethod", "Simple Moving Average (30-day history)");
+    private Map<Long, Integer> loadStockOnHand() {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Object[] row : inventoryRepository.sumOnHandByProduct()) {
+            stock.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return stock;
+    }
 
-        return result;
+    private ReorderRecommendation recommend(Object[] product, double[] series, int currentStock) {
+        double totalSales = 0;
+        for (double sales : series) {
+            totalSales += sales;
+        }
+        double averageDailySales = totalSales / series.length;
+        double forecastedDemand = averageDailySales * FORECAST_HORIZON_DAYS;
+
+        return ReorderRecommendation.builder()
+                .productId((Long) product[0])
+                .sku((String) product[1])
+                .productName((String) product[2])
+                .currentReorderPoint((Integer) product[3])
+                .totalSalesInPeriod((int) totalSales)
+                .averageDailySales(round2(averageDailySales))
+                .forecastedDemand30Days(round2(forecastedDemand))
+                .recommendedReorderQuantity((int) Math.ceil(forecastedDemand * SAFETY_FACTOR))
+                .currentStock(currentStock)
+                .daysOfCover(averageDailySales > 0 ? round2(currentStock / averageDailySales) : null)
+                .build();
     }
 
-    @Override
-    public Double predictNextMonthSales(Long productId) {
-        log.info("Predicting next month sales for product: {}", productId);
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static Double roundOrNull(double value) {
+        return Double.isNaN(value) ? null : round2(value);
+    }
 
-        Map<String, Object> forecast = forecastDemand(productId, 60);
-        return (Double) forecast.get("forecastedDemand30Days");
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
     }
 }
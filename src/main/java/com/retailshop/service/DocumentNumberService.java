@@ -0,0 +1,79 @@
+package com.retailshop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentNumberService implements IDocumentNumberService {
+
+    private static final String RESERVE_BLOCK_SQL =
+            "INSERT INTO document_sequences (sequence_key, next_value) VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE next_value = next_value + ?";
+    private static final String READ_BLOCK_SQL =
+            "SELECT next_value FROM document_sequences WHERE sequence_key = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${document-number.block-size:20}")
+    private int blockSize;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Override
+    public String nextNumber(String prefix) {
+        String sequenceKey = prefix + "-" + LocalDate.now().getYear();
+        long value = blocks.computeIfAbsent(sequenceKey, Block::new).next();
+        return sequenceKey + "-" + String.format("%06d", value);
+    }
+
+    // Runs in its own transaction so the sequence row is locked only for the allocation itself,
+    // and a rolled back order never hands its block out again
+    private long reserveBlock(String sequenceKey) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long limit = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(RESERVE_BLOCK_SQL, sequenceKey, 1L + blockSize, blockSize);
+            return jdbcTemplate.queryForObject(READ_BLOCK_SQL, Long.class, sequenceKey);
+        });
+        log.debug("Reserved document numbers {} to {} for {}", limit - blockSize, limit - 1, sequenceKey);
+        return limit;
+    }
+
+    private final class Block {
+        private final String sequenceKey;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long next;
+        private long limit;
+
+        private Block(String sequenceKey) {
+            this.sequenceKey = sequenceKey;
+        }
+
+        private long next() {
+            lock.lock();
+            try {
+                if (next >= limit) {
+                    limit = reserveBlock(sequenceKey);
+                    next = limit - blockSize;
+                }
+                return next++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
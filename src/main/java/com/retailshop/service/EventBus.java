@@ -0,0 +1,588 @@
+package com.retailshop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process, partitioned event bus fed from event_outbox. A relay thread reads committed rows in event id order
+ * and appends them to per-partition buffers; one worker per partition hands them to every subscriber in batches
+ * and records how far each subscriber got in event_consumer_offsets, so delivery is at least once and ordered
+ * within a partition. A subscriber that is behind the buffer, after a restart for instance, catches up from the
+ * table.
+ *
+ * <p>Auto-increment ids become visible out of order when transactions commit out of order. The relay stops at
+ * a gap in the ids until the row after it is older than {@code gap-timeout-ms} by the database clock; by then
+ * the missing id almost always belongs to a rolled back transaction. Skipped ids are still looked up again for
+ * {@code gap-recheck-ms}, and a row that turns up late is handed to the subscribers on its own, outside the
+ * offset order, since their offsets have already moved past it. Offsets are kept per node, since every node runs
+ * its own bus over the shared table.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventBus {
+
+    private static final String START_SQL =
+            "SELECT COALESCE(MAX(event_id), 0) FROM event_outbox WHERE created_at < NOW(6) - INTERVAL ? MICROSECOND";
+    private static final String RELAY_SQL =
+            "SELECT event_id, event_type, aggregate_id, partition_no, payload, created_at, " +
+                    "created_at < NOW(6) - INTERVAL ? MICROSECOND AS settled " +
+                    "FROM event_outbox WHERE event_id > ? ORDER BY event_id LIMIT ?";
+    private static final String CATCH_UP_SQL =
+            "SELECT event_id, event_type, aggregate_id, partition_no, payload, created_at FROM event_outbox " +
+                    "WHERE partition_no = ? AND event_id > ? AND event_id <= ? ORDER BY event_id LIMIT ?";
+    private static final String COUNT_BEHIND_SQL =
+            "SELECT COUNT(*) FROM event_outbox WHERE partition_no = ? AND event_id > ? AND event_id <= ?";
+    private static final String SELECT_OFFSET_SQL =
+            "SELECT event_id FROM event_consumer_offsets WHERE consumer_name = ? AND node_id = ? AND partition_no = ?";
+    private static final String UPSERT_OFFSET_SQL =
+            "INSERT INTO event_consumer_offsets (consumer_name, node_id, partition_no, event_id, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE event_id = VALUES(event_id), updated_at = VALUES(updated_at)";
+    private static final String MIN_OFFSET_SQL =
+            "SELECT MIN(event_id) FROM event_consumer_offsets WHERE partition_no = ? AND updated_at >= ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM event_outbox WHERE partition_no = ? AND created_at < ? AND event_id <= ? LIMIT 10000";
+    private static final String LATE_EVENTS_SQL =
+            "SELECT event_id, event_type, aggregate_id, partition_no, payload, created_at FROM event_outbox " +
+                    "WHERE event_id IN (%s)";
+    private static final long MAX_RETRY_BACKOFF_MS = 60_000;
+    private static final long LAG_COUNT_CACHE_MS = 5_000;
+    private static final int MAX_SKIPPED_IDS = 10_000;
+    private static final int RECHECK_BATCH_SIZE = 500;
+
+    private static final RowMapper<OutboxEvent> EVENT_MAPPER = (rs, rowNum) -> new OutboxEvent(
+            rs.getLong(1),
+            OutboxEvent.Type.parse(rs.getString(2)),
+            rs.getLong(3),
+            rs.getInt(4),
+            rs.getString(5),
+            rs.getTimestamp(6).toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${inventory.events.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inventory.events.partitions:4}")
+    private int partitionCount;
+
+    @Value("${inventory.events.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${inventory.events.relay-batch-size:500}")
+    private int relayBatchSize;
+
+    @Value("${inventory.events.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${inventory.events.gap-timeout-ms:5000}")
+    private long gapTimeoutMs;
+
+    @Value("${inventory.events.gap-recheck-ms:600000}")
+    private long gapRecheckMs;
+
+    @Value("${inventory.events.offset-commit-interval-ms:1000}")
+    private long offsetCommitIntervalMs;
+
+    @Value("${inventory.events.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${inventory.events.retention-hours:168}")
+    private long retentionHours;
+
+    @Value("${inventory.shard.node-id:node-1}")
+    private String nodeId;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private Partition[] partitions;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile Thread relay;
+    private volatile boolean running;
+    private volatile long relayedThrough;
+    // Ids the relay went past without a row, with the time it did; touched only by the relay thread
+    private final TreeMap<Long, Long> skippedIds = new TreeMap<>();
+    private long skippedCheckedAt;
+    private Counter eventsRelayed;
+    private Counter gapsSkipped;
+    private Counter lateEvents;
+
+    /**
+     * Registers a consumer that receives batches of at most {@code batchSize} events of the given types. The
+     * name identifies its offsets, so it must stay the same across restarts. Handlers must tolerate seeing an
+     * event again: a batch whose offset was not yet committed is delivered again after a restart, and a batch
+     * that throws is retried with backoff until it succeeds.
+     */
+    public void subscribe(String name, Set<OutboxEvent.Type> types, int batchSize, EventConsumer consumer) {
+        if (subscriptions.stream().anyMatch(subscription -> subscription.name.equals(name))) {
+            throw new IllegalStateException("Event consumer " + name + " is already subscribed");
+        }
+        subscriptions.add(new Subscription(name, EnumSet.copyOf(types), batchSize, consumer, partitionCount));
+    }
+
+    public int partitionOf(OutboxEvent.Type type, long aggregateId) {
+        return Math.floorMod(31L * type.aggregate().name().hashCode() + aggregateId, partitionCount);
+    }
+
+    public void wakeRelay() {
+        Thread current = relay;
+        if (current != null) {
+            LockSupport.unpark(current);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        eventsRelayed = Counter.builder("inventory.events.relayed").register(meterRegistry);
+        gapsSkipped = Counter.builder("inventory.events.gaps.skipped").register(meterRegistry);
+        lateEvents = Counter.builder("inventory.events.gaps.late").register(meterRegistry);
+        Gauge.builder("inventory.events.relay.position", this, bus -> bus.relayedThrough)
+                .description("Highest event id handed to the partition buffers")
+                .register(meterRegistry);
+
+        long start = jdbcTemplate.queryForObject(START_SQL, Long.class, gapMicros());
+        relayedThrough = start;
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, start);
+        }
+
+        running = true;
+        relay = new Thread(this::runRelay, "event-bus-relay");
+        relay.setDaemon(true);
+        threads.add(relay);
+        for (Partition partition : partitions) {
+            Thread worker = new Thread(() -> runWorker(partition), "event-bus-partition-" + partition.number);
+            worker.setDaemon(true);
+            threads.add(worker);
+        }
+        threads.forEach(Thread::start);
+        log.info("Event bus started at event {} with {} partitions", start, partitionCount);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        for (Subscription subscription : subscriptions) {
+            for (Cursor cursor : subscription.cursors) {
+                if (cursor != null) {
+                    commitOffset(subscription, cursor, true);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.events.purge-interval-ms:3600000}",
+            initialDelayString = "${inventory.events.purge-interval-ms:3600000}")
+    public void purge() {
+        if (!running) {
+            return;
+        }
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        long purged = 0;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            // Offsets nobody has committed within the retention period belong to consumers that are gone
+            Long slowest = jdbcTemplate.queryForObject(MIN_OFFSET_SQL, Long.class, partition, cutoff);
+            long bound = slowest != null ? slowest : Long.MAX_VALUE;
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PURGE_SQL, partition, cutoff, bound);
+                purged += deleted;
+            } while (deleted > 0);
+        }
+        if (purged > 0) {
+            log.info("Purged {} delivered outbox events older than {} hours", purged, retentionHours);
+        }
+    }
+
+    private void runRelay() {
+        while (running) {
+            try {
+                recheckSkipped();
+                int relayed = relayOnce();
+                if (relayed < relayBatchSize) {
+                    // Caught up: sleep until a local commit wakes us or other nodes had time to write; stopped at
+                    // a gap: look again shortly, the missing row is usually a moment from committing
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(relayed < 0 ? 50 : pollIntervalMs));
+                }
+            } catch (RuntimeException e) {
+                log.error("Event bus relay failed after event {}", relayedThrough, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMs));
+            }
+        }
+    }
+
+    // Returns the number of rows relayed, or -1 when it stopped at a gap that has not settled yet
+    private int relayOnce() {
+        long through = relayedThrough;
+        List<RelayedRow> rows = jdbcTemplate.query(RELAY_SQL,
+                (rs, rowNum) -> new RelayedRow(EVENT_MAPPER.mapRow(rs, rowNum), rs.getBoolean(7)),
+                gapMicros(), through, relayBatchSize);
+
+        Map<Integer, List<OutboxEvent>> byPartition = new HashMap<>();
+        int relayed = 0;
+        boolean blocked = false;
+        for (RelayedRow row : rows) {
+            OutboxEvent event = row.event();
+            if (event.eventId() != through + 1) {
+                if (!row.settled()) {
+                    blocked = true;
+                    break;
+                }
+                skip(through + 1, event.eventId() - 1);
+            }
+            through = event.eventId();
+            relayed++;
+            if (event.type() != null) {
+                byPartition.computeIfAbsent(Math.floorMod(event.partition(), partitionCount), p -> new ArrayList<>())
+                        .add(event);
+            }
+        }
+        byPartition.forEach((partition, events) -> partitions[partition].append(events, bufferSize));
+        relayedThrough = through;
+        eventsRelayed.increment(relayed);
+        return blocked ? -1 : relayed;
+    }
+
+    private void skip(long fromId, long toId) {
+        long now = System.currentTimeMillis();
+        long tracked = Math.min(toId, fromId + Math.max(0, MAX_SKIPPED_IDS - skippedIds.size()) - 1);
+        for (long id = fromId; id <= tracked; id++) {
+            skippedIds.put(id, now);
+        }
+        if (tracked < toId) {
+            log.warn("Event bus is tracking {} skipped ids, not rechecking ids {} to {}", skippedIds.size(),
+                    Math.max(fromId, tracked + 1), toId);
+        }
+        gapsSkipped.increment(toId - fromId + 1);
+    }
+
+    // Looks for rows that committed after the relay went past their id, at most once per poll interval
+    private void recheckSkipped() {
+        long now = System.currentTimeMillis();
+        if (skippedIds.isEmpty() || now - skippedCheckedAt < pollIntervalMs) {
+            return;
+        }
+        skippedCheckedAt = now;
+        skippedIds.values().removeIf(skippedAt -> now - skippedAt > gapRecheckMs);
+
+        List<Long> ids = new ArrayList<>(skippedIds.keySet());
+        Map<Integer, List<OutboxEvent>> byPartition = new HashMap<>();
+        int found = 0;
+        for (int from = 0; from < ids.size(); from += RECHECK_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + RECHECK_BATCH_SIZE));
+            String sql = String.format(LATE_EVENTS_SQL, String.join(",", Collections.nCopies(chunk.size(), "?")));
+            for (OutboxEvent event : jdbcTemplate.query(sql, EVENT_MAPPER, chunk.toArray())) {
+                skippedIds.remove(event.eventId());
+                found++;
+                if (event.type() != null) {
+                    byPartition.computeIfAbsent(Math.floorMod(event.partition(), partitionCount), p -> new ArrayList<>())
+                            .add(event);
+                }
+            }
+        }
+        if (found > 0) {
+            byPartition.forEach((partition, events) -> partitions[partition].appendLate(events));
+            lateEvents.increment(found);
+            log.warn("Event bus found {} outbox events that committed after the relay skipped their ids", found);
+        }
+    }
+
+    private void runWorker(Partition partition) {
+        while (running) {
+            try {
+                List<OutboxEvent> late = partition.takeLate();
+                if (!late.isEmpty()) {
+                    for (Subscription subscription : subscriptions) {
+                        cursor(subscription, partition).late.addAll(matching(subscription, late));
+                    }
+                }
+                long version = partition.version();
+                boolean progressed = false;
+                for (Subscription subscription : subscriptions) {
+                    progressed |= deliver(subscription, partition);
+                }
+                if (!progressed) {
+                    for (Subscription subscription : subscriptions) {
+                        Cursor cursor = subscription.cursors[partition.number];
+                        if (cursor != null) {
+                            commitOffset(subscription, cursor, true);
+                        }
+                    }
+                    partition.awaitAppend(version, pollIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Event bus partition {} worker failed", partition.number, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMs));
+            }
+        }
+    }
+
+    private boolean deliver(Subscription subscription, Partition partition) {
+        Cursor cursor = cursor(subscription, partition);
+        long now = System.currentTimeMillis();
+        if (now < cursor.retryAt) {
+            return false;
+        }
+
+        // Late events are behind the offset, so they are not redelivered after a restart
+        if (!cursor.late.isEmpty()) {
+            if (!handle(subscription, cursor, List.copyOf(cursor.late), now)) {
+                return false;
+            }
+            cursor.late.clear();
+            return true;
+        }
+
+        List<OutboxEvent> batch = partition.after(cursor.offset, subscription.batchSize);
+        if (batch == null) {
+            batch = jdbcTemplate.query(CATCH_UP_SQL, EVENT_MAPPER, partition.number, cursor.offset, relayedThrough,
+                    subscription.batchSize);
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        if (!handle(subscription, cursor, matching(subscription, batch), now)) {
+            return false;
+        }
+        cursor.offset = batch.get(batch.size() - 1).eventId();
+        commitOffset(subscription, cursor, false);
+        return true;
+    }
+
+    private boolean handle(Subscription subscription, Cursor cursor, List<OutboxEvent> events, long now) {
+        if (!events.isEmpty()) {
+            try {
+                subscription.handleTimer.record(() -> subscription.consumer.handle(events));
+            } catch (RuntimeException e) {
+                subscription.failures.increment();
+                cursor.retryAt = now + Math.min(MAX_RETRY_BACKOFF_MS, retryBackoffMs << Math.min(cursor.attempts++, 16));
+                log.warn("Event consumer {} failed on partition {} after event {}, retrying", subscription.name,
+                        cursor.partition, cursor.offset, e);
+                return false;
+            }
+            subscription.delivered.increment(events.size());
+        }
+        cursor.attempts = 0;
+        return true;
+    }
+
+    private static List<OutboxEvent> matching(Subscription subscription, List<OutboxEvent> events) {
+        return events.stream()
+                .filter(event -> event.type() != null && subscription.types.contains(event.type()))
+                .toList();
+    }
+
+    private Cursor cursor(Subscription subscription, Partition partition) {
+        Cursor cursor = subscription.cursors[partition.number];
+        return cursor != null ? cursor : openCursor(subscription, partition);
+    }
+
+    private Cursor openCursor(Subscription subscription, Partition partition) {
+        List<Long> stored = jdbcTemplate.queryForList(SELECT_OFFSET_SQL, Long.class, subscription.name, nodeId,
+                partition.number);
+        Cursor cursor = new Cursor(partition.number, stored.isEmpty() ? 0L : stored.get(0));
+        subscription.cursors[partition.number] = cursor;
+        Gauge.builder("inventory.events.consumer.lag", cursor, c -> lag(c, partition))
+                .description("Events relayed to the partition that the consumer has not handled yet")
+                .tags("consumer", subscription.name, "partition", String.valueOf(partition.number))
+                .register(meterRegistry);
+        return cursor;
+    }
+
+    private void commitOffset(Subscription subscription, Cursor cursor, boolean force) {
+        long now = System.currentTimeMillis();
+        if (cursor.offset == cursor.committedOffset || (!force && now - cursor.committedAt < offsetCommitIntervalMs)) {
+            return;
+        }
+        jdbcTemplate.update(UPSERT_OFFSET_SQL, subscription.name, nodeId, cursor.partition, cursor.offset,
+                Timestamp.valueOf(LocalDateTime.now()));
+        cursor.committedOffset = cursor.offset;
+        cursor.committedAt = now;
+    }
+
+    private double lag(Cursor cursor, Partition partition) {
+        long offset = cursor.offset;
+        int buffered = partition.countAfter(offset);
+        if (buffered >= 0) {
+            return buffered;
+        }
+        // Behind the buffer: count in the table, cached briefly since scrapes can be frequent
+        long now = System.currentTimeMillis();
+        if (now - cursor.lagCountedAt > LAG_COUNT_CACHE_MS) {
+            Long behind = jdbcTemplate.queryForObject(COUNT_BEHIND_SQL, Long.class, partition.number, offset, relayedThrough);
+            cursor.lagCount = behind != null ? behind : 0L;
+            cursor.lagCountedAt = now;
+        }
+        return cursor.lagCount;
+    }
+
+    private long gapMicros() {
+        return TimeUnit.MILLISECONDS.toMicros(gapTimeoutMs);
+    }
+
+    @FunctionalInterface
+    public interface EventConsumer {
+        void handle(List<OutboxEvent> events);
+    }
+
+    private final class Subscription {
+        private final String name;
+        private final Set<OutboxEvent.Type> types;
+        private final int batchSize;
+        private final EventConsumer consumer;
+        private final Cursor[] cursors;
+        private final Counter delivered;
+        private final Counter failures;
+        private final Timer handleTimer;
+
+        private Subscription(String name, Set<OutboxEvent.Type> types, int batchSize, EventConsumer consumer,
+                             int partitions) {
+            this.name = name;
+            this.types = types;
+            this.batchSize = batchSize;
+            this.consumer = consumer;
+            this.cursors = new Cursor[partitions];
+            this.delivered = Counter.builder("inventory.events.delivered").tag("consumer", name).register(meterRegistry);
+            this.failures = Counter.builder("inventory.events.consumer.failures").tag("consumer", name).register(meterRegistry);
+            this.handleTimer = Timer.builder("inventory.events.consumer.handle").tag("consumer", name).register(meterRegistry);
+        }
+    }
+
+    // Written only by the partition's worker; the gauge reads the offset from the metrics thread
+    private static final class Cursor {
+        private final int partition;
+        private volatile long offset;
+        private long committedOffset;
+        private long committedAt;
+        private final List<OutboxEvent> late = new ArrayList<>();
+        private long retryAt;
+        private int attempts;
+        private volatile long lagCount;
+        private volatile long lagCountedAt;
+
+        private Cursor(int partition, long offset) {
+            this.partition = partition;
+            this.offset = offset;
+            this.committedOffset = offset;
+        }
+    }
+
+    /**
+     * The newest relayed events of one partition. Events up to {@code floor} have been dropped from the buffer,
+     * or were relayed before this node started, and are read from the table instead.
+     */
+    static final class Partition {
+        private final int number;
+        private final ArrayDeque<OutboxEvent> buffer = new ArrayDeque<>();
+        private final List<OutboxEvent> late = new ArrayList<>();
+        private long floor;
+        private long version;
+
+        Partition(int number, long floor) {
+            this.number = number;
+            this.floor = floor;
+        }
+
+        synchronized void append(List<OutboxEvent> events, int capacity) {
+            buffer.addAll(events);
+            while (buffer.size() > capacity) {
+                floor = buffer.removeFirst().eventId();
+            }
+            version++;
+            notifyAll();
+        }
+
+        /**
+         * Up to {@code max} events after the offset, or null when the buffer no longer reaches back that far.
+         */
+        synchronized List<OutboxEvent> after(long offset, int max) {
+            if (offset < floor) {
+                return null;
+            }
+            int pending = countAfter(offset);
+            List<OutboxEvent> events = new ArrayList<>(Math.min(pending, max));
+            Iterator<OutboxEvent> iterator = buffer.iterator();
+            for (int skip = buffer.size() - pending; skip > 0; skip--) {
+                iterator.next();
+            }
+            while (iterator.hasNext() && events.size() < max) {
+                events.add(iterator.next());
+            }
+            return events;
+        }
+
+        // Consumers are usually close to the head, so count from the newest end
+        synchronized int countAfter(long offset) {
+            if (offset < floor) {
+                return -1;
+            }
+            int count = 0;
+            Iterator<OutboxEvent> iterator = buffer.descendingIterator();
+            while (iterator.hasNext() && iterator.next().eventId() > offset) {
+                count++;
+            }
+            return count;
+        }
+
+        synchronized void appendLate(List<OutboxEvent> events) {
+            late.addAll(events);
+            version++;
+            notifyAll();
+        }
+
+        synchronized List<OutboxEvent> takeLate() {
+            if (late.isEmpty()) {
+                return List.of();
+            }
+            List<OutboxEvent> taken = List.copyOf(late);
+            late.clear();
+            return taken;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized void awaitAppend(long seenVersion, long timeoutMs) throws InterruptedException {
+            if (version == seenVersion) {
+                wait(timeoutMs);
+            }
+        }
+    }
+
+    private record RelayedRow(OutboxEvent event, boolean settled) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactional outbox for domain events. Events published during a business transaction are inserted into
+ * event_outbox just before it commits, so they exist exactly when the change does, and the {@link EventBus}
+ * relay is woken once it has. Outside a transaction the row is written straight away.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventOutbox {
+
+    // Other before-commit work that inserts rows runs ahead of the outbox, so the id is taken as late as possible
+    static final int SYNCHRONIZATION_ORDER = Ordered.LOWEST_PRECEDENCE;
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO event_outbox (event_type, aggregate_id, partition_no, payload, created_at) VALUES (?, ?, ?, ?, NOW(6))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final EventBus eventBus;
+
+    @Value("${inventory.events.enabled:true}")
+    private boolean enabled;
+
+    public void publish(OutboxEvent.Type type, long aggregateId, Object payload) {
+        if (!enabled) {
+            return;
+        }
+        Pending event = new Pending(type, aggregateId, eventBus.partitionOf(type, aggregateId), serialize(payload));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(event));
+            eventBus.wakeRelay();
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Pending> pending = (List<Pending>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new OutboxSynchronization(pending));
+        }
+        pending.add(event);
+    }
+
+    /**
+     * Publishes a {@link OutboxEvent.Type#STOCK_CHANGED} for a stock write; writers call it next to the journal
+     * entry of the change, or on their own for reservations, which are not journaled.
+     */
+    public void publishStockChanged(long productId, long warehouseId, int onHandDelta, int reservedDelta,
+                                    Integer onHandAfter) {
+        if (onHandDelta == 0 && reservedDelta == 0) {
+            return;
+        }
+        publish(OutboxEvent.Type.STOCK_CHANGED, productId,
+                new OutboxEvent.StockChanged(productId, warehouseId, onHandDelta, reservedDelta, onHandAfter));
+    }
+
+    private void insert(List<Pending> events) {
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.type().name());
+            ps.setLong(2, event.aggregateId());
+            ps.setInt(3, event.partition());
+            ps.setString(4, event.payload());
+        });
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + payload.getClass().getSimpleName() + " event", e);
+        }
+    }
+
+    private final class OutboxSynchronization implements TransactionSynchronization {
+        private final List<Pending> events;
+
+        private OutboxSynchronization(List<Pending> events) {
+            this.events = events;
+        }
+
+        @Override
+        public int getOrder() {
+            return SYNCHRONIZATION_ORDER;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(events);
+        }
+
+        @Override
+        public void afterCommit() {
+            eventBus.wakeRelay();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EventOutbox.this);
+        }
+    }
+
+    private record Pending(OutboxEvent.Type type, long aggregateId, int partition, String payload) {
+    }
+}
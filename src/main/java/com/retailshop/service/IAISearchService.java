@@ -1,10 +1,11 @@
 package com.retailshop.service;
 
 import com.retailshop.dto.response.ProductResponse;
+
 import java.util.List;
 
 public interface IAISearchService {
-    List<ProductResponse> intelligentProductSearch(String query);
+    List<ProductResponse> intelligentProductSearch(String query, int offset, int size);
     String getProductRecommendations(Long productId);
     String naturalLanguageQuery(String question);
 }
@@ -1,13 +1,17 @@
 package com.retailshop.service;
 
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.entity.Customer;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ICustomerService {
     Customer createCustomer(Customer customer);
     Customer updateCustomer(Long customerId, Customer customer);
     Customer getCustomerById(Long customerId);
     List<Customer> getAllCustomers();
+    CursorPage<Customer> getCustomersPage(Long afterId, int size);
+    void streamCustomers(Consumer<Customer> consumer);
     List<Customer> getActiveCustomers();
     void deleteCustomer(Long customerId);
 }
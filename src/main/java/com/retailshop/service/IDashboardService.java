@@ -0,0 +1,8 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.DashboardResponse;
+
+public interface IDashboardService {
+    DashboardResponse getDashboard();
+    void invalidate();
+}
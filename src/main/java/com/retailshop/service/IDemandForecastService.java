@@ -1,9 +1,11 @@
 package com.retailshop.service;
 
-import java.util.Map;
+import com.retailshop.dto.response.DemandForecastResponse;
+import com.retailshop.dto.response.ReorderRecommendationsResponse;
+import com.retailshop.forecast.ForecastMethod;
 
 public interface IDemandForecastService {
-    Map<String, Object> forecastDemand(Long productId, Integer days);
-    Map<String, Object> getReorderRecommendations();
+    DemandForecastResponse forecastDemand(Long productId, Integer days, ForecastMethod method);
+    ReorderRecommendationsResponse getReorderRecommendations();
     Double predictNextMonthSales(Long productId);
 }
@@ -0,0 +1,5 @@
+package com.retailshop.service;
+
+public interface IDocumentNumberService {
+    String nextNumber(String prefix);
+}
@@ -0,0 +1,16 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.InventoryDriftResponse;
+import com.retailshop.dto.response.InventoryProjectionResponse;
+import com.retailshop.dto.response.StockAtTimeResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface IInventoryHistoryService {
+    StockAtTimeResponse getStockAt(Long productId, Long warehouseId, LocalDateTime at);
+    List<StockAtTimeResponse> getWarehouseStockAt(Long warehouseId, LocalDateTime at);
+    List<InventoryDriftResponse> findDrift(Long warehouseId);
+    InventoryProjectionResponse projectEvents();
+    InventoryProjectionResponse rebuildProjection();
+}
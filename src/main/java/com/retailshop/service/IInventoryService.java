@@ -1,23 +1,33 @@
 package com.retailshop.service;
 
 import com.retailshop.dto.request.InventoryUpdateRequest;
+import com.retailshop.dto.request.SalesOrderItemRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.InventoryResponse;
 import com.retailshop.entity.Inventory;
+import com.retailshop.entity.Product;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface IInventoryService {
     InventoryResponse getInventory(Long productId, Long warehouseId);
     List<InventoryResponse> getInventoryByProduct(Long productId);
     List<InventoryResponse> getInventoryByWarehouse(Long warehouseId);
     List<InventoryResponse> getAllInventory();
+    CursorPage<InventoryResponse> getInventoryPage(Long afterId, int size);
+    void streamInventory(Consumer<InventoryResponse> consumer);
     List<InventoryResponse> getLowStockItems();
     List<InventoryResponse> getOutOfStockItems();
     InventoryResponse updateInventory(InventoryUpdateRequest request);
     InventoryResponse adjustInventory(Long productId, Long warehouseId, Integer quantity, String reason);
     void transferStock(Long productId, Long fromWarehouseId, Long toWarehouseId, Integer quantity);
     Integer getTotalStockByProduct(Long productId);
+    Integer getQuantityAvailable(Long productId, Long warehouseId);
     boolean checkStockAvailability(Long productId, Long warehouseId, Integer requiredQuantity);
     void reserveStock(Long productId, Long warehouseId, Integer quantity);
+    Map<Long, Product> reserveStock(Long warehouseId, List<SalesOrderItemRequest> items);
     void releaseReservedStock(Long productId, Long warehouseId, Integer quantity);
+    int reconcileStockLedger();
 }
@@ -0,0 +1,10 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.InventoryValuationResponse;
+
+import java.time.LocalDateTime;
+
+public interface IInventoryValuationService {
+    InventoryValuationResponse getValuation(LocalDateTime asOf, Long warehouseId);
+    long createCheckpoint(LocalDateTime cutoff);
+}
@@ -0,0 +1,15 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.request.ProductFileFormat;
+import com.retailshop.dto.response.ProductImportResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface IProductBulkService {
+    ProductImportResponse startImport(InputStream upload, ProductFileFormat format);
+    ProductImportResponse getImport(String jobId);
+    void writeImportErrors(String jobId, OutputStream out) throws IOException;
+    void exportProducts(ProductFileFormat format, OutputStream out) throws IOException;
+}
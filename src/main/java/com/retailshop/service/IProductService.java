@@ -1,10 +1,13 @@
 package com.retailshop.service;
 
 import com.retailshop.dto.request.ProductRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.dto.response.ProductScanResponse;
 import com.retailshop.entity.Product;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IProductService {
     ProductResponse createProduct(ProductRequest request);
@@ -12,9 +15,14 @@ public interface IProductService {
     ProductResponse getProductById(Long productId);
     Product getProductEntityById(Long productId);
     List<ProductResponse> getAllProducts();
+    CursorPage<ProductResponse> getProductsPage(Long afterId, int size);
+    void streamProducts(Consumer<ProductResponse> consumer);
     List<ProductResponse> getActiveProducts();
     List<ProductResponse> getProductsByCategory(Long categoryId);
-    List<ProductResponse> searchProducts(String keyword);
+    List<ProductResponse> searchProducts(String keyword, int limit);
+    List<ProductResponse> findProductsMatching(String keyword, int offset, int limit);
+    ProductScanResponse scanProduct(String code, Long warehouseId);
+    void rebuildProductIndexes();
     void deleteProduct(Long productId);
     void deactivateProduct(Long productId);
 }
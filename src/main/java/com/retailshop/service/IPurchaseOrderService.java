@@ -1,17 +1,21 @@
 package com.retailshop.service;
 
 import com.retailshop.dto.request.PurchaseOrderRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.PurchaseOrderResponse;
 import com.retailshop.entity.PurchaseOrder;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IPurchaseOrderService {
     PurchaseOrderResponse createPurchaseOrder(PurchaseOrderRequest request);
     PurchaseOrderResponse updatePurchaseOrder(Long poId, PurchaseOrderRequest request);
     PurchaseOrderResponse getPurchaseOrderById(Long poId);
     List<PurchaseOrderResponse> getAllPurchaseOrders();
+    CursorPage<PurchaseOrderResponse> getPurchaseOrdersPage(Long afterId, int size);
+    void streamPurchaseOrders(Consumer<PurchaseOrderResponse> consumer);
     List<PurchaseOrderResponse> getPurchaseOrdersBySupplier(Long supplierId);
     List<PurchaseOrderResponse> getPurchaseOrdersByStatus(PurchaseOrder.OrderStatus status);
     List<PurchaseOrderResponse> getPendingOrders();
@@ -1,16 +1,20 @@
 package com.retailshop.service;
 
 import com.retailshop.dto.request.SalesOrderRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.SalesOrderResponse;
 import com.retailshop.entity.SalesOrder;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ISalesOrderService {
     SalesOrderResponse createSalesOrder(SalesOrderRequest request);
     SalesOrderResponse updateSalesOrder(Long soId, SalesOrderRequest request);
     SalesOrderResponse getSalesOrderById(Long soId);
     List<SalesOrderResponse> getAllSalesOrders();
+    CursorPage<SalesOrderResponse> getSalesOrdersPage(Long afterId, int size);
+    void streamSalesOrders(Consumer<SalesOrderResponse> consumer);
     List<SalesOrderResponse> getSalesOrdersByCustomer(Long customerId);
     List<SalesOrderResponse> getSalesOrdersByStatus(SalesOrder.OrderStatus status);
     List<SalesOrderResponse> getPendingOrders();
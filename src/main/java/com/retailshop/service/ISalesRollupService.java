@@ -0,0 +1,7 @@
+package com.retailshop.service;
+
+import java.time.LocalDate;
+
+public interface ISalesRollupService {
+    int rebuild(LocalDate from, LocalDate to);
+}
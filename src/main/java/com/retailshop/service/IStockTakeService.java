@@ -0,0 +1,20 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.request.StockTakeCountRequest;
+import com.retailshop.dto.request.StockTakeSessionRequest;
+import com.retailshop.dto.response.StockTakeCountResponse;
+import com.retailshop.dto.response.StockTakeSessionResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public interface IStockTakeService {
+    StockTakeSessionResponse openSession(StockTakeSessionRequest request);
+    StockTakeSessionResponse getSession(Long sessionId);
+    List<StockTakeSessionResponse> getSessionsByWarehouse(Long warehouseId);
+    StockTakeCountResponse recordCounts(Long sessionId, List<StockTakeCountRequest> counts);
+    StockTakeCountResponse recordCounts(Long sessionId, InputStream ndjson) throws IOException;
+    StockTakeSessionResponse closeSession(Long sessionId, boolean zeroUncounted);
+    StockTakeSessionResponse cancelSession(Long sessionId);
+}
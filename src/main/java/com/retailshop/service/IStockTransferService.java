@@ -0,0 +1,7 @@
+package com.retailshop.service;
+
+public interface IStockTransferService {
+    Long prepareTransfer(Long productId, Long fromWarehouseId, Long toWarehouseId, Integer quantity);
+    void commitTransfer(Long transferId);
+    boolean abortTransfer(Long transferId);
+}
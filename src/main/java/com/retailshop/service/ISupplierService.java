@@ -1,13 +1,17 @@
 package com.retailshop.service;
 
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.entity.Supplier;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ISupplierService {
     Supplier createSupplier(Supplier supplier);
     Supplier updateSupplier(Long supplierId, Supplier supplier);
     Supplier getSupplierById(Long supplierId);
     List<Supplier> getAllSuppliers();
+    CursorPage<Supplier> getSuppliersPage(Long afterId, int size);
+    void streamSuppliers(Consumer<Supplier> consumer);
     List<Supplier> getActiveSuppliers();
     void deleteSupplier(Long supplierId);
 }
@@ -0,0 +1,325 @@
+package com.retailshop.service;
+
+import com.retailshop.util.PageUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Projects on-hand stock from inventory_transactions, which is the source of truth for it. Every
+ * (product, warehouse) has a projection head holding the running total, and a snapshot is written each time
+ * a key has seen another {@code snapshot-every} events. A snapshot through transaction id X holds the sum of all
+ * of the key's events up to X, so any point in time is answered by the latest snapshot before it plus the
+ * events after it.
+ *
+ * <p>Runs replay the events between the checkpoint and the newest settled event, split into product id
+ * ranges that replay in parallel. Events inserted within the settle window, by the database clock rather than
+ * their transaction date, are left for the next run, so journal writes still in flight cannot be skipped. Heads remember the last event they applied, which makes a run
+ * that failed halfway safe to repeat. A lease on the checkpoint row keeps nodes from projecting at once.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryEventStore {
+
+    private static final String CHECKPOINT = "inventory";
+    private static final String ACQUIRE_LEASE_SQL =
+            "UPDATE inventory_projection_checkpoint SET lease_owner = ?, lease_until = ? " +
+                    "WHERE name = ? AND (lease_until IS NULL OR lease_until < ? OR lease_owner = ?)";
+    private static final String RELEASE_LEASE_SQL =
+            "UPDATE inventory_projection_checkpoint SET lease_owner = NULL, lease_until = NULL WHERE name = ? AND lease_owner = ?";
+    private static final String ADVANCE_CHECKPOINT_SQL =
+            "UPDATE inventory_projection_checkpoint SET through_transaction_id = ?, updated_at = ? WHERE name = ? AND lease_owner = ?";
+    private static final String SELECT_EVENTS_SQL =
+            "SELECT product_id, warehouse_id, transaction_id, quantity_change, transaction_date FROM inventory_transactions " +
+                    "WHERE product_id BETWEEN ? AND ? AND transaction_id > ? AND transaction_id <= ? " +
+                    "ORDER BY product_id, warehouse_id, transaction_id";
+    private static final String SELECT_HEADS_SQL =
+            "SELECT product_id, warehouse_id, on_hand, event_count, events_since_snapshot, through_transaction_id, as_of " +
+                    "FROM inventory_projection WHERE product_id BETWEEN ? AND ?";
+    private static final String UPSERT_HEAD_SQL =
+            "INSERT INTO inventory_projection (product_id, warehouse_id, on_hand, event_count, events_since_snapshot, " +
+                    "through_transaction_id, as_of) VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                    "on_hand = VALUES(on_hand), event_count = VALUES(event_count), " +
+                    "events_since_snapshot = VALUES(events_since_snapshot), " +
+                    "through_transaction_id = VALUES(through_transaction_id), as_of = VALUES(as_of)";
+    private static final String INSERT_SNAPSHOT_SQL =
+            "INSERT IGNORE INTO inventory_snapshots (product_id, warehouse_id, through_transaction_id, as_of, on_hand, " +
+                    "event_count, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.event-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inventory.event-store.snapshot-every:500}")
+    private int snapshotEvery;
+
+    @Value("${inventory.event-store.partitions:4}")
+    private int partitions;
+
+    @Value("${inventory.event-store.settle-ms:300000}")
+    private long settleMs;
+
+    @Value("${inventory.event-store.lease-ms:600000}")
+    private long leaseMs;
+
+    @Value("${inventory.event-store.batch-size:1000}")
+    private int batchSize;
+
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private final ReentrantLock runLock = new ReentrantLock();
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, "inventory-projection-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getCheckpoint() {
+        Long through = jdbcTemplate.queryForObject(
+                "SELECT through_transaction_id FROM inventory_projection_checkpoint WHERE name = ?", Long.class, CHECKPOINT);
+        return through != null ? through : 0L;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.event-store.project-interval-ms:60000}",
+            initialDelayString = "${inventory.event-store.project-interval-ms:60000}")
+    public void projectScheduled() {
+        if (enabled) {
+            project();
+        }
+    }
+
+    /**
+     * Replays the settled events after the checkpoint. Returns the number of events applied, or -1 when
+     * another run holds the lease.
+     */
+    public long project() {
+        if (!runLock.tryLock()) {
+            return -1;
+        }
+        try {
+            if (!acquireLease()) {
+                return -1;
+            }
+            try {
+                return replaySettled();
+            } finally {
+                jdbcTemplate.update(RELEASE_LEASE_SQL, CHECKPOINT, leaseOwner);
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * Drops every head and snapshot and replays the whole history. Point-in-time answers stay correct while this
+     * runs, they only fall back to longer replays until the snapshots are back.
+     */
+    public long rebuild() {
+        runLock.lock();
+        try {
+            if (!acquireLease()) {
+                throw new IllegalStateException("Inventory projection is running on another node");
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update("DELETE FROM inventory_snapshots");
+                    jdbcTemplate.update("DELETE FROM inventory_projection");
+                    jdbcTemplate.update(ADVANCE_CHECKPOINT_SQL, 0L, Timestamp.valueOf(LocalDateTime.now()), CHECKPOINT, leaseOwner);
+                });
+                return replaySettled();
+            } finally {
+                jdbcTemplate.update(RELEASE_LEASE_SQL, CHECKPOINT, leaseOwner);
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private boolean acquireLease() {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(ACQUIRE_LEASE_SQL, leaseOwner, Timestamp.valueOf(now.plus(Duration.ofMillis(leaseMs))),
+                CHECKPOINT, Timestamp.valueOf(now), leaseOwner) == 1;
+    }
+
+    private long replaySettled() {
+        long started = System.currentTimeMillis();
+        long from = getCheckpoint();
+        Long through = jdbcTemplate.queryForObject(InventoryJournal.SETTLED_THROUGH_SQL, Long.class, from, settleMs * 1000);
+        if (through == null) {
+            return 0;
+        }
+
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                "SELECT MIN(product_id) AS low, MAX(product_id) AS high FROM inventory_transactions " +
+                        "WHERE transaction_id > ? AND transaction_id <= ?", from, through);
+        long low = ((Number) bounds.get("low")).longValue();
+        long high = ((Number) bounds.get("high")).longValue();
+        long span = Math.max(1, (high - low + partitions) / partitions);
+
+        LongAdder applied = new LongAdder();
+        LongAdder snapshots = new LongAdder();
+        List<Future<?>> futures = new ArrayList<>();
+        for (long rangeLow = low; rangeLow <= high; rangeLow += span) {
+            long rangeHigh = Math.min(high, rangeLow + span - 1);
+            long partitionLow = rangeLow;
+            futures.add(executor.submit(() -> replayPartition(partitionLow, rangeHigh, from, through, applied, snapshots)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Inventory projection was interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Inventory projection failed, the next run repeats it", e.getCause());
+        }
+
+        jdbcTemplate.update(ADVANCE_CHECKPOINT_SQL, through, Timestamp.valueOf(LocalDateTime.now()), CHECKPOINT, leaseOwner);
+        log.info("Inventory projection applied {} events through transaction {} and wrote {} snapshots in {} ms",
+                applied.sum(), through, snapshots.sum(), System.currentTimeMillis() - started);
+        return applied.sum();
+    }
+
+    private void replayPartition(long productLow, long productHigh, long from, long through,
+                                 LongAdder applied, LongAdder snapshots) {
+        Map<Long, Head> heads = new HashMap<>();
+        jdbcTemplate.query(SELECT_HEADS_SQL, rs -> {
+            Head head = new Head(rs.getLong(1), rs.getLong(2));
+            head.onHand = rs.getInt(3);
+            head.eventCount = rs.getLong(4);
+            head.sinceSnapshot = rs.getInt(5);
+            head.through = rs.getLong(6);
+            head.asOf = rs.getTimestamp(7).toLocalDateTime();
+            heads.put(StockLedger.key(head.productId, head.warehouseId), head);
+        }, productLow, productHigh);
+
+        Map<Long, Head> dirty = new LinkedHashMap<>();
+        List<Snapshot> pendingSnapshots = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_EVENTS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            PageUtil.streamResults(ps);
+            ps.setLong(1, productLow);
+            ps.setLong(2, productHigh);
+            ps.setLong(3, from);
+            ps.setLong(4, through);
+            return ps;
+        }, rs -> {
+            long productId = rs.getLong(1);
+            long warehouseId = rs.getLong(2);
+            long transactionId = rs.getLong(3);
+            long key = StockLedger.key(productId, warehouseId);
+            Head head = heads.computeIfAbsent(key, k -> new Head(productId, warehouseId));
+            if (transactionId <= head.through) {
+                return;
+            }
+
+            LocalDateTime transactionDate = rs.getTimestamp(5).toLocalDateTime();
+            head.onHand += rs.getInt(4);
+            head.eventCount++;
+            head.sinceSnapshot++;
+            head.through = transactionId;
+            if (head.asOf == null || transactionDate.isAfter(head.asOf)) {
+                head.asOf = transactionDate;
+            }
+            if (head.sinceSnapshot >= snapshotEvery) {
+                pendingSnapshots.add(new Snapshot(productId, warehouseId, head.through, head.asOf, head.onHand, head.eventCount));
+                head.sinceSnapshot = 0;
+            }
+            dirty.put(key, head);
+            applied.increment();
+
+            if (dirty.size() + pendingSnapshots.size() >= batchSize) {
+                snapshots.add(flush(dirty, pendingSnapshots));
+            }
+        });
+        snapshots.add(flush(dirty, pendingSnapshots));
+    }
+
+    private int flush(Map<Long, Head> dirty, List<Snapshot> pendingSnapshots) {
+        if (dirty.isEmpty() && pendingSnapshots.isEmpty()) {
+            return 0;
+        }
+        List<Head> heads = new ArrayList<>(dirty.values());
+        List<Snapshot> snapshots = List.copyOf(pendingSnapshots);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPSERT_HEAD_SQL, heads, heads.size(), (ps, head) -> {
+                ps.setLong(1, head.productId);
+                ps.setLong(2, head.warehouseId);
+                ps.setInt(3, head.onHand);
+                ps.setLong(4, head.eventCount);
+                ps.setInt(5, head.sinceSnapshot);
+                ps.setLong(6, head.through);
+                ps.setTimestamp(7, Timestamp.valueOf(head.asOf));
+            });
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, snapshots, snapshots.size(), (ps, snapshot) -> {
+                ps.setLong(1, snapshot.productId());
+                ps.setLong(2, snapshot.warehouseId());
+                ps.setLong(3, snapshot.through());
+                ps.setTimestamp(4, Timestamp.valueOf(snapshot.asOf()));
+                ps.setInt(5, snapshot.onHand());
+                ps.setLong(6, snapshot.eventCount());
+                ps.setTimestamp(7, now);
+            });
+        });
+        dirty.clear();
+        pendingSnapshots.clear();
+        return snapshots.size();
+    }
+
+    private static final class Head {
+        private final long productId;
+        private final long warehouseId;
+        private int onHand;
+        private long eventCount;
+        private int sinceSnapshot;
+        private long through;
+        private LocalDateTime asOf;
+
+        private Head(long productId, long warehouseId) {
+            this.productId = productId;
+            this.warehouseId = warehouseId;
+        }
+    }
+
+    private record Snapshot(long productId, long warehouseId, long through, LocalDateTime asOf, int onHand, long eventCount) {
+    }
+}
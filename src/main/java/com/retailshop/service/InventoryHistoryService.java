@@ -0,0 +1,151 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.InventoryDriftResponse;
+import com.retailshop.dto.response.InventoryProjectionResponse;
+import com.retailshop.dto.response.StockAtTimeResponse;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.retailshop.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class InventoryHistoryService implements IInventoryHistoryService {
+
+    private static final String LATEST_SNAPSHOT_SQL =
+            "SELECT through_transaction_id, on_hand FROM inventory_snapshots " +
+                    "WHERE product_id = ? AND warehouse_id = ? AND as_of <= ? " +
+                    "ORDER BY as_of DESC, through_transaction_id DESC LIMIT 1";
+    private static final String TAIL_SQL =
+            "SELECT COUNT(*) AS events, COALESCE(SUM(quantity_change), 0) AS delta FROM inventory_transactions " +
+                    "WHERE product_id = ? AND warehouse_id = ? AND transaction_id > ? AND transaction_date <= ?";
+    // One snapshot lookup and one tail range per inventory row, both served by the (product, warehouse, ...) indexes
+    private static final String WAREHOUSE_STOCK_SQL =
+            "SELECT i.product_id, i.quantity_on_hand, i.updated_at, s.through_transaction_id, " +
+                    "COALESCE(s.on_hand, 0) + tl.delta AS event_on_hand, tl.events " +
+                    "FROM inventory i " +
+                    "LEFT JOIN LATERAL (SELECT sn.through_transaction_id, sn.on_hand FROM inventory_snapshots sn " +
+                    "    WHERE sn.product_id = i.product_id AND sn.warehouse_id = i.warehouse_id AND sn.as_of <= ? " +
+                    "    ORDER BY sn.as_of DESC, sn.through_transaction_id DESC LIMIT 1) s ON TRUE " +
+                    "JOIN LATERAL (SELECT COUNT(*) AS events, COALESCE(SUM(t.quantity_change), 0) AS delta " +
+                    "    FROM inventory_transactions t WHERE t.product_id = i.product_id AND t.warehouse_id = i.warehouse_id " +
+                    "    AND t.transaction_id > COALESCE(s.through_transaction_id, 0) AND t.transaction_date <= ?) tl ON TRUE " +
+                    "WHERE i.warehouse_id = ? ORDER BY i.product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryEventStore inventoryEventStore;
+    private final WarehouseRepository warehouseRepository;
+
+    @Value("${inventory.event-store.settle-ms:300000}")
+    private long settleMs;
+
+    @Override
+    public StockAtTimeResponse getStockAt(Long productId, Long warehouseId, LocalDateTime at) {
+        List<long[]> snapshot = jdbcTemplate.query(LATEST_SNAPSHOT_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getInt(2)},
+                productId, warehouseId, Timestamp.valueOf(at));
+        long through = snapshot.isEmpty() ? 0L : snapshot.get(0)[0];
+        int onHand = snapshot.isEmpty() ? 0 : (int) snapshot.get(0)[1];
+
+        Map<String, Object> tail = jdbcTemplate.queryForMap(TAIL_SQL, productId, warehouseId, through, Timestamp.valueOf(at));
+        return StockAtTimeResponse.builder()
+                .productId(productId)
+                .warehouseId(warehouseId)
+                .at(at)
+                .quantityOnHand(onHand + ((Number) tail.get("delta")).intValue())
+                .snapshotThroughTransactionId(snapshot.isEmpty() ? null : through)
+                .eventsReplayed(((Number) tail.get("events")).longValue())
+                .build();
+    }
+
+    @Override
+    public List<StockAtTimeResponse> getWarehouseStockAt(Long warehouseId, LocalDateTime at) {
+        requireWarehouse(warehouseId);
+        List<StockAtTimeResponse> stock = new ArrayList<>();
+        jdbcTemplate.query(WAREHOUSE_STOCK_SQL, rs -> {
+            long through = rs.getLong(4);
+            boolean hasSnapshot = !rs.wasNull();
+            long events = rs.getLong(6);
+            // No snapshot and no event before the requested time: the product was not stocked here yet
+            if (!hasSnapshot && events == 0) {
+                return;
+            }
+            stock.add(StockAtTimeResponse.builder()
+                    .productId(rs.getLong(1))
+                    .warehouseId(warehouseId)
+                    .at(at)
+                    .quantityOnHand(rs.getInt(5))
+                    .snapshotThroughTransactionId(hasSnapshot ? through : null)
+                    .eventsReplayed(events)
+                    .build());
+        }, Timestamp.valueOf(at), Timestamp.valueOf(at), warehouseId);
+        return stock;
+    }
+
+    @Override
+    public List<InventoryDriftResponse> findDrift(Long warehouseId) {
+        requireWarehouse(warehouseId);
+        LocalDateTime now = LocalDateTime.now();
+        // Rows touched within the settle window may still have journal entries on their way
+        LocalDateTime settledBefore = now.minus(Duration.ofMillis(settleMs));
+
+        List<InventoryDriftResponse> drift = new ArrayList<>();
+        jdbcTemplate.query(WAREHOUSE_STOCK_SQL, rs -> {
+            Timestamp updatedAt = rs.getTimestamp(3);
+            if (updatedAt != null && !updatedAt.toLocalDateTime().isBefore(settledBefore)) {
+                return;
+            }
+            int onHand = rs.getInt(2);
+            int eventSourced = rs.getInt(5);
+            if (onHand != eventSourced) {
+                drift.add(InventoryDriftResponse.builder()
+                        .productId(rs.getLong(1))
+                        .warehouseId(warehouseId)
+                        .quantityOnHand(onHand)
+                        .eventSourcedQuantity(eventSourced)
+                        .difference(onHand - eventSourced)
+                        .build());
+            }
+        }, Timestamp.valueOf(now), Timestamp.valueOf(now), warehouseId);
+        return drift;
+    }
+
+    @Override
+    public InventoryProjectionResponse projectEvents() {
+        long started = System.currentTimeMillis();
+        long applied = inventoryEventStore.project();
+        if (applied < 0) {
+            throw new IllegalStateException("Inventory projection is already running");
+        }
+        return projectionResponse(applied, started);
+    }
+
+    @Override
+    public InventoryProjectionResponse rebuildProjection() {
+        long started = System.currentTimeMillis();
+        return projectionResponse(inventoryEventStore.rebuild(), started);
+    }
+
+    private InventoryProjectionResponse projectionResponse(long applied, long started) {
+        return InventoryProjectionResponse.builder()
+                .eventsApplied(applied)
+                .checkpointTransactionId(inventoryEventStore.getCheckpoint())
+                .elapsedMs(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    private void requireWarehouse(Long warehouseId) {
+        if (!warehouseRepository.existsById(warehouseId)) {
+            throw new ResourceNotFoundException("Warehouse not found with id: " + warehouseId);
+        }
+    }
+}
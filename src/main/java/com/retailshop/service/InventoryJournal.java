@@ -0,0 +1,353 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.entity.InventoryTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal for inventory transactions. Entries appended during a business transaction are
+ * stored as a single outbox row when it commits, then expanded into inventory_transactions by a writer
+ * thread in multi-row batches. Outbox rows left behind by a crash are replayed on startup and by a
+ * periodic sweep; claiming a row deletes it, so every entry is written exactly once.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryJournal {
+
+    private static final String INSERT_OUTBOX_SQL =
+            "INSERT INTO inventory_journal_outbox (payload, created_at) VALUES (?, ?)";
+    private static final String CLAIM_OUTBOX_SQL =
+            "DELETE FROM inventory_journal_outbox WHERE outbox_id = ?";
+    private static final String SELECT_OUTBOX_SQL =
+            "SELECT outbox_id, payload FROM inventory_journal_outbox WHERE outbox_id > ? AND created_at < ? " +
+                    "ORDER BY outbox_id LIMIT ?";
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO inventory_transactions (product_id, warehouse_id, transaction_type, reference_id, " +
+                    "reference_type, quantity_change, quantity_before, quantity_after, unit_cost, transaction_date, " +
+                    "notes, created_by) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final TypeReference<List<Entry>> ENTRY_LIST = new TypeReference<>() {};
+
+    /**
+     * Newest transaction id after the given one whose row was inserted at least the given number of
+     * microseconds ago. Ids are taken at insert, so every lower id was inserted earlier too and, once the window
+     * exceeds how long a write stays uncommitted, has committed. transaction_date cannot bound this: it is the
+     * business time, and rows replayed from the outbox keep theirs.
+     */
+    static final String SETTLED_THROUGH_SQL =
+            "SELECT MAX(transaction_id) FROM inventory_transactions WHERE transaction_id > ? " +
+                    "AND recorded_at <= TIMESTAMPADD(MICROSECOND, -?, NOW(6))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${inventory.journal.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${inventory.journal.batch-size:500}")
+    private int batchSize;
+
+    @Value("${inventory.journal.recovery-age-ms:60000}")
+    private long recoveryAgeMs;
+
+    private BlockingQueue<Batch> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Counter entriesWritten;
+    private Counter callerFlushes;
+    private Counter writeFailures;
+    private Timer flushTimer;
+    private Timer commitLag;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        entriesWritten = Counter.builder("inventory.journal.entries.written").register(meterRegistry);
+        callerFlushes = Counter.builder("inventory.journal.caller.flushes")
+                .description("Batches written on the committing thread because the writer queue was full")
+                .register(meterRegistry);
+        writeFailures = Counter.builder("inventory.journal.write.failures").register(meterRegistry);
+        flushTimer = Timer.builder("inventory.journal.flush").register(meterRegistry);
+        commitLag = Timer.builder("inventory.journal.lag")
+                .description("Time from business commit until the entries are in inventory_transactions")
+                .register(meterRegistry);
+        meterRegistry.gauge("inventory.journal.queue.size", queue, BlockingQueue::size);
+
+        running = true;
+        writer = new Thread(this::runWriter, "inventory-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public void append(InventoryTransaction transaction) {
+        Entry entry = Entry.from(transaction);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(new Batch(null, List.of(entry), System.nanoTime())));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Entry> pending = (List<Entry>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new JournalSynchronization(pending));
+        }
+        pending.add(entry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        int recovered = recover(LocalDateTime.now());
+        if (recovered > 0) {
+            log.info("Inventory journal recovered {} outbox rows", recovered);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.journal.recovery-interval-ms:60000}",
+            initialDelayString = "${inventory.journal.recovery-interval-ms:60000}")
+    public void recoverStale() {
+        int recovered = recover(LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(recoveryAgeMs)));
+        if (recovered > 0) {
+            log.warn("Inventory journal replayed {} stale outbox rows", recovered);
+        }
+    }
+
+    private int recover(LocalDateTime createdBefore) {
+        int recovered = 0;
+        long afterId = 0;
+        while (true) {
+            List<Batch> batches = jdbcTemplate.query(SELECT_OUTBOX_SQL,
+                    (rs, rowNum) -> new Batch(rs.getLong(1), readEntries(rs.getString(2)), System.nanoTime()),
+                    afterId, Timestamp.valueOf(createdBefore), batchSize);
+            if (batches.isEmpty()) {
+                return recovered;
+            }
+            write(batches);
+            recovered += batches.size();
+            afterId = batches.get(batches.size() - 1).outboxId();
+        }
+    }
+
+    private void runWriter() {
+        List<Batch> batches = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Batch first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batches.add(first);
+                int entries = first.entries().size();
+                Batch next;
+                while (entries < batchSize && (next = queue.poll()) != null) {
+                    batches.add(next);
+                    entries += next.entries().size();
+                }
+                write(batches);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // The outbox rows are still there, the recovery sweep writes them later
+                writeFailures.increment();
+                log.error("Inventory journal write failed for {} batches", batches.size(), e);
+            } finally {
+                batches.clear();
+            }
+        }
+    }
+
+    private void write(List<Batch> batches) {
+        long started = System.nanoTime();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Batch> claimed = transactionTemplate.execute(status -> {
+            List<Batch> owned = claim(batches);
+            List<Entry> entries = new ArrayList<>();
+            owned.forEach(batch -> entries.addAll(batch.entries()));
+            if (entries.isEmpty()) {
+                return owned;
+            }
+            jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, entries, entries.size(), (ps, entry) -> {
+                ps.setLong(1, entry.productId());
+                ps.setLong(2, entry.warehouseId());
+                ps.setString(3, entry.transactionType().name());
+                ps.setObject(4, entry.referenceId(), Types.BIGINT);
+                ps.setString(5, entry.referenceType());
+                ps.setInt(6, entry.quantityChange());
+                ps.setObject(7, entry.quantityBefore(), Types.INTEGER);
+                ps.setObject(8, entry.quantityAfter(), Types.INTEGER);
+                ps.setBigDecimal(9, entry.unitCost());
+                ps.setTimestamp(10, Timestamp.valueOf(entry.transactionDate()));
+                ps.setString(11, entry.notes());
+                ps.setObject(12, entry.createdBy(), Types.BIGINT);
+            });
+            return owned;
+        });
+
+        long finished = System.nanoTime();
+        flushTimer.record(finished - started, TimeUnit.NANOSECONDS);
+        for (Batch batch : claimed) {
+            entriesWritten.increment(batch.entries().size());
+            commitLag.record(finished - batch.committedAt(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Deletes the outbox rows first; a row another writer already took is skipped
+    private List<Batch> claim(List<Batch> batches) {
+        List<Batch> outboxed = batches.stream().filter(batch -> batch.outboxId() != null).toList();
+        int[][] deleted = jdbcTemplate.batchUpdate(CLAIM_OUTBOX_SQL, outboxed, outboxed.size(),
+                (ps, batch) -> ps.setLong(1, batch.outboxId()));
+
+        List<Batch> owned = new ArrayList<>(batches.size());
+        batches.stream().filter(batch -> batch.outboxId() == null).forEach(owned::add);
+        int index = 0;
+        for (int[] counts : deleted) {
+            for (int count : counts) {
+                if (count != 0) {
+                    owned.add(outboxed.get(index));
+                }
+                index++;
+            }
+        }
+        return owned;
+    }
+
+    private long insertOutbox(List<Entry> entries) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(entries);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize inventory journal entries", e);
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_OUTBOX_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, payload);
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    private List<Entry> readEntries(String payload) {
+        try {
+            return objectMapper.readValue(payload, ENTRY_LIST);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read inventory journal outbox payload", e);
+        }
+    }
+
+    private final class JournalSynchronization implements TransactionSynchronization {
+        private final List<Entry> entries;
+        private Long outboxId;
+
+        private JournalSynchronization(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public int getOrder() {
+            return EventOutbox.SYNCHRONIZATION_ORDER - 1;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            outboxId = insertOutbox(entries);
+        }
+
+        @Override
+        public void afterCommit() {
+            Batch batch = new Batch(outboxId, List.copyOf(entries), System.nanoTime());
+            if (!queue.offer(batch)) {
+                // Writer is behind: apply backpressure by writing on the committing thread
+                callerFlushes.increment();
+                try {
+                    write(List.of(batch));
+                } catch (RuntimeException e) {
+                    writeFailures.increment();
+                    log.error("Inventory journal write failed for outbox row {}", outboxId, e);
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InventoryJournal.this);
+        }
+    }
+
+    private record Batch(Long outboxId, List<Entry> entries, long committedAt) {
+    }
+
+    record Entry(Long productId,
+                 Long warehouseId,
+                 InventoryTransaction.TransactionType transactionType,
+                 Long referenceId,
+                 String referenceType,
+                 Integer quantityChange,
+                 Integer quantityBefore,
+                 Integer quantityAfter,
+                 BigDecimal unitCost,
+                 LocalDateTime transactionDate,
+                 String notes,
+                 Long createdBy) {
+
+        static Entry from(InventoryTransaction transaction) {
+            return new Entry(
+                    transaction.getProduct().getProductId(),
+                    transaction.getWarehouse().getWarehouseId(),
+                    transaction.getTransactionType(),
+                    transaction.getReferenceId(),
+                    transaction.getReferenceType(),
+                    transaction.getQuantityChange(),
+                    transaction.getQuantityBefore(),
+                    transaction.getQuantityAfter(),
+                    transaction.getUnitCost(),
+                    transaction.getTransactionDate() != null ? transaction.getTransactionDate() : LocalDateTime.now(),
+                    transaction.getNotes(),
+                    transaction.getCreatedBy() != null ? transaction.getCreatedBy().getUserId() : null);
+        }
+    }
+}
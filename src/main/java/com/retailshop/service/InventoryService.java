@@ -1,6 +1,8 @@
 package com.retailshop.service;
 
 import com.retailshop.dto.request.InventoryUpdateRequest;
+import com.retailshop.dto.request.SalesOrderItemRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.InventoryResponse;
 import com.retailshop.entity.Inventory;
 import com.retailshop.entity.InventoryTransaction;
@@ -9,25 +11,41 @@ import com.retailshop.entity.Warehouse;
 import com.retailshop.exception.InsufficientStockException;
 import com.retailshop.exception.ResourceNotFoundException;
 import com.retailshop.repository.InventoryRepository;
-import com.retailshop.repository.InventoryTransactionRepository;
 import com.retailshop.repository.ProductRepository;
 import com.retailshop.repository.WarehouseRepository;
+import com.retailshop.util.PageUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class InventoryService implements IInventoryService {
 
+    private static final String RESERVE_IF_AVAILABLE_SQL =
+            "UPDATE inventory SET quantity_reserved = quantity_reserved + ?, version = version + 1, updated_at = NOW() " +
+                    "WHERE product_id = ? AND warehouse_id = ? AND quantity_on_hand - quantity_reserved >= ?";
+
     private final InventoryRepository inventoryRepository;
     private final ProductRepository productRepository;
     private final WarehouseRepository warehouseRepository;
-    private final InventoryTransactionRepository transactionRepository;
+    private final StockLedger stockLedger;
+    private final InventoryJournal inventoryJournal;
+    private final EventOutbox eventOutbox;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
 
     @Override
     @Transactional(readOnly = true)
@@ -61,6 +79,22 @@ public class InventoryService implements IInventoryService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<InventoryResponse> getInventoryPage(Long afterId, int size) {
+        return CursorPage.of(
+                inventoryRepository.findByInventoryIdGreaterThanOrderByInventoryIdAsc(PageUtil.cursor(afterId), PageUtil.firstPage(size)),
+                Inventory::getInventoryId, this::convertToResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamInventory(Consumer<InventoryResponse> consumer) {
+        try (Stream<Inventory> inventories = inventoryRepository.streamAll()) {
+            PageUtil.forEachDetached(inventories, entityManager, inventory -> consumer.accept(convertToResponse(inventory)));
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<InventoryResponse> getLowStockItems() {
@@ -79,6 +113,9 @@ public class InventoryService implements IInventoryService {
 
     @Override
     @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
     public InventoryResponse updateInventory(InventoryUpdateRequest request) {
         Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
@@ -104,6 +141,8 @@ public class InventoryService implements IInventoryService {
         }
 
         inventory = inventoryRepository.save(inventory);
+        stockLedger.applyAfterCommit(product.getProductId(), warehouse.getWarehouseId(),
+                inventory.getQuantityOnHand() - oldQuantity, 0);
 
         // Record transaction
         createTransaction(product, warehouse, InventoryTransaction.TransactionType.ADJUSTMENT,
@@ -115,6 +154,9 @@ public class InventoryService implements IInventoryService {
 
     @Override
     @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
     public InventoryResponse adjustInventory(Long productId, Long warehouseId, Integer quantity, String reason) {
         Inventory inventory = inventoryRepository
                 .findByProduct_ProductIdAndWarehouse_WarehouseId(productId, warehouseId)
@@ -129,6 +171,7 @@ public class InventoryService implements IInventoryService {
 
         inventory.setQuantityOnHand(newQuantity);
         inventory = inventoryRepository.save(inventory);
+        stockLedger.applyAfterCommit(productId, warehouseId, quantity, 0);
 
         // Record transaction
         createTransaction(inventory.getProduct(), inventory.getWarehouse(),
@@ -140,6 +183,9 @@ public class InventoryService implements IInventoryService {
 
     @Override
     @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
     public void transferStock(Long productId, Long fromWarehouseId, Long toWarehouseId, Integer quantity) {
         // Deduct from source warehouse
         Inventory fromInventory = inventoryRepository
@@ -153,6 +199,7 @@ public class InventoryService implements IInventoryService {
         Integer fromOldQty = fromInventory.getQuantityOnHand();
         fromInventory.setQuantityOnHand(fromInventory.getQuantityOnHand() - quantity);
         inventoryRepository.save(fromInventory);
+        stockLedger.applyAfterCommit(productId, fromWarehouseId, -quantity, 0);
 
         // Add to destination warehouse
         Product product = productRepository.findById(productId)
@@ -173,6 +220,7 @@ public class InventoryService implements IInventoryService {
         Integer toOldQty = toInventory.getQuantityOnHand();
         toInventory.setQuantityOnHand(toInventory.getQuantityOnHand() + quantity);
         inventoryRepository.save(toInventory);
+        stockLedger.applyAfterCommit(productId, toWarehouseId, quantity, 0);
 
         // Record transactions
         createTransaction(product, fromInventory.getWarehouse(), InventoryTransaction.TransactionType.TRANSFER,
@@ -187,44 +235,127 @@ public class InventoryService implements IInventoryService {
     @Override
     @Transactional(readOnly = true)
     public Integer getTotalStockByProduct(Long productId) {
+        if (stockLedger.isComplete()) {
+            return stockLedger.getTotalOnHand(productId);
+        }
         Integer total = inventoryRepository.getTotalStockByProduct(productId);
         return total != null ? total : 0;
     }
 
     @Override
     @Transactional(readOnly = true)
-    public boolean checkStockAvailability(Long productId, Long warehouseId, Integer requiredQuantity) {
-        Inventory inventory = inventoryRepository
-                .findByProduct_ProductIdAndWarehouse_WarehouseId(productId, warehouseId)
-                .orElse(null);
+    public Integer getQuantityAvailable(Long productId, Long warehouseId) {
+        Integer available = findQuantityAvailable(productId, warehouseId);
+        if (available == null) {
+            throw new ResourceNotFoundException("Inventory not found for product and warehouse");
+        }
+        return available;
+    }
 
-        return inventory != null && inventory.getQuantityAvailable() >= requiredQuantity;
+    @Override
+    @Transactional(readOnly = true)
+    public boolean checkStockAvailability(Long productId, Long warehouseId, Integer requiredQuantity) {
+        Integer available = findQuantityAvailable(productId, warehouseId);
+        return available != null && available >= requiredQuantity;
     }
 
     @Override
     @Transactional
     public void reserveStock(Long productId, Long warehouseId, Integer quantity) {
-        Inventory inventory = inventoryRepository
-                .findByProduct_ProductIdAndWarehouse_WarehouseId(productId, warehouseId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory not found"));
-
-        if (inventory.getQuantityAvailable() < quantity) {
+        // The availability check and the increment run as one statement, so concurrent reservations cannot oversell
+        if (inventoryRepository.reserveIfAvailable(productId, warehouseId, quantity) == 0) {
+            if (!inventoryRepository.existsByProduct_ProductIdAndWarehouse_WarehouseId(productId, warehouseId)) {
+                throw new ResourceNotFoundException("Inventory not found");
+            }
             throw new InsufficientStockException("Insufficient available stock for reservation");
         }
+        stockLedger.applyAfterCommit(productId, warehouseId, 0, quantity);
+        eventOutbox.publishStockChanged(productId, warehouseId, 0, quantity, null);
+    }
 
-        inventory.setQuantityReserved(inventory.getQuantityReserved() + quantity);
-        inventoryRepository.save(inventory);
+    @Override
+    @Transactional
+    public Map<Long, Product> reserveStock(Long warehouseId, List<SalesOrderItemRequest> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (SalesOrderItemRequest item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        Map<Long, Integer> available = new HashMap<>();
+        for (Object[] row : inventoryRepository.findAvailableQuantities(warehouseId, quantities.keySet())) {
+            available.put((Long) row[0], (Integer) row[1]);
+        }
+
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = products.get(line.getKey());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + line.getKey());
+            }
+            Integer quantityAvailable = available.get(line.getKey());
+            if (quantityAvailable == null || quantityAvailable < line.getValue()) {
+                throw new InsufficientStockException("Insufficient stock for product: " + product.getProductName());
+            }
+        }
+
+        // Re-check every line in the database in one batch, a concurrent reservation may have won since the read
+        inventoryRepository.flush();
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_IF_AVAILABLE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+            ps.setLong(3, warehouseId);
+            ps.setInt(4, line.getValue());
+        })[0];
+
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new InsufficientStockException(
+                        "Insufficient stock for product: " + products.get(lines.get(i).getKey()).getProductName());
+            }
+        }
+
+        for (Map.Entry<Long, Integer> line : lines) {
+            stockLedger.applyAfterCommit(line.getKey(), warehouseId, 0, line.getValue());
+            eventOutbox.publishStockChanged(line.getKey(), warehouseId, 0, line.getValue(), null);
+        }
+        return products;
     }
 
     @Override
     @Transactional
     public void releaseReservedStock(Long productId, Long warehouseId, Integer quantity) {
+        if (inventoryRepository.releaseIfReserved(productId, warehouseId, quantity) == 1) {
+            stockLedger.applyAfterCommit(productId, warehouseId, 0, -quantity);
+            eventOutbox.publishStockChanged(productId, warehouseId, 0, -quantity, null);
+            return;
+        }
+
+        // Less than the requested quantity is reserved, clamp at zero through the versioned entity
         Inventory inventory = inventoryRepository
                 .findByProduct_ProductIdAndWarehouse_WarehouseId(productId, warehouseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Inventory not found"));
 
-        inventory.setQuantityReserved(Math.max(0, inventory.getQuantityReserved() - quantity));
+        Integer oldReserved = inventory.getQuantityReserved();
+        inventory.setQuantityReserved(Math.max(0, oldReserved - quantity));
         inventoryRepository.save(inventory);
+        stockLedger.applyAfterCommit(productId, warehouseId, 0, inventory.getQuantityReserved() - oldReserved);
+        eventOutbox.publishStockChanged(productId, warehouseId, 0, inventory.getQuantityReserved() - oldReserved, null);
+    }
+
+    @Override
+    public int reconcileStockLedger() {
+        return stockLedger.reconcile();
+    }
+
+    private Integer findQuantityAvailable(Long productId, Long warehouseId) {
+        if (stockLedger.covers(warehouseId)) {
+            return stockLedger.getQuantityAvailable(productId, warehouseId);
+        }
+        return inventoryRepository.findByProduct_ProductIdAndWarehouse_WarehouseId(productId, warehouseId)
+                .map(Inventory::getQuantityAvailable)
+                .orElse(null);
     }
 
     private void createTransaction(Product product, Warehouse warehouse,
@@ -241,7 +372,8 @@ public class InventoryService implements IInventoryService {
                 .notes(notes)
                 .build();
 
-        transactionRepository.save(transaction);
+        inventoryJournal.append(transaction);
+        eventOutbox.publishStockChanged(product.getProductId(), warehouse.getWarehouseId(), quantityChange, 0, quantityAfter);
     }
 
     private InventoryResponse convertToResponse(Inventory inventory) {
@@ -0,0 +1,657 @@
+package com.retailshop.service;
+
+import com.retailshop.entity.InventoryTransaction;
+import com.retailshop.util.PageUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Values stock from inventory_transactions with FIFO and weighted average cost in a single pass over the log.
+ * Every (product, warehouse) keeps its FIFO cost layers in a ring of primitive arrays and its running weighted
+ * average as a quantity and a value; money is held as ten-thousandths in longs. Receipts are costed at their
+ * recorded unit cost, or, when they have none (returns, adjustments), at the key's current average, then the
+ * product's last purchase cost, then the first cost logged with any of its entries, such as the cost price a sale
+ * recorded. Only the log is read, so a date values the same whether it is replayed from a checkpoint or from the
+ * start, however the catalogue prices change afterwards. Issues consume the oldest layers first; units issued beyond
+ * the layers are remembered as a deficit that the next receipts fill before they add layers. A transfer out keeps
+ * the layers and average value it consumed in transit until its transfer in, matched by stock transfer id or, for
+ * unreferenced transfers, by product in log order, so moving stock between warehouses never changes its value.
+ * The two sides are journaled by different nodes, so a transfer in may be logged first; it is then held back
+ * until its transfer out arrives and is received at the value that brings.
+ *
+ * <p>A nightly checkpoint stores the whole state through the last event before midnight, built incrementally
+ * from the previous checkpoint, so valuing any date replays only the events between the nearest earlier
+ * checkpoint and that date. A checkpoint through transaction id X holds every event up to X; X never passes
+ * the newest row inserted before the journal's settle window, so no in-flight event can be left behind.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryValuationEngine {
+
+    static final int COST_SCALE = 4;
+    private static final int STATE_FORMAT = 3;
+
+    private static final String LATEST_CHECKPOINT_SQL =
+            "SELECT checkpoint_id, through_transaction_id, as_of, state FROM inventory_valuation_checkpoints " +
+                    "WHERE as_of <= ? ORDER BY as_of DESC, through_transaction_id DESC LIMIT 1";
+    private static final String NEWEST_CHECKPOINT_SQL =
+            "SELECT checkpoint_id, through_transaction_id, as_of, state FROM inventory_valuation_checkpoints " +
+                    "ORDER BY through_transaction_id DESC LIMIT 1";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO inventory_valuation_checkpoints (through_transaction_id, as_of, cutoff, key_count, state, created_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_EVENTS_SQL =
+            "SELECT transaction_id, product_id, warehouse_id, quantity_change, unit_cost, transaction_date, " +
+                    "transaction_type, reference_type, reference_id " +
+                    "FROM inventory_transactions WHERE transaction_id > ? AND transaction_id <= ? ORDER BY transaction_id";
+    private static final String SELECT_EVENTS_AS_OF_SQL =
+            "SELECT transaction_id, product_id, warehouse_id, quantity_change, unit_cost, transaction_date, " +
+                    "transaction_type, reference_type, reference_id " +
+                    "FROM inventory_transactions WHERE transaction_id > ? AND transaction_date <= ? ORDER BY transaction_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${inventory.valuation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inventory.valuation.retention-days:400}")
+    private int retentionDays;
+
+    @Value("${inventory.event-store.settle-ms:300000}")
+    private long settleMs;
+
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    /**
+     * Rebuilds the valuation state as of the given time from the nearest checkpoint at or before it.
+     */
+    public Valuation valueAt(LocalDateTime asOf) {
+        List<Checkpoint> checkpoints = jdbcTemplate.query(LATEST_CHECKPOINT_SQL, this::mapCheckpoint, Timestamp.valueOf(asOf));
+        Checkpoint checkpoint = checkpoints.isEmpty() ? null : checkpoints.get(0);
+        ValuationState state = checkpoint != null ? checkpoint.state() : new ValuationState();
+        long from = checkpoint != null ? checkpoint.through() : 0L;
+
+        long events = replay(state, SELECT_EVENTS_AS_OF_SQL, from, Timestamp.valueOf(asOf));
+        return new Valuation(state, checkpoint != null ? checkpoint.through() : null, events);
+    }
+
+    @Scheduled(cron = "${inventory.valuation.cron:0 30 1 * * *}")
+    public void checkpointScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            checkpoint(LocalDate.now().atStartOfDay());
+            purgeCheckpoints();
+        } catch (RuntimeException ex) {
+            log.error("Nightly inventory valuation checkpoint failed", ex);
+        }
+    }
+
+    /**
+     * Writes a checkpoint holding every event dated before the cutoff, extending the newest existing checkpoint.
+     * Returns the transaction id it runs through, or the newest checkpoint's when there is nothing new to add.
+     */
+    public long checkpoint(LocalDateTime cutoff) {
+        if (cutoff.isAfter(LocalDateTime.now().minus(Duration.ofMillis(settleMs)))) {
+            throw new IllegalStateException("Checkpoint cutoff must be older than the journal settle window");
+        }
+        if (!checkpointLock.tryLock()) {
+            throw new IllegalStateException("An inventory valuation checkpoint is already running");
+        }
+        try {
+            long started = System.currentTimeMillis();
+            List<Checkpoint> newest = jdbcTemplate.query(NEWEST_CHECKPOINT_SQL, this::mapCheckpoint);
+            Checkpoint previous = newest.isEmpty() ? null : newest.get(0);
+            long from = previous != null ? previous.through() : 0L;
+
+            // Backdated rows may be inserted long after the cutoff, so the last id before it is capped at the last
+            // settled insert; anything dated before the cutoff beyond that is picked up by later replays
+            Long beforeCutoff = jdbcTemplate.queryForObject(
+                    "SELECT MAX(transaction_id) FROM inventory_transactions WHERE transaction_id > ? AND transaction_date < ?",
+                    Long.class, from, Timestamp.valueOf(cutoff));
+            Long settled = jdbcTemplate.queryForObject(InventoryJournal.SETTLED_THROUGH_SQL, Long.class, from, settleMs * 1000);
+            if (beforeCutoff == null || settled == null) {
+                return from;
+            }
+            long through = Math.min(beforeCutoff, settled);
+
+            // Ids below the cutoff's last id are all replayed whatever their date, which keeps the invariant that a
+            // checkpoint through X contains every event up to X
+            ValuationState state = previous != null ? previous.state() : new ValuationState();
+            long events = replay(state, SELECT_EVENTS_SQL, from, through);
+            byte[] encoded = state.encode();
+            try {
+                jdbcTemplate.update(INSERT_CHECKPOINT_SQL, through, Timestamp.valueOf(state.asOf), Timestamp.valueOf(cutoff),
+                        state.keys.size(), encoded, Timestamp.valueOf(LocalDateTime.now()));
+            } catch (DuplicateKeyException ex) {
+                log.info("Inventory valuation checkpoint through transaction {} was written by another node", through);
+                return through;
+            }
+            log.info("Inventory valuation checkpoint through transaction {} replayed {} events over {} keys " +
+                    "({} bytes) in {} ms", through, events, state.keys.size(), encoded.length,
+                    System.currentTimeMillis() - started);
+            return through;
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void purgeCheckpoints() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        Long newest = jdbcTemplate.queryForObject("SELECT MAX(checkpoint_id) FROM inventory_valuation_checkpoints", Long.class);
+        if (newest == null) {
+            return;
+        }
+        int purged = jdbcTemplate.update("DELETE FROM inventory_valuation_checkpoints WHERE cutoff < ? AND checkpoint_id <> ?",
+                Timestamp.valueOf(LocalDate.now().minusDays(retentionDays).atStartOfDay()), newest);
+        if (purged > 0) {
+            log.info("Purged {} inventory valuation checkpoints older than {} days", purged, retentionDays);
+        }
+    }
+
+    private long replay(ValuationState state, String sql, long from, Object bound) {
+        long[] events = new long[1];
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            PageUtil.streamResults(ps);
+            ps.setLong(1, from);
+            ps.setObject(2, bound);
+            return ps;
+        }, rs -> {
+            long productId = rs.getLong(2);
+            if (InventoryTransaction.TransactionType.TRANSFER.name().equals(rs.getString(7))) {
+                long transferId = StockTransferService.REFERENCE_TYPE.equals(rs.getString(8)) ? rs.getLong(9) : -1L;
+                state.applyTransfer(productId, rs.getLong(3), rs.getInt(4), transferId);
+            } else {
+                BigDecimal unitCost = rs.getBigDecimal(5);
+                state.apply(productId, rs.getLong(3), rs.getInt(4), unitCost != null ? toUnits(unitCost) : -1L);
+            }
+            LocalDateTime transactionDate = rs.getTimestamp(6).toLocalDateTime();
+            if (state.asOf == null || transactionDate.isAfter(state.asOf)) {
+                state.asOf = transactionDate;
+            }
+            events[0]++;
+        });
+        return events[0];
+    }
+
+    private Checkpoint mapCheckpoint(ResultSet rs, int rowNum) throws SQLException {
+        ValuationState state = ValuationState.decode(rs.getBytes(4));
+        state.asOf = rs.getTimestamp(3).toLocalDateTime();
+        return new Checkpoint(rs.getLong(2), state);
+    }
+
+    static long toUnits(BigDecimal amount) {
+        return amount.setScale(COST_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromUnits(long units) {
+        return BigDecimal.valueOf(units, COST_SCALE);
+    }
+
+    private record Checkpoint(long through, ValuationState state) {
+    }
+
+    /**
+     * The state of a replay and how many events it took after the checkpoint it started from.
+     */
+    public record Valuation(ValuationState state, Long checkpointThroughTransactionId, long eventsReplayed) {
+    }
+
+    @FunctionalInterface
+    public interface KeyVisitor {
+        void visit(long productId, long warehouseId, long quantity, long fifoValue, long weightedAverageValue);
+    }
+
+    public static final class ValuationState {
+        private final Map<Long, CostLayers> keys = new HashMap<>();
+        // Last purchase cost per product, or until there is one the first cost any of its entries logged
+        private final Map<Long, Long> knownCosts = new HashMap<>();
+        private final Map<Long, Transit> transfersInTransit = new HashMap<>();
+        private final Map<Long, ArrayDeque<Transit>> unreferencedInTransit = new HashMap<>();
+        private final Map<Long, Receipt> receiptsAwaitingTransit = new HashMap<>();
+        private final Map<Long, ArrayDeque<Receipt>> unreferencedReceipts = new HashMap<>();
+        private LocalDateTime asOf;
+
+        void apply(long productId, long warehouseId, int quantityChange, long unitCost) {
+            CostLayers layers = keys.computeIfAbsent(StockLedger.key(productId, warehouseId), k -> new CostLayers());
+            if (quantityChange > 0) {
+                long cost;
+                if (unitCost >= 0) {
+                    cost = unitCost;
+                    knownCosts.put(productId, unitCost);
+                } else {
+                    cost = fallbackCost(layers, productId);
+                }
+                layers.receive(quantityChange, cost);
+            } else if (quantityChange < 0) {
+                if (unitCost >= 0) {
+                    knownCosts.putIfAbsent(productId, unitCost);
+                }
+                layers.issue(-quantityChange, null);
+            }
+        }
+
+        /**
+         * Applies one side of a warehouse transfer. {@code transferId} is the stock transfer the entry references,
+         * or -1 for a transfer without one. Whichever side comes second settles the pair, so a transfer in that is
+         * logged before its transfer out is not counted anywhere until the transfer out arrives.
+         */
+        void applyTransfer(long productId, long warehouseId, int quantityChange, long transferId) {
+            if (quantityChange < 0) {
+                Transit transit = new Transit();
+                keys.computeIfAbsent(StockLedger.key(productId, warehouseId), k -> new CostLayers())
+                        .issue(-quantityChange, transit);
+                Receipt receipt = transferId >= 0
+                        ? receiptsAwaitingTransit.remove(transferId)
+                        : poll(unreferencedReceipts, productId);
+                if (receipt != null) {
+                    receive(productId, receipt.warehouseId(), receipt.quantity(), transit);
+                } else if (transferId >= 0) {
+                    transfersInTransit.put(transferId, transit);
+                } else {
+                    unreferencedInTransit.computeIfAbsent(productId, k -> new ArrayDeque<>()).add(transit);
+                }
+            } else if (quantityChange > 0) {
+                Transit transit = transferId >= 0 ? transfersInTransit.remove(transferId) : poll(unreferencedInTransit, productId);
+                if (transit != null) {
+                    receive(productId, warehouseId, quantityChange, transit);
+                } else if (transferId >= 0) {
+                    receiptsAwaitingTransit.put(transferId, new Receipt(warehouseId, quantityChange));
+                } else {
+                    unreferencedReceipts.computeIfAbsent(productId, k -> new ArrayDeque<>())
+                            .add(new Receipt(warehouseId, quantityChange));
+                }
+            }
+        }
+
+        private void receive(long productId, long warehouseId, int quantity, Transit transit) {
+            CostLayers layers = keys.computeIfAbsent(StockLedger.key(productId, warehouseId), k -> new CostLayers());
+            layers.receive(quantity, transit, fallbackCost(layers, productId));
+        }
+
+        private static <T> T poll(Map<Long, ArrayDeque<T>> pendingByProduct, long productId) {
+            ArrayDeque<T> pending = pendingByProduct.get(productId);
+            if (pending == null) {
+                return null;
+            }
+            T first = pending.poll();
+            if (pending.isEmpty()) {
+                pendingByProduct.remove(productId);
+            }
+            return first;
+        }
+
+        private long fallbackCost(CostLayers layers, long productId) {
+            if (layers.wacQuantity > 0) {
+                return layers.wacValue / layers.wacQuantity;
+            }
+            return knownCosts.getOrDefault(productId, 0L);
+        }
+
+        /**
+         * Visits every key in no particular order, values in ten-thousandths.
+         */
+        public void forEach(KeyVisitor visitor) {
+            keys.forEach((key, layers) -> visitor.visit(key >>> 32, key & 0xFFFFFFFFL,
+                    layers.wacQuantity, layers.fifoValue(), layers.wacValue));
+        }
+
+        byte[] encode() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(bytes)))) {
+                out.writeInt(STATE_FORMAT);
+                out.writeInt(knownCosts.size());
+                for (Map.Entry<Long, Long> entry : knownCosts.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                out.writeInt(keys.size());
+                for (Map.Entry<Long, CostLayers> entry : keys.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    entry.getValue().write(out);
+                }
+                out.writeInt(transfersInTransit.size());
+                for (Map.Entry<Long, Transit> entry : transfersInTransit.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    entry.getValue().write(out);
+                }
+                out.writeInt(unreferencedInTransit.size());
+                for (Map.Entry<Long, ArrayDeque<Transit>> entry : unreferencedInTransit.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (Transit transit : entry.getValue()) {
+                        transit.write(out);
+                    }
+                }
+                out.writeInt(receiptsAwaitingTransit.size());
+                for (Map.Entry<Long, Receipt> entry : receiptsAwaitingTransit.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    entry.getValue().write(out);
+                }
+                out.writeInt(unreferencedReceipts.size());
+                for (Map.Entry<Long, ArrayDeque<Receipt>> entry : unreferencedReceipts.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (Receipt receipt : entry.getValue()) {
+                        receipt.write(out);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        static ValuationState decode(byte[] encoded) {
+            ValuationState state = new ValuationState();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(new ByteArrayInputStream(encoded))))) {
+                int format = in.readInt();
+                if (format < 1 || format > STATE_FORMAT) {
+                    throw new IllegalStateException("Unsupported inventory valuation checkpoint format " + format);
+                }
+                int costs = in.readInt();
+                for (int i = 0; i < costs; i++) {
+                    state.knownCosts.put(in.readLong(), in.readLong());
+                }
+                int keys = in.readInt();
+                for (int i = 0; i < keys; i++) {
+                    state.keys.put(in.readLong(), CostLayers.read(in));
+                }
+                // Format 1 checkpoints predate transfer pairing and carry nothing in transit
+                if (format >= 2) {
+                    int transfers = in.readInt();
+                    for (int i = 0; i < transfers; i++) {
+                        state.transfersInTransit.put(in.readLong(), Transit.read(in));
+                    }
+                    int products = in.readInt();
+                    for (int i = 0; i < products; i++) {
+                        long productId = in.readLong();
+                        int pending = in.readInt();
+                        ArrayDeque<Transit> transits = new ArrayDeque<>(pending);
+                        for (int j = 0; j < pending; j++) {
+                            transits.add(Transit.read(in));
+                        }
+                        state.unreferencedInTransit.put(productId, transits);
+                    }
+                }
+                // Format 2 checkpoints predate held back transfers in
+                if (format >= 3) {
+                    int awaiting = in.readInt();
+                    for (int i = 0; i < awaiting; i++) {
+                        state.receiptsAwaitingTransit.put(in.readLong(), Receipt.read(in));
+                    }
+                    int products = in.readInt();
+                    for (int i = 0; i < products; i++) {
+                        long productId = in.readLong();
+                        int pending = in.readInt();
+                        ArrayDeque<Receipt> receipts = new ArrayDeque<>(pending);
+                        for (int j = 0; j < pending; j++) {
+                            receipts.add(Receipt.read(in));
+                        }
+                        state.unreferencedReceipts.put(productId, receipts);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * FIFO layers of one key as a ring of quantities and unit costs, next to its weighted average.
+     */
+    static final class CostLayers {
+        private int[] quantities = new int[2];
+        private long[] costs = new long[2];
+        private int head;
+        private int size;
+        private long deficit;
+        long wacQuantity;
+        long wacValue;
+
+        void receive(int quantity, long unitCost) {
+            receiveAverage(quantity, quantity * unitCost);
+            addLayer(quantity, unitCost);
+        }
+
+        /**
+         * Receives transferred units at the value they left their source with. Units the source could not cost
+         * take {@code fallbackCost}.
+         */
+        void receive(int quantity, Transit transit, long fallbackCost) {
+            long value = quantity >= transit.wacQuantity
+                    ? transit.wacValue + (quantity - transit.wacQuantity) * fallbackCost
+                    : share(transit.wacValue, quantity, transit.wacQuantity);
+            receiveAverage(quantity, value);
+
+            int remaining = quantity;
+            for (int i = 0; i < transit.size && remaining > 0; i++) {
+                int taken = Math.min(remaining, transit.quantities[i]);
+                addLayer(taken, transit.costs[i]);
+                remaining -= taken;
+            }
+            if (remaining > 0) {
+                addLayer(remaining, fallbackCost);
+            }
+        }
+
+        /**
+         * Issues the oldest units; a non-null {@code transit} collects the layers and average value they took.
+         */
+        void issue(int quantity, Transit transit) {
+            if (wacQuantity > 0) {
+                long issued = Math.min(quantity, wacQuantity);
+                long value = issued == wacQuantity ? wacValue : share(wacValue, issued, wacQuantity);
+                wacValue -= value;
+                if (transit != null) {
+                    transit.wacQuantity += issued;
+                    transit.wacValue += value;
+                }
+            }
+            wacQuantity -= quantity;
+
+            int remaining = quantity;
+            while (remaining > 0 && size > 0) {
+                int index = head;
+                int taken = Math.min(remaining, quantities[index]);
+                if (transit != null) {
+                    transit.add(taken, costs[index]);
+                }
+                quantities[index] -= taken;
+                remaining -= taken;
+                if (quantities[index] == 0) {
+                    head = (head + 1) & (quantities.length - 1);
+                    size--;
+                }
+            }
+            deficit += remaining;
+        }
+
+        private void receiveAverage(int quantity, long value) {
+            wacQuantity += quantity;
+            if (wacQuantity > 0) {
+                // Only the units that bring stock back above zero carry value into the average
+                long counted = Math.min(quantity, wacQuantity);
+                wacValue += counted == quantity ? value : share(value, counted, quantity);
+            }
+        }
+
+        // value * part / whole rounded down, without overflowing on the intermediate product
+        private static long share(long value, long part, long whole) {
+            return Math.floorDiv(value, whole) * part + Math.floorDiv(Math.floorMod(value, whole) * part, whole);
+        }
+
+        private void addLayer(int quantity, long unitCost) {
+            int remaining = quantity;
+            if (deficit > 0) {
+                int filled = (int) Math.min(deficit, remaining);
+                deficit -= filled;
+                remaining -= filled;
+            }
+            if (remaining > 0) {
+                push(remaining, unitCost);
+            }
+        }
+
+        long fifoValue() {
+            long value = 0;
+            for (int i = 0, index = head; i < size; i++, index = (index + 1) & (quantities.length - 1)) {
+                value += quantities[index] * costs[index];
+            }
+            return value;
+        }
+
+        private void push(int quantity, long unitCost) {
+            if (size > 0) {
+                int tail = (head + size - 1) & (quantities.length - 1);
+                if (costs[tail] == unitCost && quantities[tail] <= Integer.MAX_VALUE - quantity) {
+                    quantities[tail] += quantity;
+                    return;
+                }
+            }
+            if (size == quantities.length) {
+                grow();
+            }
+            int tail = (head + size) & (quantities.length - 1);
+            quantities[tail] = quantity;
+            costs[tail] = unitCost;
+            size++;
+        }
+
+        private void grow() {
+            int[] grownQuantities = new int[quantities.length * 2];
+            long[] grownCosts = new long[costs.length * 2];
+            for (int i = 0; i < size; i++) {
+                int index = (head + i) & (quantities.length - 1);
+                grownQuantities[i] = quantities[index];
+                grownCosts[i] = costs[index];
+            }
+            quantities = grownQuantities;
+            costs = grownCosts;
+            head = 0;
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeLong(deficit);
+            out.writeLong(wacQuantity);
+            out.writeLong(wacValue);
+            out.writeInt(size);
+            for (int i = 0, index = head; i < size; i++, index = (index + 1) & (quantities.length - 1)) {
+                out.writeInt(quantities[index]);
+                out.writeLong(costs[index]);
+            }
+        }
+
+        private static CostLayers read(DataInput in) throws IOException {
+            CostLayers layers = new CostLayers();
+            layers.deficit = in.readLong();
+            layers.wacQuantity = in.readLong();
+            layers.wacValue = in.readLong();
+            int size = in.readInt();
+            int capacity = Math.max(2, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+            layers.quantities = new int[capacity];
+            layers.costs = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                layers.quantities[i] = in.readInt();
+                layers.costs[i] = in.readLong();
+            }
+            layers.size = size;
+            return layers;
+        }
+    }
+
+    /**
+     * A transfer in logged before its transfer out, held back until the value it brings is known.
+     */
+    private record Receipt(long warehouseId, int quantity) {
+        private void write(DataOutput out) throws IOException {
+            out.writeLong(warehouseId);
+            out.writeInt(quantity);
+        }
+
+        private static Receipt read(DataInput in) throws IOException {
+            return new Receipt(in.readLong(), in.readInt());
+        }
+    }
+
+    /**
+     * The FIFO layers and average value a transfer took from its source, in the order they were consumed.
+     */
+    static final class Transit {
+        private int[] quantities = new int[2];
+        private long[] costs = new long[2];
+        private int size;
+        private long wacQuantity;
+        private long wacValue;
+
+        private void add(int quantity, long unitCost) {
+            if (size > 0 && costs[size - 1] == unitCost && quantities[size - 1] <= Integer.MAX_VALUE - quantity) {
+                quantities[size - 1] += quantity;
+                return;
+            }
+            if (size == quantities.length) {
+                quantities = Arrays.copyOf(quantities, size * 2);
+                costs = Arrays.copyOf(costs, size * 2);
+            }
+            quantities[size] = quantity;
+            costs[size] = unitCost;
+            size++;
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeLong(wacQuantity);
+            out.writeLong(wacValue);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(quantities[i]);
+                out.writeLong(costs[i]);
+            }
+        }
+
+        private static Transit read(DataInput in) throws IOException {
+            Transit transit = new Transit();
+            transit.wacQuantity = in.readLong();
+            transit.wacValue = in.readLong();
+            int size = in.readInt();
+            transit.quantities = new int[Math.max(2, size)];
+            transit.costs = new long[Math.max(2, size)];
+            for (int i = 0; i < size; i++) {
+                transit.quantities[i] = in.readInt();
+                transit.costs[i] = in.readLong();
+            }
+            transit.size = size;
+            return transit;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.InventoryValuationResponse;
+import com.retailshop.dto.response.InventoryValuationResponse.ValuationLine;
+import com.retailshop.entity.Warehouse;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.retailshop.repository.ProductRepository;
+import com.retailshop.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Service
+@RequiredArgsConstructor
+public class InventoryValuationService implements IInventoryValuationService {
+
+    private static final long UNCATEGORIZED = 0L;
+
+    private final InventoryValuationEngine valuationEngine;
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+
+    @Override
+    public InventoryValuationResponse getValuation(LocalDateTime asOf, Long warehouseId) {
+        if (warehouseId != null && !warehouseRepository.existsById(warehouseId)) {
+            throw new ResourceNotFoundException("Warehouse not found with id: " + warehouseId);
+        }
+        long started = System.currentTimeMillis();
+        InventoryValuationEngine.Valuation valuation = valuationEngine.valueAt(asOf);
+
+        Map<Long, Long> productCategories = new HashMap<>();
+        Map<Long, String> categoryNames = new HashMap<>();
+        categoryNames.put(UNCATEGORIZED, "Uncategorized");
+        for (Object[] row : productRepository.findValuationAttributes()) {
+            Long categoryId = row[1] != null ? (Long) row[1] : UNCATEGORIZED;
+            productCategories.put((Long) row[0], categoryId);
+            if (row[1] != null) {
+                categoryNames.put(categoryId, (String) row[2]);
+            }
+        }
+
+        Map<Long, long[]> byWarehouse = new TreeMap<>();
+        Map<Long, long[]> byCategory = new TreeMap<>();
+        long[] total = new long[3];
+        valuation.state().forEach((productId, keyWarehouseId, quantity, fifoValue, weightedAverageValue) -> {
+            if (warehouseId != null && keyWarehouseId != warehouseId) {
+                return;
+            }
+            long categoryId = productCategories.getOrDefault(productId, UNCATEGORIZED);
+            for (long[] sums : List.of(total, byWarehouse.computeIfAbsent(keyWarehouseId, k -> new long[3]),
+                    byCategory.computeIfAbsent(categoryId, k -> new long[3]))) {
+                sums[0] += quantity;
+                sums[1] += fifoValue;
+                sums[2] += weightedAverageValue;
+            }
+        });
+
+        Map<Long, String> warehouseNames = new HashMap<>();
+        for (Warehouse warehouse : warehouseRepository.findAllById(byWarehouse.keySet())) {
+            warehouseNames.put(warehouse.getWarehouseId(), warehouse.getWarehouseName());
+        }
+
+        return InventoryValuationResponse.builder()
+                .asOf(asOf)
+                .warehouseId(warehouseId)
+                .checkpointThroughTransactionId(valuation.checkpointThroughTransactionId())
+                .eventsReplayed(valuation.eventsReplayed())
+                .totalQuantity(total[0])
+                .fifoValue(InventoryValuationEngine.fromUnits(total[1]))
+                .weightedAverageValue(InventoryValuationEngine.fromUnits(total[2]))
+                .warehouses(lines(byWarehouse, warehouseNames))
+                .categories(lines(byCategory, categoryNames))
+                .elapsedMs(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    @Override
+    public long createCheckpoint(LocalDateTime cutoff) {
+        return valuationEngine.checkpoint(cutoff);
+    }
+
+    private List<ValuationLine> lines(Map<Long, long[]> sums, Map<Long, String> names) {
+        List<ValuationLine> lines = new ArrayList<>(sums.size());
+        sums.forEach((id, values) -> lines.add(new ValuationLine(id, names.get(id), values[0],
+                InventoryValuationEngine.fromUnits(values[1]), InventoryValuationEngine.fromUnits(values[2]))));
+        return lines;
+    }
+}
@@ -1,62 +1,218 @@
 package com.retailshop.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Issues and verifies HS256 tokens. Every signing key is derived once at startup and identified by a
+ * {@code kid} in the token header; tokens are signed with the current key and accepted under any
+ * configured previous key, so a secret can be rotated without logging everybody out. Because the header
+ * of each key is fixed, verification matches it against the pre-encoded headers instead of parsing it.
+ */
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ObjectMapper objectMapper;
+
     @Value("${jwt.secret}")
     private String secretKey;
 
+    @Value("${jwt.key-id:k1}")
+    private String keyId;
+
+    // Comma separated kid:secret pairs that are still accepted but no longer used for signing
+    @Value("${jwt.previous-keys:}")
+    private String previousKeys;
+
     @Value("${jwt.expiration:86400000}")
     private long jwtExpiration;
 
+    @Value("${jwt.clock-skew-seconds:30}")
+    private long clockSkewSeconds;
+
+    private SigningKey currentKey;
+    private Map<String, SigningKey> keysByHeader;
+
+    @PostConstruct
+    void initKeys() {
+        currentKey = new SigningKey(keyId, secretKey);
+        keysByHeader = new HashMap<>();
+        keysByHeader.put(currentKey.encodedHeader, currentKey);
+        for (String pair : previousKeys.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int colon = pair.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalStateException("jwt.previous-keys entries must be kid:secret");
+            }
+            SigningKey key = new SigningKey(pair.substring(0, colon).trim(), pair.substring(colon + 1).trim());
+            if (keysByHeader.putIfAbsent(key.encodedHeader, key) != null) {
+                throw new IllegalStateException("Duplicate JWT key id: " + key.kid);
+            }
+        }
+    }
+
     public String generateToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails);
+        long now = System.currentTimeMillis() / 1000;
+        String payload = objectMapper.createObjectNode()
+                .put("sub", userDetails.getUsername())
+                .put("iat", now)
+                .put("exp", now + jwtExpiration / 1000)
+                .toString();
+
+        String signingInput = currentKey.encodedHeader + "." + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        byte[] signature = currentKey.sign(signingInput.getBytes(StandardCharsets.US_ASCII), signingInput.length());
+        return signingInput + "." + ENCODER.encodeToString(signature);
     }
 
-    private String createToken(Map<String, Object> claims, UserDetails userDetails) {
-        long now = System.currentTimeMillis();
-        long expiry = now + jwtExpiration;
+    /**
+     * Verifies the signature in constant time, then decodes the payload and enforces {@code exp} and
+     * {@code iat}. Returns null for any token that is malformed, signed with an unknown key, tampered
+     * with, expired or issued in the future.
+     */
+    public Claims parseToken(String token) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot || token.indexOf('.', firstDot + 1) != lastDot) {
+            return null;
+        }
 
-        String header = "{\"typ\":\"JWT\",\"alg\":\"HS256\"}";
-        String payload = String.format(
-                "{\"sub\":\"%s\",\"iat\":%d,\"exp\":%d}",
-                userDetails.getUsername(),
-                now / 1000,
-                expiry / 1000
-        );
+        SigningKey key = keysByHeader.get(token.substring(0, firstDot));
+        if (key == null) {
+            return null;
+        }
 
-        String signature = Base64.getEncoder().encodeToString(
-                (header + "." + payload).getBytes()
-        );
+        // Compares encoded forms: the decoder ignores the unused low bits of the last character, so decoding
+        // the token's signature would accept several strings for one MAC
+        byte[] bytes = token.getBytes(StandardCharsets.US_ASCII);
+        byte[] expected = ENCODER.encode(key.sign(bytes, lastDot));
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, lastDot + 1, bytes.length))) {
+            return null;
+        }
 
-        return header + "." + payload + "." + signature;
+        Claims claims;
+        try {
+            claims = readClaims(DECODER.decode(token.substring(firstDot + 1, lastDot)));
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        long skew = clockSkewSeconds * 1000;
+        if (claims.expiresAt() <= now - skew || claims.issuedAt() > now + skew) {
+            return null;
+        }
+        return claims;
     }
 
-    public String extractUsername(String token) {
-        try {
-            String[] parts = token.split("\\.");
-            if (parts.length == 3) {
-                String payload = new String(Base64.getDecoder().decode(parts[1]));
-                return payload.split("\"sub\":\"")[1].split("\"")[0];
+    // Pulls the three registered claims with the streaming parser instead of building a tree
+    private Claims readClaims(byte[] payload) throws IOException {
+        String subject = null;
+        long issuedAt = -1;
+        long expiresAt = -1;
+        JsonFactory factory = objectMapper.getFactory();
+        try (JsonParser parser = factory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "sub" -> subject = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "iat" -> issuedAt = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : -1;
+                    case "exp" -> expiresAt = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : -1;
+                    default -> parser.skipChildren();
+                }
             }
-        } catch (Exception e) {
-            // ignore
         }
-        return null;
+        if (subject == null || issuedAt < 0 || expiresAt < 0) {
+            return null;
+        }
+        return new Claims(subject, issuedAt * 1000, expiresAt * 1000);
+    }
+
+    public record Claims(String subject, long issuedAt, long expiresAt) {
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return username != null && username.equals(userDetails.getUsername());
+    /**
+     * A derived key with its pre-encoded header. Initialised {@link Mac} instances are reused through a
+     * lock-free pool rather than a thread local, so reuse also works for short-lived request threads.
+     */
+    private static final class SigningKey {
+        private final String kid;
+        private final SecretKey key;
+        private final String encodedHeader;
+        private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+
+        SigningKey(String kid, String secret) {
+            byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (kid.isEmpty() || secretBytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("JWT key " + kid + " needs an id and a secret of at least "
+                        + MIN_SECRET_BYTES + " bytes");
+            }
+            if (!kid.matches("[A-Za-z0-9._-]+")) {
+                throw new IllegalStateException("JWT key id may only contain letters, digits, '.', '_' and '-'");
+            }
+            this.kid = kid;
+            this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+            String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}";
+            this.encodedHeader = ENCODER.encodeToString(header.getBytes(StandardCharsets.UTF_8));
+            macs.offer(newMac());
+        }
+
+        byte[] sign(byte[] input, int length) {
+            Mac mac = macs.poll();
+            if (mac == null) {
+                mac = newMac();
+            }
+            try {
+                mac.update(input, 0, length);
+                return mac.doFinal();
+            } finally {
+                macs.offer(mac);
+            }
+        }
+
+        private Mac newMac() {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
     }
 }
@@ -0,0 +1,87 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warns when a stock change takes a product at a warehouse down to its reorder point. Subscribes to
+ * {@link OutboxEvent.Type#STOCK_CHANGED} on the event bus; every node sees every event, so each one only
+ * alerts for the warehouses it owns. Each event carries the stock it left, so the decision depends on the event
+ * alone: a redelivered event can repeat an alert, never lose one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LowStockAlerts {
+
+    private static final int BATCH_SIZE = 200;
+
+    private final EventBus eventBus;
+    private final ProductRepository productRepository;
+    private final WarehouseShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private Counter alerts;
+
+    @PostConstruct
+    void subscribe() {
+        alerts = Counter.builder("inventory.stock.reorder-alerts").register(meterRegistry);
+        eventBus.subscribe("low-stock-alerts", Set.of(OutboxEvent.Type.STOCK_CHANGED), BATCH_SIZE, this::handle);
+    }
+
+    void handle(List<OutboxEvent> events) {
+        List<OutboxEvent.StockChanged> decreases = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            OutboxEvent.StockChanged change = read(event);
+            // Events without the stock they left predate the field and cannot be judged on their own
+            if (change != null && change.onHandDelta() < 0 && change.onHandAfter() != null
+                    && shardRouter.isLocal(change.warehouseId())) {
+                decreases.add(change);
+            }
+        }
+        if (decreases.isEmpty()) {
+            return;
+        }
+
+        Set<Long> productIds = new HashSet<>();
+        decreases.forEach(change -> productIds.add(change.productId()));
+        Map<Long, Integer> reorderPoints = new HashMap<>();
+        for (Object[] row : productRepository.findReorderPoints(productIds)) {
+            reorderPoints.put((Long) row[0], row[1] != null ? (Integer) row[1] : 0);
+        }
+        for (OutboxEvent.StockChanged change : decreases) {
+            int reorderPoint = reorderPoints.getOrDefault(change.productId(), 0);
+            int after = change.onHandAfter();
+            if (after <= reorderPoint && after - change.onHandDelta() > reorderPoint) {
+                alerts.increment();
+                log.warn("Product {} at warehouse {} is down to {} on hand, reorder point {}",
+                        change.productId(), change.warehouseId(), after, reorderPoint);
+            }
+        }
+    }
+
+    private OutboxEvent.StockChanged read(OutboxEvent event) {
+        try {
+            return objectMapper.readValue(event.payload(), OutboxEvent.StockChanged.class);
+        } catch (JsonProcessingException e) {
+            // Retrying cannot fix the payload, and throwing would hold up the whole partition
+            log.error("Skipping unreadable stock event {}", event.eventId(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.retailshop.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A committed change read back from event_outbox. The payload is the JSON the publisher wrote; events of one
+ * aggregate share a partition and are delivered in event id order.
+ */
+public record OutboxEvent(long eventId, Type type, long aggregateId, int partition, String payload,
+                          LocalDateTime createdAt) {
+
+    public enum Aggregate {
+        STOCK, SALES_ORDER, PURCHASE_ORDER
+    }
+
+    public enum Type {
+        STOCK_CHANGED(Aggregate.STOCK),
+        SALES_ORDER_CONFIRMED(Aggregate.SALES_ORDER),
+        SALES_ORDER_SHIPPED(Aggregate.SALES_ORDER),
+        SALES_ORDER_CANCELLED(Aggregate.SALES_ORDER),
+        PURCHASE_ORDER_RECEIVED(Aggregate.PURCHASE_ORDER);
+
+        private final Aggregate aggregate;
+
+        Type(Aggregate aggregate) {
+            this.aggregate = aggregate;
+        }
+
+        public Aggregate aggregate() {
+            return aggregate;
+        }
+
+        // Rows written by a newer build may carry types this one does not know; nobody subscribes to those
+        static Type parse(String name) {
+            try {
+                return valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Payload of {@link Type#STOCK_CHANGED}, keyed by product so every warehouse of a product stays in order.
+     * {@code onHandAfter} is the quantity on hand the change left, or null when it only moved reservations or was
+     * written before the field existed.
+     */
+    public record StockChanged(long productId, long warehouseId, int onHandDelta, int reservedDelta, Integer onHandAfter) {
+    }
+
+    /**
+     * Payload of the order lifecycle events, keyed by order id.
+     */
+    public record OrderChanged(long orderId, String orderNumber, long warehouseId, String status, List<Line> lines) {
+    }
+
+    public record Line(long productId, int quantity) {
+    }
+}
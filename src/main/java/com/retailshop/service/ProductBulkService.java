@@ -0,0 +1,552 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.dto.request.ProductFileFormat;
+import com.retailshop.dto.request.ProductRequest;
+import com.retailshop.dto.response.ProductImportResponse;
+import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.entity.Category;
+import com.retailshop.entity.Product;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.retailshop.repository.CategoryRepository;
+import com.retailshop.repository.ProductRepository;
+import com.retailshop.util.CsvReader;
+import com.retailshop.util.CsvWriter;
+import com.retailshop.util.NdjsonWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductBulkService implements IProductBulkService {
+
+    public static final List<String> CSV_COLUMNS = List.of("sku", "barcode", "productName", "description", "categoryId",
+            "unitOfMeasure", "costPrice", "sellingPrice", "minStockLevel", "maxStockLevel", "reorderPoint",
+            "reorderQuantity", "imageUrl");
+
+    private static final int REPORTED_ERRORS = 100;
+
+    private static final String INSERT_SQL = "INSERT INTO products (sku, barcode, product_name, description, category_id, " +
+            "unit_of_measure, cost_price, selling_price, min_stock_level, max_stock_level, reorder_point, " +
+            "reorder_quantity, image_url, is_active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE, ?, ?)";
+
+    // Columns left empty in the file keep their current value
+    private static final String UPDATE_SQL = "UPDATE products SET barcode = COALESCE(?, barcode), product_name = ?, " +
+            "description = COALESCE(?, description), category_id = COALESCE(?, category_id), " +
+            "unit_of_measure = COALESCE(?, unit_of_measure), cost_price = ?, selling_price = ?, " +
+            "min_stock_level = COALESCE(?, min_stock_level), max_stock_level = COALESCE(?, max_stock_level), " +
+            "reorder_point = COALESCE(?, reorder_point), reorder_quantity = COALESCE(?, reorder_quantity), " +
+            "image_url = COALESCE(?, image_url), updated_at = ? WHERE sku = ?";
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final IProductService productService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${product-import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${product-import.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${product-import.retention-ms:86400000}")
+    private long retentionMs;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxConcurrentJobs, runnable -> {
+            Thread thread = new Thread(runnable, "product-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Spools the upload to disk first, so the request finishes as soon as the bytes are in and the job runs unhurried
+    @Override
+    public ProductImportResponse startImport(InputStream upload, ProductFileFormat format) {
+        ImportJob job;
+        try {
+            Path file = Files.createTempFile("product-import-", "." + format.name().toLowerCase());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                upload.transferTo(out);
+            }
+            job = new ImportJob(UUID.randomUUID().toString(), format, file,
+                    Files.createTempFile("product-import-errors-", ".ndjson"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store the uploaded file", e);
+        }
+
+        jobs.put(job.jobId, job);
+        executor.submit(() -> run(job));
+        log.info("Queued product import {} ({})", job.jobId, format);
+        return job.toResponse();
+    }
+
+    @Override
+    public ProductImportResponse getImport(String jobId) {
+        return findJob(jobId).toResponse();
+    }
+
+    @Override
+    public void writeImportErrors(String jobId, OutputStream out) throws IOException {
+        ImportJob job = findJob(jobId);
+        if (!job.isFinished()) {
+            throw new IllegalStateException("Import is still running");
+        }
+        Files.copy(job.errorReport, out);
+    }
+
+    @Override
+    public void exportProducts(ProductFileFormat format, OutputStream out) throws IOException {
+        if (format == ProductFileFormat.CSV) {
+            CsvWriter writer = new CsvWriter(out);
+            writer.writeRecord(CSV_COLUMNS);
+            productService.streamProducts(product -> writer.writeRecord(toCsvRecord(product)));
+            writer.flush();
+        } else {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, out);
+            productService.streamProducts(writer::accept);
+            writer.flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product-import.retention-ms:86400000}")
+    public void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(retentionMs));
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.finishedAt.isAfter(cutoff)) {
+                return false;
+            }
+            deleteQuietly(job.errorReport);
+            return true;
+        });
+    }
+
+    private void run(ImportJob job) {
+        job.status = ProductImportResponse.Status.RUNNING;
+        ProductImportResponse.Status outcome = ProductImportResponse.Status.FAILED;
+        String message = null;
+        try (Reader reader = Files.newBufferedReader(job.upload, StandardCharsets.UTF_8);
+             BufferedWriter errorWriter = Files.newBufferedWriter(job.errorReport, StandardCharsets.UTF_8)) {
+            job.errorWriter = errorWriter;
+            if (job.format == ProductFileFormat.CSV) {
+                readCsv(job, reader);
+            } else {
+                readNdjson(job, reader);
+            }
+            message = "Import finished";
+            outcome = ProductImportResponse.Status.COMPLETED;
+        } catch (Exception e) {
+            log.error("Product import {} failed", job.jobId, e);
+            message = e.getMessage();
+        } finally {
+            deleteQuietly(job.upload);
+            // Report the job as finished only once lookups and search can see the imported rows
+            if (job.inserted.get() + job.updated.get() > 0) {
+                refreshCaches();
+            }
+            job.message = message;
+            job.finishedAt = LocalDateTime.now();
+            job.status = outcome;
+        }
+        log.info("Product import {} {}: {} rows, {} inserted, {} updated, {} failed", job.jobId, job.status,
+                job.rowsRead.get(), job.inserted.get(), job.updated.get(), job.failed.get());
+    }
+
+    private void readCsv(ImportJob job, Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+        List<String> columns = header.stream().map(name -> name.replace("\uFEFF", "").trim()).toList();
+        if (!columns.contains("sku")) {
+            throw new IllegalStateException("CSV header must include a sku column");
+        }
+
+        List<RawRow> chunk = new ArrayList<>(batchSize);
+        List<String> values;
+        while ((values = csv.readRecord()) != null) {
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < columns.size() && i < values.size(); i++) {
+                if (!values.get(i).isBlank()) {
+                    fields.put(columns.get(i), values.get(i).trim());
+                }
+            }
+            chunk.add(new RawRow(csv.getRecordLine(), fields, null));
+            if (chunk.size() == batchSize) {
+                processChunk(job, chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        processChunk(job, chunk);
+    }
+
+    private void readNdjson(ImportJob job, Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<RawRow> chunk = new ArrayList<>(batchSize);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            chunk.add(new RawRow(lineNumber, null, line));
+            if (chunk.size() == batchSize) {
+                processChunk(job, chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        processChunk(job, chunk);
+    }
+
+    private void processChunk(ImportJob job, List<RawRow> chunk) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        job.rowsRead.addAndGet(chunk.size());
+
+        // Parsing and bean validation are independent per row, so spread them over the common pool
+        List<ParsedRow> parsed = chunk.parallelStream().map(this::parse).toList();
+
+        Map<String, ParsedRow> bySku = new LinkedHashMap<>();
+        for (ParsedRow row : parsed) {
+            if (row.error() != null) {
+                reject(job, row, row.error());
+            } else {
+                // A SKU repeated within the chunk is applied once, with its last row
+                bySku.put(row.sku(), row);
+            }
+        }
+
+        resolveCategories(job, bySku.values());
+        Set<String> existingSkus = new HashSet<>(productRepository.findExistingSkus(bySku.keySet()));
+        Map<String, String> barcodeOwners = findBarcodeOwners(bySku.values());
+
+        List<ParsedRow> inserts = new ArrayList<>();
+        List<ParsedRow> updates = new ArrayList<>();
+        for (ParsedRow row : bySku.values()) {
+            ProductRequest request = row.request();
+            if (request.getCategoryId() != null && !job.knownCategories.contains(request.getCategoryId())) {
+                reject(job, row, "Category not found: " + request.getCategoryId());
+                continue;
+            }
+            if (request.getBarcode() != null) {
+                String owner = barcodeOwners.putIfAbsent(request.getBarcode(), row.sku());
+                if (owner != null && !owner.equals(row.sku())) {
+                    reject(job, row, "Barcode " + request.getBarcode() + " already belongs to SKU " + owner);
+                    continue;
+                }
+            }
+            (existingSkus.contains(row.sku()) ? updates : inserts).add(row);
+        }
+
+        write(job, inserts, updates);
+    }
+
+    private ParsedRow parse(RawRow raw) {
+        ProductRequest request;
+        try {
+            request = raw.json() != null
+                    ? objectMapper.readValue(raw.json(), ProductRequest.class)
+                    : objectMapper.convertValue(raw.fields(), ProductRequest.class);
+        } catch (IOException | IllegalArgumentException e) {
+            String sku = raw.fields() != null ? raw.fields().get("sku") : null;
+            return new ParsedRow(raw.line(), sku, null, "Unreadable row: " + firstLine(e.getMessage()));
+        }
+
+        if (request.getSku() != null) {
+            request.setSku(request.getSku().trim());
+        }
+        Set<ConstraintViolation<ProductRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new ParsedRow(raw.line(), request.getSku(), null, message);
+        }
+        return new ParsedRow(raw.line(), request.getSku(), request, null);
+    }
+
+    private void resolveCategories(ImportJob job, Collection<ParsedRow> rows) {
+        Set<Long> unknown = rows.stream()
+                .map(row -> row.request().getCategoryId())
+                .filter(Objects::nonNull)
+                .filter(categoryId -> !job.knownCategories.contains(categoryId))
+                .collect(Collectors.toSet());
+        if (!unknown.isEmpty()) {
+            for (Category category : categoryRepository.findAllById(unknown)) {
+                job.knownCategories.add(category.getCategoryId());
+            }
+        }
+    }
+
+    private Map<String, String> findBarcodeOwners(Collection<ParsedRow> rows) {
+        Set<String> barcodes = rows.stream()
+                .map(row -> row.request().getBarcode())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, String> owners = new HashMap<>();
+        if (!barcodes.isEmpty()) {
+            for (Object[] row : productRepository.findSkusByBarcodes(barcodes)) {
+                owners.put((String) row[0], (String) row[1]);
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Writes the chunk as one insert batch and one update batch in a single transaction. If the batch is
+     * rejected, the rows are retried one at a time so that only the offending rows are reported.
+     */
+    private void write(ImportJob job, List<ParsedRow> inserts, List<ParsedRow> updates) throws IOException {
+        if (inserts.isEmpty() && updates.isEmpty()) {
+            return;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (ps, row) -> bindInsert(ps, row, now));
+                }
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (ps, row) -> bindUpdate(ps, row, now));
+                }
+            });
+            job.inserted.addAndGet(inserts.size());
+            job.updated.addAndGet(updates.size());
+            return;
+        } catch (DataAccessException e) {
+            log.warn("Product import {} batch rejected, retrying {} rows individually: {}", job.jobId,
+                    inserts.size() + updates.size(), firstLine(e.getMessage()));
+        }
+
+        for (ParsedRow row : inserts) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.update(INSERT_SQL, ps -> bindInsert(ps, row, now)));
+                job.inserted.incrementAndGet();
+            } catch (DataAccessException e) {
+                reject(job, row, firstLine(e.getMostSpecificCause().getMessage()));
+            }
+        }
+        for (ParsedRow row : updates) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.update(UPDATE_SQL, ps -> bindUpdate(ps, row, now)));
+                job.updated.incrementAndGet();
+            } catch (DataAccessException e) {
+                reject(job, row, firstLine(e.getMostSpecificCause().getMessage()));
+            }
+        }
+    }
+
+    // Defaults match the entity's field initialisers
+    private static void bindInsert(PreparedStatement ps, ParsedRow row, Timestamp now) throws SQLException {
+        ProductRequest request = row.request();
+        ps.setString(1, row.sku());
+        ps.setString(2, request.getBarcode());
+        ps.setString(3, request.getProductName());
+        ps.setString(4, request.getDescription());
+        setLong(ps, 5, request.getCategoryId());
+        ps.setString(6, request.getUnitOfMeasure() != null ? request.getUnitOfMeasure() : "PCS");
+        ps.setBigDecimal(7, request.getCostPrice());
+        ps.setBigDecimal(8, request.getSellingPrice());
+        ps.setInt(9, request.getMinStockLevel() != null ? request.getMinStockLevel() : 10);
+        ps.setInt(10, request.getMaxStockLevel() != null ? request.getMaxStockLevel() : 1000);
+        ps.setInt(11, request.getReorderPoint() != null ? request.getReorderPoint() : 20);
+        ps.setInt(12, request.getReorderQuantity() != null ? request.getReorderQuantity() : 50);
+        ps.setString(13, request.getImageUrl());
+        ps.setTimestamp(14, now);
+        ps.setTimestamp(15, now);
+    }
+
+    private static void bindUpdate(PreparedStatement ps, ParsedRow row, Timestamp now) throws SQLException {
+        ProductRequest request = row.request();
+        ps.setString(1, request.getBarcode());
+        ps.setString(2, request.getProductName());
+        ps.setString(3, request.getDescription());
+        setLong(ps, 4, request.getCategoryId());
+        ps.setString(5, request.getUnitOfMeasure());
+        ps.setBigDecimal(6, request.getCostPrice());
+        ps.setBigDecimal(7, request.getSellingPrice());
+        setInt(ps, 8, request.getMinStockLevel());
+        setInt(ps, 9, request.getMaxStockLevel());
+        setInt(ps, 10, request.getReorderPoint());
+        setInt(ps, 11, request.getReorderQuantity());
+        ps.setString(12, request.getImageUrl());
+        ps.setTimestamp(13, now);
+        ps.setString(14, row.sku());
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value != null) {
+            ps.setLong(index, value);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+
+    private static void setInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private void reject(ImportJob job, ParsedRow row, String message) throws IOException {
+        job.failed.incrementAndGet();
+        ProductImportResponse.RowError error = new ProductImportResponse.RowError(row.line(), row.sku(), message);
+        if (job.firstErrors.size() < REPORTED_ERRORS) {
+            job.firstErrors.add(error);
+        }
+        job.errorWriter.write(objectMapper.writeValueAsString(error));
+        job.errorWriter.write('\n');
+    }
+
+    // Bulk JDBC writes bypass Hibernate, so drop cached products and reload the product indexes
+    private void refreshCaches() {
+        try {
+            entityManagerFactory.getCache().evict(Product.class);
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion("product-lookup");
+            productService.rebuildProductIndexes();
+        } catch (RuntimeException e) {
+            log.error("Could not refresh product caches after import", e);
+        }
+    }
+
+    private ImportJob findJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private static List<Object> toCsvRecord(ProductResponse product) {
+        return Arrays.asList(product.getSku(), product.getBarcode(), product.getProductName(), product.getDescription(),
+                product.getCategoryId(), product.getUnitOfMeasure(), product.getCostPrice(), product.getSellingPrice(),
+                product.getMinStockLevel(), product.getMaxStockLevel(), product.getReorderPoint(),
+                product.getReorderQuantity(), product.getImageUrl());
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return "Unknown error";
+        }
+        int newline = message.indexOf('\n');
+        return newline >= 0 ? message.substring(0, newline) : message;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", path, e);
+        }
+    }
+
+    private record RawRow(int line, Map<String, String> fields, String json) {
+    }
+
+    private record ParsedRow(int line, String sku, ProductRequest request, String error) {
+    }
+
+    private static final class ImportJob {
+        private final String jobId;
+        private final ProductFileFormat format;
+        private final Path upload;
+        private final Path errorReport;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<ProductImportResponse.RowError> firstErrors = new CopyOnWriteArrayList<>();
+        private final Set<Long> knownCategories = new HashSet<>();
+        private volatile ProductImportResponse.Status status = ProductImportResponse.Status.QUEUED;
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+        private Writer errorWriter;
+
+        ImportJob(String jobId, ProductFileFormat format, Path upload, Path errorReport) {
+            this.jobId = jobId;
+            this.format = format;
+            this.upload = upload;
+            this.errorReport = errorReport;
+        }
+
+        boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        ProductImportResponse toResponse() {
+            return ProductImportResponse.builder()
+                    .jobId(jobId)
+                    .status(status)
+                    .format(format)
+                    .rowsRead(rowsRead.get())
+                    .inserted(inserted.get())
+                    .updated(updated.get())
+                    .failed(failed.get())
+                    .errors(List.copyOf(firstErrors))
+                    .message(message)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
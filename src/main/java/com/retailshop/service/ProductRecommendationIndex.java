@@ -0,0 +1,234 @@
+package com.retailshop.service;
+
+import com.retailshop.repository.SalesOrderItemRepository;
+import com.retailshop.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Co-purchase recommendations from shipped orders. Pair counts live in sparse per-product rows of
+ * primitive arrays, and every product keeps a precomputed list of its most related products ranked by
+ * cosine similarity: orders containing both, over the geometric mean of each product's order count.
+ * A lookup is a single map read. Shipments re-rank only the products in the order; the periodic
+ * rebuild refreshes the rest, whose scores drift slightly as their neighbours' order counts grow.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductRecommendationIndex {
+
+    private static final long[] NONE = new long[0];
+
+    private final SalesOrderItemRepository salesOrderItemRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${recommendation.top-k:20}")
+    private int topK;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, CoPurchaseRow> rows = new HashMap<>();
+    private volatile Map<Long, long[]> related = new ConcurrentHashMap<>();
+    private List<Change> changesDuringRebuild;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long[] getRelated(Long productId, int limit) {
+        long[] productIds = related.getOrDefault(productId, NONE);
+        return productIds.length <= limit ? productIds : Arrays.copyOf(productIds, limit);
+    }
+
+    // A cancelled shipment passes shipped = false to take its pairs back out
+    public void recordOrderAfterCommit(Collection<Long> productIds, boolean shipped) {
+        long[] distinct = productIds.stream().mapToLong(Long::longValue).distinct().toArray();
+        Change change = new Change(distinct, shipped ? 1 : -1);
+        TransactionUtil.afterCommit(() -> record(change));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${recommendation.rebuild-interval-ms:21600000}",
+            initialDelayString = "${recommendation.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+
+        Map<Long, CoPurchaseRow> fresh = new HashMap<>();
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Object[] row : salesOrderItemRepository.countShippedOrdersByProduct()) {
+                    fresh.computeIfAbsent(((Number) row[0]).longValue(), id -> new CoPurchaseRow()).orders =
+                            ((Number) row[1]).intValue();
+                }
+                try (Stream<Object[]> pairs = salesOrderItemRepository.streamShippedCoPurchaseCounts()) {
+                    pairs.forEach(pair -> fresh.computeIfAbsent(((Number) pair[0]).longValue(), id -> new CoPurchaseRow())
+                            .add(((Number) pair[1]).longValue(), ((Number) pair[2]).intValue()));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            // Shipments committed while loading may already be in the load; the next rebuild evens that out
+            for (Change change : changesDuringRebuild) {
+                apply(fresh, change);
+            }
+            changesDuringRebuild = null;
+
+            Map<Long, long[]> ranked = new ConcurrentHashMap<>();
+            for (Long productId : fresh.keySet()) {
+                long[] productIds = rank(fresh, productId);
+                if (productIds.length > 0) {
+                    ranked.put(productId, productIds);
+                }
+            }
+            rows = fresh;
+            related = ranked;
+            ready = true;
+            log.info("Recommendation index loaded {} products with related items in {} ms", ranked.size(),
+                    System.currentTimeMillis() - started);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(Change change) {
+        lock.lock();
+        try {
+            apply(rows, change);
+            for (long productId : change.productIds()) {
+                long[] productIds = rank(rows, productId);
+                if (productIds.length > 0) {
+                    related.put(productId, productIds);
+                } else {
+                    related.remove(productId);
+                }
+            }
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void apply(Map<Long, CoPurchaseRow> target, Change change) {
+        for (long productId : change.productIds()) {
+            CoPurchaseRow row = target.computeIfAbsent(productId, id -> new CoPurchaseRow());
+            row.orders += change.delta();
+            for (long other : change.productIds()) {
+                if (other != productId) {
+                    row.add(other, change.delta());
+                }
+            }
+        }
+    }
+
+    private long[] rank(Map<Long, CoPurchaseRow> source, long productId) {
+        CoPurchaseRow row = source.get(productId);
+        if (row == null || row.orders <= 0) {
+            return NONE;
+        }
+
+        // Insertion into a sorted top-k, which beats a heap for the small k used here
+        long[] bestIds = new long[topK];
+        double[] bestScores = new double[topK];
+        int found = 0;
+        for (int slot = 0; slot < row.keys.length; slot++) {
+            if (row.keys[slot] == 0 || row.counts[slot] <= 0) {
+                continue;
+            }
+            CoPurchaseRow other = source.get(row.keys[slot]);
+            if (other == null || other.orders <= 0) {
+                continue;
+            }
+            double score = row.counts[slot] / Math.sqrt((double) row.orders * other.orders);
+            if (found == topK && score <= bestScores[found - 1]) {
+                continue;
+            }
+            int position = found < topK ? found++ : found - 1;
+            while (position > 0 && bestScores[position - 1] < score) {
+                bestScores[position] = bestScores[position - 1];
+                bestIds[position] = bestIds[position - 1];
+                position--;
+            }
+            bestScores[position] = score;
+            bestIds[position] = row.keys[slot];
+        }
+        return Arrays.copyOf(bestIds, found);
+    }
+
+    private record Change(long[] productIds, int delta) {
+    }
+
+    // Open-addressing map from partner product id to the number of orders shared with it
+    private static final class CoPurchaseRow {
+        private long[] keys = new long[8];
+        private int[] counts = new int[8];
+        private int size;
+        private int orders;
+
+        void add(long productId, int delta) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            int slot = slot(keys, productId);
+            if (keys[slot] == 0) {
+                keys[slot] = productId;
+                size++;
+            }
+            counts[slot] += delta;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int slot(long[] keys, long productId) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(productId * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != 0 && keys[slot] != productId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
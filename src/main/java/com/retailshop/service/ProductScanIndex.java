@@ -0,0 +1,134 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Exact-match lookup from barcode or SKU to a small immutable product summary, for point-of-sale scans.
+ * Reads are lock-free map lookups; writers are serialised and keep the id map in step so that a changed
+ * barcode or SKU stops resolving to the product. Stock levels are not held here, callers read them from
+ * the {@link StockLedger}, which is already kept current by every inventory write.
+ */
+@Component
+@Slf4j
+public class ProductScanIndex {
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Contents contents = new Contents();
+    private List<Consumer<Contents>> changesDuringRebuild;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return contents.byId.size();
+    }
+
+    /**
+     * Resolves a scanned code, trying it as a barcode first and then as a SKU.
+     */
+    public Entry find(String code) {
+        Contents current = contents;
+        Entry entry = current.byBarcode.get(code);
+        return entry != null ? entry : current.bySku.get(code);
+    }
+
+    public void beginRebuild() {
+        writeLock.lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void replaceAll(Collection<ProductResponse> products) {
+        Contents fresh = new Contents();
+        for (ProductResponse product : products) {
+            fresh.put(Entry.from(product));
+        }
+
+        writeLock.lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.forEach(change -> change.accept(fresh));
+                changesDuringRebuild = null;
+            }
+            contents = fresh;
+            ready = true;
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("Product scan index loaded {} products", products.size());
+    }
+
+    public void indexAfterCommit(ProductResponse product) {
+        Entry entry = Entry.from(product);
+        TransactionUtil.afterCommit(() -> apply(target -> target.put(entry)));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        TransactionUtil.afterCommit(() -> apply(target -> target.remove(productId)));
+    }
+
+    private void apply(Consumer<Contents> change) {
+        writeLock.lock();
+        try {
+            change.accept(contents);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public record Entry(Long productId, String sku, String barcode, String productName, String unitOfMeasure,
+                        BigDecimal sellingPrice, boolean active) {
+
+        static Entry from(ProductResponse product) {
+            return new Entry(product.getProductId(), product.getSku(), product.getBarcode(), product.getProductName(),
+                    product.getUnitOfMeasure(), product.getSellingPrice(), Boolean.TRUE.equals(product.getIsActive()));
+        }
+    }
+
+    private static final class Contents {
+        private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+        private final Map<String, Entry> byBarcode = new ConcurrentHashMap<>();
+        private final Map<String, Entry> bySku = new ConcurrentHashMap<>();
+
+        void put(Entry entry) {
+            remove(entry.productId());
+            byId.put(entry.productId(), entry);
+            if (entry.barcode() != null) {
+                byBarcode.put(entry.barcode(), entry);
+            }
+            if (entry.sku() != null) {
+                bySku.put(entry.sku(), entry);
+            }
+        }
+
+        void remove(Long productId) {
+            Entry previous = byId.remove(productId);
+            if (previous == null) {
+                return;
+            }
+            if (previous.barcode() != null) {
+                byBarcode.remove(previous.barcode(), previous);
+            }
+            if (previous.sku() != null) {
+                bySku.remove(previous.sku(), previous);
+            }
+        }
+    }
+}
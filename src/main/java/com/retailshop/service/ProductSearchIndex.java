@@ -0,0 +1,613 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over product SKU, barcode, name, category and description, ranked with BM25 using
+ * per-field boosts. Query terms match whole tokens, token prefixes through the sorted term dictionary,
+ * and, when neither hits, token substrings through a trigram index and then dictionary terms within a
+ * small edit distance. Products are indexed as response snapshots, so a search never touches the database;
+ * the index keeps its own copy of each snapshot and hands out copies, so callers cannot change what it holds.
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final float SKU_BOOST = 3f;
+    private static final float BARCODE_BOOST = 3f;
+    private static final float NAME_BOOST = 2f;
+    private static final float CATEGORY_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1f;
+    private static final double PREFIX_MATCH_WEIGHT = 0.7;
+    private static final double INFIX_MATCH_WEIGHT = 0.4;
+    private static final double FUZZY_MATCH_WEIGHT = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int GRAM_LENGTH = 3;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Contents contents = new Contents();
+    private List<Consumer<Contents>> changesDuringRebuild;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return contents.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts recording changes so that ones committed while the catalog is being read for
+     * {@link #replaceAll} are replayed onto the new contents instead of being lost with the old ones.
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void replaceAll(Collection<ProductResponse> products) {
+        Contents fresh = new Contents();
+        for (ProductResponse product : products) {
+            fresh.add(product);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.forEach(change -> change.accept(fresh));
+                changesDuringRebuild = null;
+            }
+            contents = fresh;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index loaded {} products", products.size());
+    }
+
+    public void indexAfterCommit(ProductResponse product) {
+        TransactionUtil.afterCommit(() -> put(product));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        TransactionUtil.afterCommit(() -> remove(productId));
+    }
+
+    public void renameCategoryAfterCommit(Long categoryId, String categoryName) {
+        TransactionUtil.afterCommit(() -> apply(target -> target.renameCategory(categoryId, categoryName)));
+    }
+
+    public void put(ProductResponse product) {
+        apply(target -> {
+            target.remove(product.getProductId());
+            target.add(product);
+        });
+    }
+
+    public void remove(Long productId) {
+        apply(target -> target.remove(productId));
+    }
+
+    /**
+     * Returns up to {@code limit} matches starting at {@code offset} in rank order. With {@code matchAll}
+     * every query term has to match a product, otherwise any term does and products matching more terms
+     * rank higher.
+     */
+    public List<ProductResponse> search(String query, int offset, int limit, boolean matchAll) {
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        if (queryTerms.isEmpty() || offset < 0 || limit < 1) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Contents current = contents;
+            if (current.documents.isEmpty()) {
+                return List.of();
+            }
+
+            List<Map<String, Double>> expansions = new ArrayList<>(queryTerms.size());
+            for (String queryTerm : queryTerms) {
+                Map<String, Double> termExpansions = current.expand(queryTerm);
+                if (matchAll && termExpansions.isEmpty()) {
+                    return List.of();
+                }
+                expansions.add(termExpansions);
+            }
+
+            // Ranking past the end of the catalogue finds nothing, so the heap never outgrows it
+            if (offset >= current.documents.size()) {
+                return List.of();
+            }
+            int depth = (int) Math.min((long) offset + limit, current.documents.size());
+            PriorityQueue<Hit> hits = new PriorityQueue<>(depth + 1);
+            if (matchAll) {
+                current.collectAllMatches(expansions, hits, depth);
+            } else {
+                current.collectAnyMatches(expansions, hits, depth);
+            }
+
+            List<ProductResponse> results = new ArrayList<>(hits.size());
+            while (!hits.isEmpty()) {
+                results.add(hits.poll().document().product());
+            }
+            Collections.reverse(results);
+            return results.stream().skip(offset).map(product -> product.toBuilder().build()).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<Contents> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(contents);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private record Document(int ordinal, ProductResponse product, Map<String, Float> terms, double length) {
+    }
+
+    // Ordered worst first, so the head of a bounded queue is the hit to drop
+    private record Hit(Document document, double score) implements Comparable<Hit> {
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : other.document.product().getProductId().compareTo(document.product().getProductId());
+        }
+    }
+
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+
+        void add(int ordinal, float frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void remove(int ordinal) {
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    size--;
+                    ordinals[i] = ordinals[size];
+                    frequencies[i] = frequencies[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Open-addressing map from document ordinal to score, sized to the postings it will hold.
+     */
+    static final class ScoreTable {
+        private static final int EMPTY = -1;
+
+        private int[] ordinals;
+        private double[] scores;
+        private int size;
+
+        ScoreTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1;
+            ordinals = new int[capacity];
+            scores = new double[capacity];
+            Arrays.fill(ordinals, EMPTY);
+        }
+
+        void add(int ordinal, double score) {
+            int slot = slot(ordinal);
+            scores[slot] += score;
+        }
+
+        void max(int ordinal, double score) {
+            int slot = slot(ordinal);
+            scores[slot] = Math.max(scores[slot], score);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(ScoreConsumer consumer) {
+            for (int slot = 0; slot < ordinals.length; slot++) {
+                if (ordinals[slot] != EMPTY) {
+                    consumer.accept(ordinals[slot], scores[slot]);
+                }
+            }
+        }
+
+        // Finds the ordinal's slot, claiming an empty one with a zero score when it is not there yet
+        private int slot(int ordinal) {
+            int mask = ordinals.length - 1;
+            int slot = (ordinal * 0x9E3779B9) >>> 1 & mask;
+            while (ordinals[slot] != EMPTY) {
+                if (ordinals[slot] == ordinal) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if ((size + 1) * 2 > ordinals.length) {
+                grow();
+                return slot(ordinal);
+            }
+            ordinals[slot] = ordinal;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldOrdinals = ordinals;
+            double[] oldScores = scores;
+            ordinals = new int[oldOrdinals.length * 2];
+            scores = new double[oldScores.length * 2];
+            Arrays.fill(ordinals, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldOrdinals.length; i++) {
+                if (oldOrdinals[i] != EMPTY) {
+                    scores[slot(oldOrdinals[i])] = oldScores[i];
+                }
+            }
+        }
+
+        @FunctionalInterface
+        interface ScoreConsumer {
+            void accept(int ordinal, double score);
+        }
+    }
+
+    private static final class Contents {
+        private final Map<Long, Document> documents = new HashMap<>();
+        private final List<Document> byOrdinal = new ArrayList<>();
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+        private final NavigableMap<String, Postings> postings = new TreeMap<>();
+        private final Map<String, Set<String>> grams = new HashMap<>();
+        private final Map<Integer, Set<String>> termsByLength = new HashMap<>();
+        private double totalLength;
+
+        void add(ProductResponse product) {
+            Map<String, Float> terms = new HashMap<>();
+            addField(terms, product.getSku(), SKU_BOOST);
+            addField(terms, product.getBarcode(), BARCODE_BOOST);
+            addField(terms, product.getProductName(), NAME_BOOST);
+            addField(terms, product.getCategoryName(), CATEGORY_BOOST);
+            addField(terms, product.getDescription(), DESCRIPTION_BOOST);
+
+            // Ordinals of removed products are reused so the scoring arrays stay sized to the catalog
+            int ordinal = freeOrdinals.isEmpty() ? byOrdinal.size() : freeOrdinals.pop();
+            double length = 0;
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                length += term.getValue();
+                Postings termPostings = postings.get(term.getKey());
+                if (termPostings == null) {
+                    termPostings = new Postings();
+                    postings.put(term.getKey(), termPostings);
+                    forEachGram(term.getKey(), gram -> grams.computeIfAbsent(gram, key -> new HashSet<>()).add(term.getKey()));
+                    termsByLength.computeIfAbsent(term.getKey().length(), key -> new HashSet<>()).add(term.getKey());
+                }
+                termPostings.add(ordinal, term.getValue());
+            }
+
+            Document document = new Document(ordinal, product.toBuilder().build(), terms, length);
+            documents.put(product.getProductId(), document);
+            if (ordinal == byOrdinal.size()) {
+                byOrdinal.add(document);
+            } else {
+                byOrdinal.set(ordinal, document);
+            }
+            totalLength += length;
+        }
+
+        void remove(Long productId) {
+            Document document = documents.remove(productId);
+            if (document == null) {
+                return;
+            }
+            for (String term : document.terms().keySet()) {
+                Postings termPostings = postings.get(term);
+                termPostings.remove(document.ordinal());
+                if (termPostings.size == 0) {
+                    postings.remove(term);
+                    forEachGram(term, gram -> {
+                        Set<String> gramTerms = grams.get(gram);
+                        gramTerms.remove(term);
+                        if (gramTerms.isEmpty()) {
+                            grams.remove(gram);
+                        }
+                    });
+                    Set<String> sameLength = termsByLength.get(term.length());
+                    sameLength.remove(term);
+                    if (sameLength.isEmpty()) {
+                        termsByLength.remove(term.length());
+                    }
+                }
+            }
+            byOrdinal.set(document.ordinal(), null);
+            freeOrdinals.push(document.ordinal());
+            totalLength -= document.length();
+        }
+
+        void renameCategory(Long categoryId, String categoryName) {
+            List<ProductResponse> renamed = new ArrayList<>();
+            for (Document document : documents.values()) {
+                if (categoryId.equals(document.product().getCategoryId())) {
+                    renamed.add(document.product().toBuilder().categoryName(categoryName).build());
+                }
+            }
+            for (ProductResponse product : renamed) {
+                remove(product.getProductId());
+                add(product);
+            }
+        }
+
+        /**
+         * Conjunctive search: walks the postings of the query term with the fewest candidates and checks
+         * the other terms against each candidate's own term map.
+         */
+        void collectAllMatches(List<Map<String, Double>> expansions, PriorityQueue<Hit> hits, int limit) {
+            List<Map<String, Double>> weightedIdfs = new ArrayList<>(expansions.size());
+            int driver = 0;
+            long fewest = Long.MAX_VALUE;
+            for (int i = 0; i < expansions.size(); i++) {
+                weightedIdfs.add(weightedIdfs(expansions.get(i)));
+                long candidates = 0;
+                for (String term : expansions.get(i).keySet()) {
+                    candidates += postings.get(term).size;
+                }
+                if (candidates < fewest) {
+                    fewest = candidates;
+                    driver = i;
+                }
+            }
+
+            double averageLength = totalLength / documents.size();
+            BitSet seen = new BitSet(byOrdinal.size());
+            for (String driverTerm : expansions.get(driver).keySet()) {
+                Postings driverPostings = postings.get(driverTerm);
+                for (int i = 0; i < driverPostings.size; i++) {
+                    int ordinal = driverPostings.ordinals[i];
+                    if (seen.get(ordinal)) {
+                        continue;
+                    }
+                    seen.set(ordinal);
+
+                    Document document = byOrdinal.get(ordinal);
+                    double norm = K1 * (1 - B + B * document.length() / averageLength);
+                    double score = 0;
+                    for (Map<String, Double> termIdfs : weightedIdfs) {
+                        double best = -1;
+                        for (Map.Entry<String, Double> expansion : termIdfs.entrySet()) {
+                            Float frequency = document.terms().get(expansion.getKey());
+                            if (frequency != null) {
+                                best = Math.max(best, bm25(expansion.getValue(), frequency, norm));
+                            }
+                        }
+                        if (best < 0) {
+                            score = -1;
+                            break;
+                        }
+                        score += best;
+                    }
+                    if (score >= 0) {
+                        offer(hits, document, score, limit);
+                    }
+                }
+            }
+        }
+
+        // Disjunctive search: each query term adds its best expansion score to every product it matches. Scores
+        // live in tables keyed by the ordinals the postings touch, so the cost follows the postings walked
+        void collectAnyMatches(List<Map<String, Double>> expansions, PriorityQueue<Hit> hits, int limit) {
+            double averageLength = totalLength / documents.size();
+            ScoreTable scores = new ScoreTable(16);
+
+            for (Map<String, Double> termExpansions : expansions) {
+                Map<String, Double> termIdfs = weightedIdfs(termExpansions);
+                int candidates = 0;
+                for (String term : termIdfs.keySet()) {
+                    candidates += postings.get(term).size;
+                }
+                ScoreTable termScores = new ScoreTable(candidates);
+                for (Map.Entry<String, Double> expansion : termIdfs.entrySet()) {
+                    Postings termPostings = postings.get(expansion.getKey());
+                    for (int i = 0; i < termPostings.size; i++) {
+                        int ordinal = termPostings.ordinals[i];
+                        double norm = K1 * (1 - B + B * byOrdinal.get(ordinal).length() / averageLength);
+                        termScores.max(ordinal, bm25(expansion.getValue(), termPostings.frequencies[i], norm));
+                    }
+                }
+                termScores.forEach(scores::add);
+            }
+
+            scores.forEach((ordinal, score) -> offer(hits, byOrdinal.get(ordinal), score, limit));
+        }
+
+        Map<String, Double> expand(String queryTerm) {
+            Map<String, Double> expansions = new HashMap<>();
+            if (postings.containsKey(queryTerm)) {
+                expansions.put(queryTerm, 1.0);
+            }
+            if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+                for (String term : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet()) {
+                    if (expansions.size() >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                    expansions.put(term, PREFIX_MATCH_WEIGHT);
+                }
+            }
+            if (expansions.isEmpty() && queryTerm.length() >= GRAM_LENGTH) {
+                for (String term : infixCandidates(queryTerm)) {
+                    if (expansions.size() >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                    if (term.contains(queryTerm)) {
+                        expansions.put(term, INFIX_MATCH_WEIGHT);
+                    }
+                }
+            }
+            if (expansions.isEmpty()) {
+                addTypoCandidates(queryTerm, expansions);
+            }
+            return expansions;
+        }
+
+        // Only terms whose length is within the edit budget can match, so scan just those length buckets
+        private void addTypoCandidates(String queryTerm, Map<String, Double> expansions) {
+            int maxEdits = queryTerm.length() >= 8 ? 2 : queryTerm.length() >= 4 ? 1 : 0;
+            if (maxEdits == 0) {
+                return;
+            }
+            int[][] rows = new int[3][queryTerm.length() + 1];
+            for (int length = queryTerm.length() - maxEdits; length <= queryTerm.length() + maxEdits; length++) {
+                for (String term : termsByLength.getOrDefault(length, Set.of())) {
+                    if (expansions.size() >= MAX_EXPANSIONS) {
+                        return;
+                    }
+                    int distance = editDistance(queryTerm, term, maxEdits, rows);
+                    if (distance <= maxEdits) {
+                        expansions.put(term, FUZZY_MATCH_WEIGHT / distance);
+                    }
+                }
+            }
+        }
+
+        private Map<String, Double> weightedIdfs(Map<String, Double> expansions) {
+            int documentCount = documents.size();
+            Map<String, Double> weightedIdfs = new HashMap<>();
+            for (Map.Entry<String, Double> expansion : expansions.entrySet()) {
+                int documentFrequency = postings.get(expansion.getKey()).size;
+                double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                weightedIdfs.put(expansion.getKey(), expansion.getValue() * idf);
+            }
+            return weightedIdfs;
+        }
+
+        /**
+         * Optimal string alignment distance (insertions, deletions, substitutions and adjacent
+         * transpositions), given up once every entry of a row exceeds {@code limit}.
+         */
+        private static int editDistance(String source, String target, int limit, int[][] rows) {
+            int[] beforePrevious = rows[0];
+            int[] previous = rows[1];
+            int[] current = rows[2];
+            for (int j = 0; j <= source.length(); j++) {
+                previous[j] = j;
+            }
+            for (int i = 1; i <= target.length(); i++) {
+                current[0] = i;
+                int rowMinimum = i;
+                for (int j = 1; j <= source.length(); j++) {
+                    int cost = source.charAt(j - 1) == target.charAt(i - 1) ? 0 : 1;
+                    int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                    if (i > 1 && j > 1 && source.charAt(j - 1) == target.charAt(i - 2)
+                            && source.charAt(j - 2) == target.charAt(i - 1)) {
+                        value = Math.min(value, beforePrevious[j - 2] + 1);
+                    }
+                    current[j] = value;
+                    rowMinimum = Math.min(rowMinimum, value);
+                }
+                if (rowMinimum > limit) {
+                    return limit + 1;
+                }
+                int[] recycled = beforePrevious;
+                beforePrevious = previous;
+                previous = current;
+                current = recycled;
+            }
+            return previous[source.length()];
+        }
+
+        private static double bm25(double weightedIdf, double frequency, double norm) {
+            return weightedIdf * frequency * (K1 + 1) / (frequency + norm);
+        }
+
+        private static void offer(PriorityQueue<Hit> hits, Document document, double score, int limit) {
+            if (hits.size() < limit) {
+                hits.add(new Hit(document, score));
+            } else if (score >= hits.peek().score()) {
+                Hit hit = new Hit(document, score);
+                if (hit.compareTo(hits.peek()) > 0) {
+                    hits.poll();
+                    hits.add(hit);
+                }
+            }
+        }
+
+        // Terms containing every trigram of the query term, starting from the rarest trigram
+        private Set<String> infixCandidates(String queryTerm) {
+            List<Set<String>> gramTerms = new ArrayList<>();
+            for (int i = 0; i + GRAM_LENGTH <= queryTerm.length(); i++) {
+                Set<String> terms = grams.get(queryTerm.substring(i, i + GRAM_LENGTH));
+                if (terms == null) {
+                    return Set.of();
+                }
+                gramTerms.add(terms);
+            }
+            gramTerms.sort(Comparator.comparingInt(Set::size));
+
+            Set<String> candidates = new HashSet<>(gramTerms.get(0));
+            for (int i = 1; i < gramTerms.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(gramTerms.get(i));
+            }
+            return candidates;
+        }
+
+        private static void addField(Map<String, Float> terms, String value, float boost) {
+            for (String token : tokenize(value)) {
+                terms.merge(token, boost, Float::sum);
+            }
+        }
+
+        private static void forEachGram(String term, Consumer<String> action) {
+            for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+                action.accept(term.substring(i, i + GRAM_LENGTH));
+            }
+        }
+    }
+}
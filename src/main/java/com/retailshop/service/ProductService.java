@@ -1,19 +1,32 @@
 package com.retailshop.service;
 
 import com.retailshop.dto.request.ProductRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.dto.response.ProductScanResponse;
 import com.retailshop.entity.Category;
 import com.retailshop.entity.Product;
 import com.retailshop.exception.DuplicateResourceException;
 import com.retailshop.exception.ResourceNotFoundException;
 import com.retailshop.repository.CategoryRepository;
+import com.retailshop.repository.InventoryRepository;
 import com.retailshop.repository.ProductRepository;
+import com.retailshop.util.Constants;
+import com.retailshop.util.PageUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +34,11 @@ public class ProductService implements IProductService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductScanIndex productScanIndex;
+    private final StockLedger stockLedger;
+    private final EntityManager entityManager;
 
     @Override
     @Transactional
@@ -53,7 +71,10 @@ public class ProductService implements IProductService {
                 .build();
 
         product = productRepository.save(product);
-        return convertToResponse(product);
+        ProductResponse response = convertToResponse(product);
+        productSearchIndex.indexAfterCommit(response);
+        productScanIndex.indexAfterCommit(response);
+        return response;
     }
 
     @Override
@@ -80,7 +101,10 @@ public class ProductService implements IProductService {
         product.setSku(request.getSku());
 
         product = productRepository.save(product);
-        return convertToResponse(product);
+        ProductResponse response = convertToResponse(product);
+        productSearchIndex.indexAfterCommit(response);
+        productScanIndex.indexAfterCommit(response);
+        return response;
     }
 
     @Override
@@ -105,6 +129,22 @@ public class ProductService implements IProductService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponse> getProductsPage(Long afterId, int size) {
+        return CursorPage.of(
+                productRepository.findByProductIdGreaterThanOrderByProductIdAsc(PageUtil.cursor(afterId), PageUtil.firstPage(size)),
+                Product::getProductId, this::convertToResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamProducts(Consumer<ProductResponse> consumer) {
+        try (Stream<Product> products = productRepository.streamAll()) {
+            PageUtil.forEachDetached(products, entityManager, product -> consumer.accept(convertToResponse(product)));
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponse> getActiveProducts() {
@@ -123,17 +163,85 @@ public class ProductService implements IProductService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<ProductResponse> searchProducts(String keyword) {
-        return productRepository.searchProducts(keyword).stream()
+    public List<ProductResponse> searchProducts(String keyword, int limit) {
+        int size = PageUtil.pageSize(limit);
+        if (productSearchIndex.isReady()) {
+            return productSearchIndex.search(keyword, 0, size, true);
+        }
+        // Until the index has loaded, fall back to scanning the table
+        return findProductsMatching(keyword, 0, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductResponse> findProductsMatching(String keyword, int offset, int limit) {
+        return productRepository.searchProducts(keyword, offset, limit).stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
+    // Not transactional: once the indexes are loaded a scan must not check out a database connection
+    @Override
+    public ProductScanResponse scanProduct(String code, Long warehouseId) {
+        String trimmed = code.trim();
+        ProductScanIndex.Entry entry;
+        if (productScanIndex.isReady()) {
+            entry = productScanIndex.find(trimmed);
+        } else {
+            entry = productRepository.findByBarcode(trimmed)
+                    .or(() -> productRepository.findBySku(trimmed))
+                    .map(product -> new ProductScanIndex.Entry(product.getProductId(), product.getSku(),
+                            product.getBarcode(), product.getProductName(), product.getUnitOfMeasure(),
+                            product.getSellingPrice(), Boolean.TRUE.equals(product.getIsActive())))
+                    .orElse(null);
+        }
+        if (entry == null) {
+            throw new ResourceNotFoundException("No product matches code: " + trimmed);
+        }
+
+        return ProductScanResponse.builder()
+                .productId(entry.productId())
+                .sku(entry.sku())
+                .barcode(entry.barcode())
+                .productName(entry.productName())
+                .unitOfMeasure(entry.unitOfMeasure())
+                .sellingPrice(entry.sellingPrice())
+                .isActive(entry.active())
+                .stock(findStock(entry.productId(), warehouseId))
+                .build();
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildProductIndexes() {
+        productSearchIndex.beginRebuild();
+        productScanIndex.beginRebuild();
+        // Keyset pages rather than the export stream: its row-by-row fetch size is MySQL only and would pin the
+        // connection in streaming mode for the whole load
+        List<ProductResponse> products = new ArrayList<>();
+        long afterId = 0L;
+        Slice<Product> page;
+        do {
+            page = productRepository.findByProductIdGreaterThanOrderByProductIdAsc(afterId,
+                    PageUtil.firstPage(Constants.MAX_PAGE_SIZE));
+            for (Product product : page) {
+                products.add(convertToResponse(product));
+                afterId = product.getProductId();
+            }
+            entityManager.clear();
+        } while (page.hasNext());
+        productSearchIndex.replaceAll(products);
+        productScanIndex.replaceAll(products);
+    }
+
     @Override
     @Transactional
     public void deleteProduct(Long productId) {
         Product product = getProductEntityById(productId);
         productRepository.delete(product);
+        productSearchIndex.removeAfterCommit(productId);
+        productScanIndex.removeAfterCommit(productId);
     }
 
     @Override
@@ -141,7 +249,31 @@ public class ProductService implements IProductService {
     public void deactivateProduct(Long productId) {
         Product product = getProductEntityById(productId);
         product.setIsActive(false);
-        productRepository.save(product);
+        product = productRepository.save(product);
+        ProductResponse response = convertToResponse(product);
+        productSearchIndex.indexAfterCommit(response);
+        productScanIndex.indexAfterCommit(response);
+    }
+
+    private List<ProductScanResponse.WarehouseStock> findStock(Long productId, Long warehouseId) {
+        boolean fromLedger = warehouseId != null ? stockLedger.covers(warehouseId) : stockLedger.isComplete();
+        if (!fromLedger) {
+            return inventoryRepository.findByProduct_ProductId(productId).stream()
+                    .filter(inventory -> warehouseId == null || inventory.getWarehouse().getWarehouseId().equals(warehouseId))
+                    .map(inventory -> new ProductScanResponse.WarehouseStock(inventory.getWarehouse().getWarehouseId(),
+                            inventory.getQuantityOnHand(), inventory.getQuantityAvailable()))
+                    .collect(Collectors.toList());
+        }
+
+        Set<Long> warehouseIds = warehouseId != null ? Set.of(warehouseId) : stockLedger.getWarehouses(productId);
+        List<ProductScanResponse.WarehouseStock> stock = new ArrayList<>(warehouseIds.size());
+        for (Long id : warehouseIds) {
+            Integer onHand = stockLedger.getQuantityOnHand(productId, id);
+            if (onHand != null) {
+                stock.add(new ProductScanResponse.WarehouseStock(id, onHand, stockLedger.getQuantityAvailable(productId, id)));
+            }
+        }
+        return stock;
     }
 
     private ProductResponse convertToResponse(Product product) {
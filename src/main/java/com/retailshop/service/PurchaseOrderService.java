@@ -2,11 +2,17 @@ package com.retailshop.service;
 
 import com.retailshop.dto.request.PurchaseOrderItemRequest;
 import com.retailshop.dto.request.PurchaseOrderRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.PurchaseOrderResponse;
 import com.retailshop.entity.*;
 import com.retailshop.exception.ResourceNotFoundException;
 import com.retailshop.repository.*;
+import com.retailshop.util.PageUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,7 +21,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -28,7 +36,12 @@ public class PurchaseOrderService implements IPurchaseOrderService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final InventoryRepository inventoryRepository;
-    private final InventoryTransactionRepository transactionRepository;
+    private final StockLedger stockLedger;
+    private final InventoryJournal inventoryJournal;
+    private final EventOutbox eventOutbox;
+    private final WarehouseShardRouter shardRouter;
+    private final IDocumentNumberService documentNumberService;
+    private final EntityManager entityManager;
 
     @Override
     @Transactional
@@ -42,7 +55,7 @@ public class PurchaseOrderService implements IPurchaseOrderService {
         User currentUser = getCurrentUser();
 
         // Generate PO number
-        String poNumber = generatePONumber();
+        String poNumber = documentNumberService.nextNumber("PO");
 
         PurchaseOrder purchaseOrder = PurchaseOrder.builder()
                 .poNumber(poNumber)
@@ -142,6 +155,22 @@ public class PurchaseOrderService implements IPurchaseOrderService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PurchaseOrderResponse> getPurchaseOrdersPage(Long afterId, int size) {
+        return CursorPage.of(
+                purchaseOrderRepository.findByPoIdGreaterThanOrderByPoIdAsc(PageUtil.cursor(afterId), PageUtil.firstPage(size)),
+                PurchaseOrder::getPoId, this::convertToResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamPurchaseOrders(Consumer<PurchaseOrderResponse> consumer) {
+        try (Stream<PurchaseOrder> purchaseOrders = purchaseOrderRepository.streamAll()) {
+            PageUtil.forEachDetached(purchaseOrders, entityManager, purchaseOrder -> consumer.accept(convertToResponse(purchaseOrder)));
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<PurchaseOrderResponse> getPurchaseOrdersBySupplier(Long supplierId) {
@@ -186,6 +215,9 @@ public class PurchaseOrderService implements IPurchaseOrderService {
 
     @Override
     @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
     public PurchaseOrderResponse receivePurchaseOrder(Long poId) {
         PurchaseOrder purchaseOrder = purchaseOrderRepository.findById(poId)
                 .orElseThrow(() -> new ResourceNotFoundException("Purchase order not found"));
@@ -193,6 +225,7 @@ public class PurchaseOrderService implements IPurchaseOrderService {
         if (purchaseOrder.getStatus() != PurchaseOrder.OrderStatus.APPROVED) {
             throw new IllegalStateException("Can only receive APPROVED purchase orders");
         }
+        shardRouter.requireLocal(purchaseOrder.getWarehouse().getWarehouseId());
 
         // Update inventory for each item
         for (PurchaseOrderItem item : purchaseOrder.getItems()) {
@@ -211,6 +244,8 @@ public class PurchaseOrderService implements IPurchaseOrderService {
             inventory.setQuantityOnHand(inventory.getQuantityOnHand() + item.getQuantityOrdered());
             inventory.setLastRestockDate(LocalDate.now());
             inventoryRepository.save(inventory);
+            stockLedger.applyAfterCommit(item.getProduct().getProductId(), purchaseOrder.getWarehouse().getWarehouseId(),
+                    item.getQuantityOrdered(), 0);
 
             // Update received quantity
             item.setQuantityReceived(item.getQuantityOrdered());
@@ -229,12 +264,20 @@ public class PurchaseOrderService implements IPurchaseOrderService {
                     .notes("Received from PO: " + purchaseOrder.getPoNumber())
                     .build();
 
-            transactionRepository.save(transaction);
+            inventoryJournal.append(transaction);
+            eventOutbox.publishStockChanged(item.getProduct().getProductId(), purchaseOrder.getWarehouse().getWarehouseId(),
+                    item.getQuantityOrdered(), 0, inventory.getQuantityOnHand());
         }
 
         purchaseOrder.setStatus(PurchaseOrder.OrderStatus.RECEIVED);
         purchaseOrder.setActualDeliveryDate(LocalDate.now());
         purchaseOrder = purchaseOrderRepository.save(purchaseOrder);
+        eventOutbox.publish(OutboxEvent.Type.PURCHASE_ORDER_RECEIVED, purchaseOrder.getPoId(),
+                new OutboxEvent.OrderChanged(purchaseOrder.getPoId(), purchaseOrder.getPoNumber(),
+                        purchaseOrder.getWarehouse().getWarehouseId(), purchaseOrder.getStatus().name(),
+                        purchaseOrder.getItems().stream()
+                                .map(item -> new OutboxEvent.Line(item.getProduct().getProductId(), item.getQuantityReceived()))
+                                .toList()));
 
         return convertToResponse(purchaseOrder);
     }
@@ -268,11 +311,6 @@ public class PurchaseOrderService implements IPurchaseOrderService {
         purchaseOrderRepository.delete(purchaseOrder);
     }
 
-    private String generatePONumber() {
-        long count = purchaseOrderRepository.count();
-        return "PO-" + LocalDate.now().getYear() + "-" + String.format("%06d", count + 1);
-    }
-
     private User getCurrentUser() {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         return userRepository.findByUsername(username)
@@ -2,12 +2,17 @@ package com.retailshop.service;
 
 import com.retailshop.dto.request.SalesOrderItemRequest;
 import com.retailshop.dto.request.SalesOrderRequest;
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.dto.response.SalesOrderResponse;
 import com.retailshop.entity.*;
-import com.retailshop.exception.InsufficientStockException;
 import com.retailshop.exception.ResourceNotFoundException;
 import com.retailshop.repository.*;
+import com.retailshop.util.PageUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,7 +22,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,11 +35,16 @@ public class SalesOrderService implements ISalesOrderService {
     private final SalesOrderItemRepository salesOrderItemRepository;
     private final CustomerRepository customerRepository;
     private final WarehouseRepository warehouseRepository;
-    private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final InventoryRepository inventoryRepository;
-    private final InventoryTransactionRepository transactionRepository;
     private final IInventoryService inventoryService;
+    private final IDocumentNumberService documentNumberService;
+    private final StockLedger stockLedger;
+    private final InventoryJournal inventoryJournal;
+    private final DailySalesRollupRepository rollupRepository;
+    private final ProductRecommendationIndex productRecommendationIndex;
+    private final EventOutbox eventOutbox;
+    private final EntityManager entityManager;
 
     @Override
     @Transactional
@@ -44,20 +57,11 @@ public class SalesOrderService implements ISalesOrderService {
 
         User currentUser = getCurrentUser();
 
-        // Check stock availability for all items
-        for (SalesOrderItemRequest itemRequest : request.getItems()) {
-            if (!inventoryService.checkStockAvailability(
-                    itemRequest.getProductId(),
-                    request.getWarehouseId(),
-                    itemRequest.getQuantity())) {
-                Product product = productRepository.findById(itemRequest.getProductId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-                throw new InsufficientStockException("Insufficient stock for product: " + product.getProductName());
-            }
-        }
+        // Reserve stock for all items at once, nothing is reserved if any line is short
+        Map<Long, Product> products = inventoryService.reserveStock(warehouse.getWarehouseId(), request.getItems());
 
         // Generate SO number
-        String soNumber = generateSONumber();
+        String soNumber = documentNumberService.nextNumber("SO");
 
         SalesOrder salesOrder = SalesOrder.builder()
                 .soNumber(soNumber)
@@ -73,15 +77,12 @@ public class SalesOrderService implements ISalesOrderService {
                 .items(new ArrayList<>())
                 .build();
 
-        salesOrder = salesOrderRepository.save(salesOrder);
-
         // Add items and calculate totals
         BigDecimal subtotal = BigDecimal.ZERO;
         BigDecimal taxAmount = BigDecimal.ZERO;
 
         for (SalesOrderItemRequest itemRequest : request.getItems()) {
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            Product product = products.get(itemRequest.getProductId());
 
             SalesOrderItem item = SalesOrderItem.builder()
                     .salesOrder(salesOrder)
@@ -97,9 +98,6 @@ public class SalesOrderService implements ISalesOrderService {
             BigDecimal lineTotal = item.getLineTotal();
             subtotal = subtotal.add(lineTotal);
             taxAmount = taxAmount.add(lineTotal.multiply(item.getTaxRate()).divide(new BigDecimal(100)));
-
-            // Reserve stock
-            inventoryService.reserveStock(product.getProductId(), warehouse.getWarehouseId(), itemRequest.getQuantity());
         }
 
         salesOrder.setSubtotal(subtotal);
@@ -123,12 +121,16 @@ public class SalesOrderService implements ISalesOrderService {
         }
         salesOrder.setStatus(SalesOrder.OrderStatus.CONFIRMED);
         salesOrder = salesOrderRepository.save(salesOrder);
+        publish(OutboxEvent.Type.SALES_ORDER_CONFIRMED, salesOrder);
 
         return convertToResponse(salesOrder);
     }
 
     @Override
     @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
     public SalesOrderResponse shipSalesOrder(Long soId) {
         SalesOrder salesOrder = salesOrderRepository.findById(soId)
                 .orElseThrow(() -> new ResourceNotFoundException("Sales order not found"));
@@ -137,7 +139,8 @@ public class SalesOrderService implements ISalesOrderService {
             throw new IllegalStateException("Can only ship CONFIRMED sales orders");
         }
 
-        // Deduct from inventory
+        // Deduct from inventory and roll the shipped lines into today's sales
+        LocalDate shipDate = LocalDate.now();
         for (SalesOrderItem item : salesOrder.getItems()) {
             Inventory inventory = inventoryRepository
                     .findByProduct_ProductIdAndWarehouse_WarehouseId(
@@ -149,6 +152,8 @@ public class SalesOrderService implements ISalesOrderService {
             inventory.setQuantityOnHand(inventory.getQuantityOnHand() - item.getQuantity());
             inventory.setQuantityReserved(inventory.getQuantityReserved() - item.getQuantity());
             inventoryRepository.save(inventory);
+            stockLedger.applyAfterCommit(item.getProduct().getProductId(), salesOrder.getWarehouse().getWarehouseId(),
+                    -item.getQuantity(), -item.getQuantity());
 
             // Record transaction
             InventoryTransaction transaction = InventoryTransaction.builder()
@@ -164,11 +169,17 @@ public class SalesOrderService implements ISalesOrderService {
                     .notes("Sale from SO: " + salesOrder.getSoNumber())
                     .build();
 
-            transactionRepository.save(transaction);
+            inventoryJournal.append(transaction);
+            eventOutbox.publishStockChanged(item.getProduct().getProductId(), salesOrder.getWarehouse().getWarehouseId(),
+                    -item.getQuantity(), -item.getQuantity(), inventory.getQuantityOnHand());
+            rollupRepository.addSale(item.getProduct().getProductId(), salesOrder.getWarehouse().getWarehouseId(),
+                    shipDate, item.getQuantity(), item.getLineTotal());
         }
 
         salesOrder.setStatus(SalesOrder.OrderStatus.SHIPPED);
         salesOrder = salesOrderRepository.save(salesOrder);
+        publish(OutboxEvent.Type.SALES_ORDER_SHIPPED, salesOrder);
+        productRecommendationIndex.recordOrderAfterCommit(orderedProductIds(salesOrder), true);
 
         return convertToResponse(salesOrder);
     }
@@ -192,6 +203,9 @@ public class SalesOrderService implements ISalesOrderService {
 
     @Override
     @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
     public SalesOrderResponse cancelSalesOrder(Long soId) {
         SalesOrder salesOrder = salesOrderRepository.findById(soId)
                 .orElseThrow(() -> new ResourceNotFoundException("Sales order not found"));
@@ -200,8 +214,10 @@ public class SalesOrderService implements ISalesOrderService {
             throw new IllegalStateException("Cannot cancel delivered sales orders");
         }
 
-        // Release reserved stock if not shipped
-        if (salesOrder.getStatus() != SalesOrder.OrderStatus.SHIPPED) {
+        // Release reserved stock if not shipped; a shipped order no longer counts as bought together
+        if (salesOrder.getStatus() == SalesOrder.OrderStatus.SHIPPED) {
+            productRecommendationIndex.recordOrderAfterCommit(orderedProductIds(salesOrder), false);
+        } else {
             for (SalesOrderItem item : salesOrder.getItems()) {
                 inventoryService.releaseReservedStock(
                         item.getProduct().getProductId(),
@@ -212,12 +228,16 @@ public class SalesOrderService implements ISalesOrderService {
 
         salesOrder.setStatus(SalesOrder.OrderStatus.CANCELLED);
         salesOrder = salesOrderRepository.save(salesOrder);
+        publish(OutboxEvent.Type.SALES_ORDER_CANCELLED, salesOrder);
 
         return convertToResponse(salesOrder);
     }
 
     @Override
     @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
     public SalesOrderResponse updateSalesOrder(Long soId, SalesOrderRequest request) {
         SalesOrder salesOrder = salesOrderRepository.findById(soId)
                 .orElseThrow(() -> new ResourceNotFoundException("Sales order not found"));
@@ -242,12 +262,14 @@ public class SalesOrderService implements ISalesOrderService {
         salesOrder.getItems().clear();
         salesOrderItemRepository.deleteAll(salesOrderItemRepository.findBySalesOrder_SoId(soId));
 
+        // Reserve new stock
+        Map<Long, Product> products = inventoryService.reserveStock(salesOrder.getWarehouse().getWarehouseId(), request.getItems());
+
         BigDecimal subtotal = BigDecimal.ZERO;
         BigDecimal taxAmount = BigDecimal.ZERO;
 
         for (SalesOrderItemRequest itemRequest : request.getItems()) {
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            Product product = products.get(itemRequest.getProductId());
 
             SalesOrderItem item = SalesOrderItem.builder()
                     .salesOrder(salesOrder)
@@ -263,9 +285,6 @@ public class SalesOrderService implements ISalesOrderService {
             BigDecimal lineTotal = item.getLineTotal();
             subtotal = subtotal.add(lineTotal);
             taxAmount = taxAmount.add(lineTotal.multiply(item.getTaxRate()).divide(new BigDecimal(100)));
-
-            // Reserve new stock
-            inventoryService.reserveStock(product.getProductId(), salesOrder.getWarehouse().getWarehouseId(), itemRequest.getQuantity());
         }
 
         salesOrder.setSubtotal(subtotal);
@@ -294,6 +313,22 @@ public class SalesOrderService implements ISalesOrderService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<SalesOrderResponse> getSalesOrdersPage(Long afterId, int size) {
+        return CursorPage.of(
+                salesOrderRepository.findBySoIdGreaterThanOrderBySoIdAsc(PageUtil.cursor(afterId), PageUtil.firstPage(size)),
+                SalesOrder::getSoId, this::convertToResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamSalesOrders(Consumer<SalesOrderResponse> consumer) {
+        try (Stream<SalesOrder> salesOrders = salesOrderRepository.streamAll()) {
+            PageUtil.forEachDetached(salesOrders, entityManager, salesOrder -> consumer.accept(convertToResponse(salesOrder)));
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<SalesOrderResponse> getSalesOrdersByCustomer(Long customerId) {
@@ -331,17 +366,26 @@ public class SalesOrderService implements ISalesOrderService {
         salesOrderRepository.delete(salesOrder);
     }
 
-    private String generateSONumber() {
-        long count = salesOrderRepository.count();
-        return "SO-" + LocalDate.now().getYear() + "-" + String.format("%06d", count + 1);
-    }
-
     private User getCurrentUser() {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Current user not found"));
     }
 
+    private void publish(OutboxEvent.Type type, SalesOrder salesOrder) {
+        eventOutbox.publish(type, salesOrder.getSoId(), new OutboxEvent.OrderChanged(salesOrder.getSoId(),
+                salesOrder.getSoNumber(), salesOrder.getWarehouse().getWarehouseId(), salesOrder.getStatus().name(),
+                salesOrder.getItems().stream()
+                        .map(item -> new OutboxEvent.Line(item.getProduct().getProductId(), item.getQuantity()))
+                        .toList()));
+    }
+
+    private List<Long> orderedProductIds(SalesOrder salesOrder) {
+        return salesOrder.getItems().stream()
+                .map(item -> item.getProduct().getProductId())
+                .toList();
+    }
+
     private SalesOrderResponse convertToResponse(SalesOrder so) {
         return SalesOrderResponse.builder()
                 .soId(so.getSoId())
@@ -0,0 +1,48 @@
+package com.retailshop.service;
+
+import com.retailshop.repository.DailySalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupService implements ISalesRollupService {
+
+    private static final int CHUNK_DAYS = 31;
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final IDashboardService dashboardService;
+
+    // Replaces the rollup for [from, to] with totals recomputed from the transaction journal, so running it again is harmless
+    @Override
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalStateException("Rebuild start date must not be after the end date");
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int rows = 0;
+        LocalDate chunkStart = from;
+        while (!chunkStart.isAfter(to)) {
+            LocalDate start = chunkStart;
+            LocalDate end = start.plusDays(CHUNK_DAYS).isAfter(to) ? to.plusDays(1) : start.plusDays(CHUNK_DAYS);
+            Integer written = transactionTemplate.execute(status -> {
+                rollupRepository.deleteBetween(start, end);
+                return rollupRepository.rebuildBetween(start.atStartOfDay(), end.atStartOfDay());
+            });
+            rows += written;
+            chunkStart = end;
+        }
+
+        log.info("Rebuilt daily sales rollup from {} to {} ({} rows)", from, to, rows);
+        dashboardService.invalidate();
+        return rows;
+    }
+}
@@ -0,0 +1,204 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.dto.request.InventoryUpdateRequest;
+import com.retailshop.dto.request.SalesOrderRequest;
+import com.retailshop.dto.response.ApiResponse;
+import com.retailshop.dto.response.InventoryResponse;
+import com.retailshop.dto.response.SalesOrderResponse;
+import com.retailshop.exception.DuplicateResourceException;
+import com.retailshop.exception.InsufficientStockException;
+import com.retailshop.exception.RemoteShardException;
+import com.retailshop.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls the internal shard endpoints of the node that owns a warehouse. Requests carry the shared shard secret
+ * and the caller's username; business failures come back with the exception type in a header and are rethrown
+ * as the same exception, and any other failure keeps the owner's status, so a routed call fails exactly like a
+ * local one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShardClient {
+
+    public static final String SECRET_HEADER = "X-Shard-Secret";
+    public static final String USER_HEADER = "X-Shard-User";
+    public static final String ERROR_HEADER = "X-Shard-Error";
+
+    private static final String BASE_PATH = "/internal/shard";
+
+    private final WarehouseShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final RestClient.Builder restClientBuilder;
+
+    @Value("${inventory.shard.secret}")
+    private String secret;
+
+    @Value("${inventory.shard.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${inventory.shard.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
+    private RestClient restClient;
+    private ExecutorService ledgerForwarder;
+
+    @PostConstruct
+    void start() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        restClient = restClientBuilder.requestFactory(requestFactory).build();
+        ledgerForwarder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-ledger-forwarder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        ledgerForwarder.shutdown();
+        ledgerForwarder.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public InventoryResponse updateInventory(String nodeId, InventoryUpdateRequest request) {
+        return call(HttpMethod.POST, nodeId, "/inventory/update", request,
+                new ParameterizedTypeReference<ApiResponse<InventoryResponse>>() {});
+    }
+
+    public InventoryResponse adjustInventory(String nodeId, Long productId, Long warehouseId, Integer quantity, String reason) {
+        return call(HttpMethod.POST, nodeId,
+                "/inventory/adjust?productId={productId}&warehouseId={warehouseId}&quantity={quantity}&reason={reason}", null,
+                new ParameterizedTypeReference<ApiResponse<InventoryResponse>>() {},
+                productId, warehouseId, quantity, reason != null ? reason : "");
+    }
+
+    public void reserveStock(String nodeId, Long productId, Long warehouseId, Integer quantity) {
+        call(HttpMethod.POST, nodeId, "/inventory/reserve?productId={productId}&warehouseId={warehouseId}&quantity={quantity}",
+                null, new ParameterizedTypeReference<ApiResponse<Void>>() {}, productId, warehouseId, quantity);
+    }
+
+    public void releaseReservedStock(String nodeId, Long productId, Long warehouseId, Integer quantity) {
+        call(HttpMethod.POST, nodeId, "/inventory/release?productId={productId}&warehouseId={warehouseId}&quantity={quantity}",
+                null, new ParameterizedTypeReference<ApiResponse<Void>>() {}, productId, warehouseId, quantity);
+    }
+
+    public Long prepareTransfer(String nodeId, Long productId, Long fromWarehouseId, Long toWarehouseId, Integer quantity) {
+        return call(HttpMethod.POST, nodeId,
+                "/transfers/prepare?productId={productId}&fromWarehouseId={fromWarehouseId}&toWarehouseId={toWarehouseId}&quantity={quantity}",
+                null, new ParameterizedTypeReference<ApiResponse<Long>>() {}, productId, fromWarehouseId, toWarehouseId, quantity);
+    }
+
+    public void commitTransfer(String nodeId, Long transferId) {
+        call(HttpMethod.POST, nodeId, "/transfers/{transferId}/commit", null,
+                new ParameterizedTypeReference<ApiResponse<Void>>() {}, transferId);
+    }
+
+    public boolean abortTransfer(String nodeId, Long transferId) {
+        Boolean aborted = call(HttpMethod.POST, nodeId, "/transfers/{transferId}/abort", null,
+                new ParameterizedTypeReference<ApiResponse<Boolean>>() {}, transferId);
+        return Boolean.TRUE.equals(aborted);
+    }
+
+    public SalesOrderResponse createSalesOrder(String nodeId, SalesOrderRequest request) {
+        return call(HttpMethod.POST, nodeId, "/sales-orders", request,
+                new ParameterizedTypeReference<ApiResponse<SalesOrderResponse>>() {});
+    }
+
+    public SalesOrderResponse updateSalesOrder(String nodeId, Long soId, SalesOrderRequest request) {
+        return call(HttpMethod.PUT, nodeId, "/sales-orders/{soId}", request,
+                new ParameterizedTypeReference<ApiResponse<SalesOrderResponse>>() {}, soId);
+    }
+
+    public SalesOrderResponse shipSalesOrder(String nodeId, Long soId) {
+        return call(HttpMethod.POST, nodeId, "/sales-orders/{soId}/ship", null,
+                new ParameterizedTypeReference<ApiResponse<SalesOrderResponse>>() {}, soId);
+    }
+
+    public SalesOrderResponse cancelSalesOrder(String nodeId, Long soId) {
+        return call(HttpMethod.POST, nodeId, "/sales-orders/{soId}/cancel", null,
+                new ParameterizedTypeReference<ApiResponse<SalesOrderResponse>>() {}, soId);
+    }
+
+    // Best effort: a lost delta is repaired by the owner's next ledger reconciliation
+    public void forwardLedgerDelta(long productId, long warehouseId, int onHandDelta, int reservedDelta) {
+        String nodeId = shardRouter.ownerOf(warehouseId);
+        ledgerForwarder.execute(() -> {
+            try {
+                call(HttpMethod.POST, nodeId,
+                        "/ledger/apply?productId={productId}&warehouseId={warehouseId}&onHandDelta={onHandDelta}&reservedDelta={reservedDelta}",
+                        null, new ParameterizedTypeReference<ApiResponse<Void>>() {},
+                        productId, warehouseId, onHandDelta, reservedDelta);
+            } catch (RuntimeException ex) {
+                log.warn("Could not forward stock ledger delta for warehouse {} to node {}: {}", warehouseId, nodeId, ex.getMessage());
+            }
+        });
+    }
+
+    private <T> T call(HttpMethod method, String nodeId, String path, Object body,
+                       ParameterizedTypeReference<ApiResponse<T>> responseType, Object... uriVariables) {
+        RestClient.RequestBodySpec request = restClient.method(method)
+                .uri(shardRouter.urlOf(nodeId) + BASE_PATH + path, uriVariables)
+                .header(SECRET_HEADER, secret);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null) {
+            request.header(USER_HEADER, authentication.getName());
+        }
+        if (body != null) {
+            request.contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+
+        ApiResponse<T> response = request.retrieve()
+                .onStatus(HttpStatusCode::isError, (req, res) -> {
+                    throw remoteFailure(nodeId, res);
+                })
+                .body(responseType);
+        return response != null ? response.getData() : null;
+    }
+
+    private RuntimeException remoteFailure(String nodeId, ClientHttpResponse response) throws IOException {
+        String message;
+        Object data = null;
+        try {
+            ApiResponse<?> body = objectMapper.readValue(response.getBody(), ApiResponse.class);
+            message = body.getMessage();
+            data = body.getData();
+        } catch (IOException ex) {
+            message = "Shard node " + nodeId + " answered " + response.getStatusCode().value() + ": " + response.getStatusText();
+        }
+
+        // Conflicts and validation failures of the owner have no header; keep their status instead of a 500
+        String error = response.getHeaders().getFirst(ERROR_HEADER);
+        if (error == null) {
+            return new RemoteShardException(response.getStatusCode(), message, data);
+        }
+        return switch (error) {
+            case "ResourceNotFoundException" -> new ResourceNotFoundException(message);
+            case "InsufficientStockException" -> new InsufficientStockException(message);
+            case "DuplicateResourceException" -> new DuplicateResourceException(message);
+            default -> new IllegalStateException(message);
+        };
+    }
+}
@@ -0,0 +1,169 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.request.InventoryUpdateRequest;
+import com.retailshop.dto.request.SalesOrderItemRequest;
+import com.retailshop.dto.response.CursorPage;
+import com.retailshop.dto.response.InventoryResponse;
+import com.retailshop.entity.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Sends stock writes to the node that owns the warehouse, so each warehouse's rows are only written by one
+ * node and its ledger stays local. Reads and writes for locally owned warehouses go straight to
+ * {@link InventoryService}. Transfers between warehouses of different nodes run as prepare on the source owner
+ * and commit on the destination owner, aborting the prepared debit if the commit fails.
+ */
+@Service
+@Primary
+@RequiredArgsConstructor
+@Slf4j
+public class ShardRoutingInventoryService implements IInventoryService {
+
+    private final InventoryService inventoryService;
+    private final IStockTransferService stockTransferService;
+    private final WarehouseShardRouter shardRouter;
+    private final ShardClient shardClient;
+
+    @Override
+    public InventoryResponse getInventory(Long productId, Long warehouseId) {
+        return inventoryService.getInventory(productId, warehouseId);
+    }
+
+    @Override
+    public List<InventoryResponse> getInventoryByProduct(Long productId) {
+        return inventoryService.getInventoryByProduct(productId);
+    }
+
+    @Override
+    public List<InventoryResponse> getInventoryByWarehouse(Long warehouseId) {
+        return inventoryService.getInventoryByWarehouse(warehouseId);
+    }
+
+    @Override
+    public List<InventoryResponse> getAllInventory() {
+        return inventoryService.getAllInventory();
+    }
+
+    @Override
+    public CursorPage<InventoryResponse> getInventoryPage(Long afterId, int size) {
+        return inventoryService.getInventoryPage(afterId, size);
+    }
+
+    @Override
+    public void streamInventory(Consumer<InventoryResponse> consumer) {
+        inventoryService.streamInventory(consumer);
+    }
+
+    @Override
+    public List<InventoryResponse> getLowStockItems() {
+        return inventoryService.getLowStockItems();
+    }
+
+    @Override
+    public List<InventoryResponse> getOutOfStockItems() {
+        return inventoryService.getOutOfStockItems();
+    }
+
+    @Override
+    public InventoryResponse updateInventory(InventoryUpdateRequest request) {
+        if (shardRouter.isLocal(request.getWarehouseId())) {
+            return inventoryService.updateInventory(request);
+        }
+        return shardClient.updateInventory(shardRouter.ownerOf(request.getWarehouseId()), request);
+    }
+
+    @Override
+    public InventoryResponse adjustInventory(Long productId, Long warehouseId, Integer quantity, String reason) {
+        if (shardRouter.isLocal(warehouseId)) {
+            return inventoryService.adjustInventory(productId, warehouseId, quantity, reason);
+        }
+        return shardClient.adjustInventory(shardRouter.ownerOf(warehouseId), productId, warehouseId, quantity, reason);
+    }
+
+    @Override
+    public void transferStock(Long productId, Long fromWarehouseId, Long toWarehouseId, Integer quantity) {
+        String sourceOwner = shardRouter.ownerOf(fromWarehouseId);
+        String destinationOwner = shardRouter.ownerOf(toWarehouseId);
+        if (sourceOwner.equals(destinationOwner) && shardRouter.isLocal(fromWarehouseId)) {
+            inventoryService.transferStock(productId, fromWarehouseId, toWarehouseId, quantity);
+            return;
+        }
+
+        Long transferId = shardRouter.isLocal(fromWarehouseId)
+                ? stockTransferService.prepareTransfer(productId, fromWarehouseId, toWarehouseId, quantity)
+                : shardClient.prepareTransfer(sourceOwner, productId, fromWarehouseId, toWarehouseId, quantity);
+        try {
+            if (shardRouter.isLocal(toWarehouseId)) {
+                stockTransferService.commitTransfer(transferId);
+            } else {
+                shardClient.commitTransfer(destinationOwner, transferId);
+            }
+        } catch (RuntimeException ex) {
+            // The commit may have gone through before the failure was seen; abort only wins while still prepared
+            boolean aborted;
+            try {
+                aborted = shardRouter.isLocal(fromWarehouseId)
+                        ? stockTransferService.abortTransfer(transferId)
+                        : shardClient.abortTransfer(sourceOwner, transferId);
+            } catch (RuntimeException abortFailure) {
+                log.warn("Stock transfer {} is left prepared for recovery: {}", transferId, abortFailure.getMessage());
+                ex.addSuppressed(abortFailure);
+                throw ex;
+            }
+            if (aborted) {
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public Integer getTotalStockByProduct(Long productId) {
+        return inventoryService.getTotalStockByProduct(productId);
+    }
+
+    @Override
+    public Integer getQuantityAvailable(Long productId, Long warehouseId) {
+        return inventoryService.getQuantityAvailable(productId, warehouseId);
+    }
+
+    @Override
+    public boolean checkStockAvailability(Long productId, Long warehouseId, Integer requiredQuantity) {
+        return inventoryService.checkStockAvailability(productId, warehouseId, requiredQuantity);
+    }
+
+    @Override
+    public void reserveStock(Long productId, Long warehouseId, Integer quantity) {
+        if (shardRouter.isLocal(warehouseId)) {
+            inventoryService.reserveStock(productId, warehouseId, quantity);
+            return;
+        }
+        shardClient.reserveStock(shardRouter.ownerOf(warehouseId), productId, warehouseId, quantity);
+    }
+
+    // Only called while writing a sales order, which is already running on the warehouse owner
+    @Override
+    public Map<Long, Product> reserveStock(Long warehouseId, List<SalesOrderItemRequest> items) {
+        return inventoryService.reserveStock(warehouseId, items);
+    }
+
+    @Override
+    public void releaseReservedStock(Long productId, Long warehouseId, Integer quantity) {
+        if (shardRouter.isLocal(warehouseId)) {
+            inventoryService.releaseReservedStock(productId, warehouseId, quantity);
+            return;
+        }
+        shardClient.releaseReservedStock(shardRouter.ownerOf(warehouseId), productId, warehouseId, quantity);
+    }
+
+    @Override
+    public int reconcileStockLedger() {
+        return inventoryService.reconcileStockLedger();
+    }
+}
@@ -0,0 +1,124 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.request.SalesOrderRequest;
+import com.retailshop.dto.response.CursorPage;
+import com.retailshop.dto.response.SalesOrderResponse;
+import com.retailshop.entity.SalesOrder;
+import com.retailshop.repository.SalesOrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs every sales order operation that touches stock on the node owning the order's warehouse, so the
+ * reservations and shipments inside it stay local to that node.
+ */
+@Service
+@Primary
+@RequiredArgsConstructor
+public class ShardRoutingSalesOrderService implements ISalesOrderService {
+
+    private final SalesOrderService salesOrderService;
+    private final SalesOrderRepository salesOrderRepository;
+    private final WarehouseShardRouter shardRouter;
+    private final ShardClient shardClient;
+
+    @Override
+    public SalesOrderResponse createSalesOrder(SalesOrderRequest request) {
+        if (shardRouter.isLocal(request.getWarehouseId())) {
+            return salesOrderService.createSalesOrder(request);
+        }
+        return shardClient.createSalesOrder(shardRouter.ownerOf(request.getWarehouseId()), request);
+    }
+
+    @Override
+    public SalesOrderResponse updateSalesOrder(Long soId, SalesOrderRequest request) {
+        String owner = remoteOwnerOf(soId);
+        if (owner == null) {
+            return salesOrderService.updateSalesOrder(soId, request);
+        }
+        return shardClient.updateSalesOrder(owner, soId, request);
+    }
+
+    @Override
+    public SalesOrderResponse getSalesOrderById(Long soId) {
+        return salesOrderService.getSalesOrderById(soId);
+    }
+
+    @Override
+    public List<SalesOrderResponse> getAllSalesOrders() {
+        return salesOrderService.getAllSalesOrders();
+    }
+
+    @Override
+    public CursorPage<SalesOrderResponse> getSalesOrdersPage(Long afterId, int size) {
+        return salesOrderService.getSalesOrdersPage(afterId, size);
+    }
+
+    @Override
+    public void streamSalesOrders(Consumer<SalesOrderResponse> consumer) {
+        salesOrderService.streamSalesOrders(consumer);
+    }
+
+    @Override
+    public List<SalesOrderResponse> getSalesOrdersByCustomer(Long customerId) {
+        return salesOrderService.getSalesOrdersByCustomer(customerId);
+    }
+
+    @Override
+    public List<SalesOrderResponse> getSalesOrdersByStatus(SalesOrder.OrderStatus status) {
+        return salesOrderService.getSalesOrdersByStatus(status);
+    }
+
+    @Override
+    public List<SalesOrderResponse> getPendingOrders() {
+        return salesOrderService.getPendingOrders();
+    }
+
+    @Override
+    public SalesOrderResponse confirmSalesOrder(Long soId) {
+        return salesOrderService.confirmSalesOrder(soId);
+    }
+
+    @Override
+    public SalesOrderResponse shipSalesOrder(Long soId) {
+        String owner = remoteOwnerOf(soId);
+        if (owner == null) {
+            return salesOrderService.shipSalesOrder(soId);
+        }
+        return shardClient.shipSalesOrder(owner, soId);
+    }
+
+    @Override
+    public SalesOrderResponse deliverSalesOrder(Long soId) {
+        return salesOrderService.deliverSalesOrder(soId);
+    }
+
+    @Override
+    public SalesOrderResponse cancelSalesOrder(Long soId) {
+        String owner = remoteOwnerOf(soId);
+        if (owner == null) {
+            return salesOrderService.cancelSalesOrder(soId);
+        }
+        return shardClient.cancelSalesOrder(owner, soId);
+    }
+
+    @Override
+    public void deleteSalesOrder(Long soId) {
+        salesOrderService.deleteSalesOrder(soId);
+    }
+
+    // Null when the order is handled here, including unknown orders so the local service reports them
+    private String remoteOwnerOf(Long soId) {
+        if (shardRouter.ownsAll()) {
+            return null;
+        }
+        return salesOrderRepository.findWarehouseIdBySoId(soId)
+                .filter(warehouseId -> !shardRouter.isLocal(warehouseId))
+                .map(shardRouter::ownerOf)
+                .orElse(null);
+    }
+}
@@ -0,0 +1,419 @@
+package com.retailshop.service;
+
+import com.retailshop.repository.InventoryRepository;
+import com.retailshop.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of the inventory table, keyed by (productId, warehouseId) packed into a single long.
+ * Entries are spread over lock stripes, each holding a primitive open-addressing table, so stock checks
+ * never touch the database. Writers keep the table authoritative and report their deltas here; deltas
+ * are applied once the surrounding transaction commits. When warehouses are sharded across nodes, only the
+ * warehouses this node owns are held here; deltas committed for other warehouses are forwarded to their owner.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockLedger {
+
+    private static final int STRIPE_BITS = 6;
+    private static final int PAGE_SIZE = 5000;
+
+    private final InventoryRepository inventoryRepository;
+    private final WarehouseShardRouter shardRouter;
+    private final ShardClient shardClient;
+
+    private final Stripe[] stripes = createStripes();
+    private final Map<Long, Set<Long>> warehousesByProduct = new ConcurrentHashMap<>();
+    private final AtomicInteger currentPass = new AtomicInteger();
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private Map<Long, int[]> reconcileSuspects = new HashMap<>();
+    private volatile boolean ready;
+
+    public static long key(long productId, long warehouseId) {
+        if (productId <= 0 || productId > Integer.MAX_VALUE || warehouseId <= 0 || warehouseId > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Product and warehouse ids must be positive 32-bit values");
+        }
+        return (productId << 32) | warehouseId;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean covers(Long warehouseId) {
+        return ready && shardRouter.isLocal(warehouseId);
+    }
+
+    public boolean isComplete() {
+        return ready && shardRouter.ownsAll();
+    }
+
+    public Integer getQuantityAvailable(Long productId, Long warehouseId) {
+        long key = key(productId, warehouseId);
+        return stripeFor(key).get(key, true);
+    }
+
+    public Integer getQuantityOnHand(Long productId, Long warehouseId) {
+        long key = key(productId, warehouseId);
+        return stripeFor(key).get(key, false);
+    }
+
+    public int getTotalOnHand(Long productId) {
+        Set<Long> warehouses = warehousesByProduct.get(productId);
+        if (warehouses == null) {
+            return 0;
+        }
+        int total = 0;
+        for (Long warehouseId : warehouses) {
+            Integer onHand = getQuantityOnHand(productId, warehouseId);
+            if (onHand != null) {
+                total += onHand;
+            }
+        }
+        return total;
+    }
+
+    public Set<Long> getWarehouses(Long productId) {
+        Set<Long> warehouses = warehousesByProduct.get(productId);
+        return warehouses != null ? Collections.unmodifiableSet(warehouses) : Collections.emptySet();
+    }
+
+    public void applyAfterCommit(Long productId, Long warehouseId, int onHandDelta, int reservedDelta) {
+        if (onHandDelta == 0 && reservedDelta == 0) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> apply(productId, warehouseId, onHandDelta, reservedDelta));
+    }
+
+    // Deltas forwarded by other nodes; dropped if ownership disagrees, so a misconfigured pair cannot bounce them
+    public void applyForwarded(Long productId, Long warehouseId, int onHandDelta, int reservedDelta) {
+        if (shardRouter.isLocal(warehouseId)) {
+            applyLocal(productId, warehouseId, onHandDelta, reservedDelta);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        maintenanceLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            ready = false;
+            for (Stripe stripe : stripes) {
+                stripe.clear();
+            }
+            warehousesByProduct.clear();
+            reconcileSuspects = new HashMap<>();
+
+            int pass = currentPass.incrementAndGet();
+            int rows = 0;
+            Long afterId = 0L;
+            List<Object[]> page;
+            do {
+                page = inventoryRepository.findStockLevelsAfter(afterId, PageRequest.of(0, PAGE_SIZE));
+                for (Object[] row : page) {
+                    afterId = (Long) row[0];
+                    long productId = (Long) row[1];
+                    long warehouseId = (Long) row[2];
+                    if (!shardRouter.isLocal(warehouseId)) {
+                        continue;
+                    }
+                    long key = key(productId, warehouseId);
+                    stripeFor(key).set(key, (Integer) row[3], (Integer) row[4], pass);
+                    trackWarehouse(productId, warehouseId);
+                    rows++;
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            ready = true;
+            log.info("Stock ledger loaded {} inventory rows in {} ms", rows, System.currentTimeMillis() - started);
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Compares every ledger entry against the inventory table. A mismatch is only corrected when it is seen
+     * with the same table values on two consecutive runs, so deltas still waiting for their commit are not
+     * mistaken for drift. Entries whose row no longer exists are dropped.
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.reconcile-interval-ms:300000}",
+            initialDelayString = "${inventory.ledger.reconcile-interval-ms:300000}")
+    public int reconcile() {
+        if (!ready) {
+            return 0;
+        }
+        maintenanceLock.lock();
+        try {
+            int pass = currentPass.incrementAndGet();
+            Map<Long, int[]> mismatches = new HashMap<>();
+            int corrections = 0;
+
+            Long afterId = 0L;
+            List<Object[]> page;
+            do {
+                page = inventoryRepository.findStockLevelsAfter(afterId, PageRequest.of(0, PAGE_SIZE));
+                for (Object[] row : page) {
+                    afterId = (Long) row[0];
+                    long productId = (Long) row[1];
+                    long warehouseId = (Long) row[2];
+                    if (!shardRouter.isLocal(warehouseId)) {
+                        continue;
+                    }
+                    int onHand = (Integer) row[3];
+                    int reserved = (Integer) row[4];
+                    long key = key(productId, warehouseId);
+                    Stripe stripe = stripeFor(key);
+
+                    if (!stripe.matches(key, onHand, reserved, pass)) {
+                        int[] tableValues = {onHand, reserved};
+                        if (Arrays.equals(reconcileSuspects.get(key), tableValues)) {
+                            stripe.set(key, onHand, reserved, pass);
+                            trackWarehouse(productId, warehouseId);
+                            corrections++;
+                        } else {
+                            mismatches.put(key, tableValues);
+                        }
+                    }
+                }
+            } while (page.size() == PAGE_SIZE);
+
+            int removed = 0;
+            for (Stripe stripe : stripes) {
+                for (long key : stripe.removeStale(pass)) {
+                    Set<Long> warehouses = warehousesByProduct.get(key >>> 32);
+                    if (warehouses != null) {
+                        warehouses.remove(key & 0xFFFFFFFFL);
+                    }
+                    removed++;
+                }
+            }
+            reconcileSuspects = mismatches;
+
+            if (corrections > 0 || removed > 0) {
+                log.warn("Stock ledger reconciliation corrected {} entries and removed {} stale entries", corrections, removed);
+            }
+            return corrections + removed;
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    private void apply(long productId, long warehouseId, int onHandDelta, int reservedDelta) {
+        if (shardRouter.isLocal(warehouseId)) {
+            applyLocal(productId, warehouseId, onHandDelta, reservedDelta);
+        } else {
+            shardClient.forwardLedgerDelta(productId, warehouseId, onHandDelta, reservedDelta);
+        }
+    }
+
+    private void applyLocal(long productId, long warehouseId, int onHandDelta, int reservedDelta) {
+        long key = key(productId, warehouseId);
+        stripeFor(key).add(key, onHandDelta, reservedDelta, currentPass.get());
+        trackWarehouse(productId, warehouseId);
+    }
+
+    private void trackWarehouse(long productId, long warehouseId) {
+        warehousesByProduct.computeIfAbsent(productId, id -> ConcurrentHashMap.newKeySet()).add(warehouseId);
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[(int) (mix(key) >>> (64 - STRIPE_BITS))];
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static Stripe[] createStripes() {
+        Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        return stripes;
+    }
+
+    private static final class Stripe {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] onHand = new int[INITIAL_CAPACITY];
+        private int[] reserved = new int[INITIAL_CAPACITY];
+        private int[] stamps = new int[INITIAL_CAPACITY];
+        private int size;
+
+        Integer get(long key, boolean available) {
+            lock.lock();
+            try {
+                int slot = find(key);
+                if (slot < 0) {
+                    return null;
+                }
+                return available ? onHand[slot] - reserved[slot] : onHand[slot];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void add(long key, int onHandDelta, int reservedDelta, int stamp) {
+            lock.lock();
+            try {
+                int slot = findOrInsert(key, stamp);
+                onHand[slot] += onHandDelta;
+                reserved[slot] += reservedDelta;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void set(long key, int onHandValue, int reservedValue, int stamp) {
+            lock.lock();
+            try {
+                int slot = findOrInsert(key, stamp);
+                onHand[slot] = onHandValue;
+                reserved[slot] = reservedValue;
+                stamps[slot] = stamp;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean matches(long key, int onHandValue, int reservedValue, int stamp) {
+            lock.lock();
+            try {
+                int slot = find(key);
+                if (slot < 0) {
+                    return false;
+                }
+                stamps[slot] = stamp;
+                return onHand[slot] == onHandValue && reserved[slot] == reservedValue;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Long> removeStale(int stamp) {
+            lock.lock();
+            try {
+                List<Long> stale = new ArrayList<>();
+                for (int slot = 0; slot < keys.length; slot++) {
+                    if (keys[slot] != 0 && stamps[slot] != stamp) {
+                        stale.add(keys[slot]);
+                    }
+                }
+                for (long key : stale) {
+                    removeAt(find(key));
+                }
+                return stale;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                keys = new long[INITIAL_CAPACITY];
+                onHand = new int[INITIAL_CAPACITY];
+                reserved = new int[INITIAL_CAPACITY];
+                stamps = new int[INITIAL_CAPACITY];
+                size = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int findOrInsert(long key, int stamp) {
+            int slot = find(key);
+            if (slot >= 0) {
+                return slot;
+            }
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            slot = (int) mix(key) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            stamps[slot] = stamp;
+            size++;
+            return slot;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldOnHand = onHand;
+            int[] oldReserved = reserved;
+            int[] oldStamps = stamps;
+
+            keys = new long[capacity];
+            onHand = new int[capacity];
+            reserved = new int[capacity];
+            stamps = new int[capacity];
+
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    onHand[slot] = oldOnHand[i];
+                    reserved[slot] = oldReserved[i];
+                    stamps[slot] = oldStamps[i];
+                }
+            }
+        }
+
+        private void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != 0) {
+                int ideal = (int) mix(keys[next]) & mask;
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    onHand[hole] = onHand[next];
+                    reserved[hole] = reserved[next];
+                    stamps[hole] = stamps[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = 0;
+            onHand[hole] = 0;
+            reserved[hole] = 0;
+            stamps[hole] = 0;
+            size--;
+        }
+    }
+}
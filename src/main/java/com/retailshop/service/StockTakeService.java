@@ -0,0 +1,442 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.dto.request.StockTakeCountRequest;
+import com.retailshop.dto.request.StockTakeSessionRequest;
+import com.retailshop.dto.response.StockTakeCountResponse;
+import com.retailshop.dto.response.StockTakeSessionResponse;
+import com.retailshop.entity.*;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.retailshop.repository.*;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Warehouse stock-takes. Scanned counts are upserted into a staging table while the session is open;
+ * closing it walks the staged counts in product id order, one short transaction per chunk, comparing
+ * them with the inventory table and applying the differences as batched updates and ADJUSTMENT
+ * journal entries. The session remembers the last applied product, so an interrupted close resumes
+ * where it stopped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockTakeService implements IStockTakeService {
+
+    private static final int REPORTED_ERRORS = 100;
+    private static final String REFERENCE_TYPE = "STOCK_TAKE";
+
+    // A rescan of the same bin replaces the earlier count, so scanners can safely resend a batch
+    private static final String UPSERT_COUNT_SQL =
+            "INSERT INTO stock_take_counts (session_id, product_id, bin_location, counted_quantity, counted_at) " +
+                    "VALUES (?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE counted_quantity = VALUES(counted_quantity), counted_at = VALUES(counted_at)";
+
+    private static final String APPLY_COUNT_SQL =
+            "UPDATE inventory SET quantity_on_hand = ?, last_count_date = ?, bin_location = COALESCE(?, bin_location), " +
+                    "version = version + 1, updated_at = NOW() WHERE inventory_id = ? AND version = ?";
+
+    private static final String INSERT_COUNTED_SQL =
+            "INSERT INTO inventory (product_id, warehouse_id, quantity_on_hand, quantity_reserved, last_count_date, " +
+                    "bin_location, version, created_at, updated_at) VALUES (?, ?, ?, 0, ?, ?, 0, NOW(), NOW())";
+
+    private final StockTakeSessionRepository sessionRepository;
+    private final StockTakeCountRepository countRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final StockLedger stockLedger;
+    private final InventoryJournal inventoryJournal;
+    private final EventOutbox eventOutbox;
+    private final WarehouseShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${stock-take.chunk-size:1000}")
+    private int chunkSize;
+
+    @Override
+    @Transactional
+    public StockTakeSessionResponse openSession(StockTakeSessionRequest request) {
+        Warehouse warehouse = warehouseRepository.findById(request.getWarehouseId())
+                .orElseThrow(() -> new ResourceNotFoundException("Warehouse not found"));
+        shardRouter.requireLocal(warehouse.getWarehouseId());
+
+        if (sessionRepository.existsByWarehouse_WarehouseIdAndStatusIn(warehouse.getWarehouseId(),
+                EnumSet.of(StockTakeSession.Status.OPEN, StockTakeSession.Status.CLOSING))) {
+            throw new IllegalStateException("A stock take is already in progress for this warehouse");
+        }
+
+        StockTakeSession session = StockTakeSession.builder()
+                .warehouse(warehouse)
+                .status(StockTakeSession.Status.OPEN)
+                .notes(request.getNotes())
+                .appliedThroughProductId(0L)
+                .adjustedProducts(0)
+                .unitsGained(0L)
+                .unitsLost(0L)
+                .createdBy(getCurrentUser())
+                .openedAt(LocalDateTime.now())
+                .build();
+        return convertToResponse(sessionRepository.save(session), 0);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public StockTakeSessionResponse getSession(Long sessionId) {
+        return convertToResponse(findSession(sessionId), countRepository.countProducts(sessionId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StockTakeSessionResponse> getSessionsByWarehouse(Long warehouseId) {
+        return sessionRepository.findByWarehouse_WarehouseIdOrderBySessionIdDesc(warehouseId).stream()
+                .map(session -> convertToResponse(session, countRepository.countProducts(session.getSessionId())))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public StockTakeCountResponse recordCounts(Long sessionId, List<StockTakeCountRequest> counts) {
+        CountProgress progress = new CountProgress();
+        for (int from = 0; from < counts.size(); from += chunkSize) {
+            recordChunk(sessionId, counts.subList(from, Math.min(from + chunkSize, counts.size())), progress);
+        }
+        return progress.toResponse(sessionId);
+    }
+
+    @Override
+    public StockTakeCountResponse recordCounts(Long sessionId, InputStream ndjson) throws IOException {
+        CountProgress progress = new CountProgress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+        List<StockTakeCountRequest> chunk = new ArrayList<>(chunkSize);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                chunk.add(objectMapper.readValue(line, StockTakeCountRequest.class));
+            } catch (IOException e) {
+                progress.reject("Line " + lineNumber + ": unreadable count");
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                recordChunk(sessionId, chunk, progress);
+                chunk.clear();
+            }
+        }
+        recordChunk(sessionId, chunk, progress);
+        return progress.toResponse(sessionId);
+    }
+
+    @Override
+    public StockTakeSessionResponse closeSession(Long sessionId, boolean zeroUncounted) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        StockTakeSession session = transactionTemplate.execute(status -> {
+            StockTakeSession current = findSession(sessionId);
+            shardRouter.requireLocal(current.getWarehouse().getWarehouseId());
+            if (sessionRepository.startClosing(sessionId) == 1) {
+                // A full count: anything stocked in the warehouse but never scanned is counted as zero
+                if (zeroUncounted) {
+                    countRepository.countUncountedAsZero(sessionId, current.getWarehouse().getWarehouseId());
+                }
+            } else if (current.getStatus() != StockTakeSession.Status.CLOSING) {
+                throw new IllegalStateException("Stock take is " + current.getStatus());
+            }
+            return current;
+        });
+
+        Long warehouseId = session.getWarehouse().getWarehouseId();
+        long afterProductId = session.getAppliedThroughProductId();
+        List<Object[]> chunk;
+        do {
+            chunk = countRepository.findVarianceChunk(sessionId, warehouseId, afterProductId, chunkSize);
+            if (!chunk.isEmpty()) {
+                long claimedAfter = afterProductId;
+                List<Object[]> rows = chunk;
+                transactionTemplate.executeWithoutResult(status -> applyChunk(sessionId, warehouseId, claimedAfter, rows));
+                afterProductId = ((Number) chunk.get(chunk.size() - 1)[0]).longValue();
+            }
+        } while (chunk.size() == chunkSize);
+
+        transactionTemplate.executeWithoutResult(status -> sessionRepository.finishClosing(sessionId));
+        log.info("Stock take {} closed for warehouse {}", sessionId, warehouseId);
+        return getSession(sessionId);
+    }
+
+    @Override
+    @Transactional
+    public StockTakeSessionResponse cancelSession(Long sessionId) {
+        StockTakeSession session = findSession(sessionId);
+        if (sessionRepository.cancelIfOpen(sessionId) == 0) {
+            throw new IllegalStateException("Only an open stock take can be cancelled");
+        }
+        countRepository.deleteBySessionId(sessionId);
+        entityManager.refresh(session);
+        return convertToResponse(session, 0);
+    }
+
+    private void recordChunk(Long sessionId, List<StockTakeCountRequest> chunk, CountProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<String> barcodes = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (StockTakeCountRequest count : chunk) {
+            if (count.getProductId() != null) {
+                productIds.add(count.getProductId());
+            } else if (count.getBarcode() != null) {
+                barcodes.add(count.getBarcode());
+            }
+        }
+        Map<String, Long> idsByBarcode = new HashMap<>();
+        if (!barcodes.isEmpty()) {
+            for (Object[] row : productRepository.findIdsByBarcodes(barcodes)) {
+                idsByBarcode.put((String) row[0], (Long) row[1]);
+            }
+        }
+        Set<Long> knownIds = productIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(productRepository.findExistingIds(productIds));
+
+        List<Object[]> accepted = new ArrayList<>(chunk.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (StockTakeCountRequest count : chunk) {
+            Set<ConstraintViolation<StockTakeCountRequest>> violations = validator.validate(count);
+            if (!violations.isEmpty()) {
+                progress.reject(describe(count) + ": " + violations.iterator().next().getMessage());
+                continue;
+            }
+            Long productId = count.getProductId() != null
+                    ? (knownIds.contains(count.getProductId()) ? count.getProductId() : null)
+                    : idsByBarcode.get(count.getBarcode());
+            if (productId == null) {
+                progress.reject(describe(count) + ": product not found");
+                continue;
+            }
+            String bin = count.getBinLocation() != null ? count.getBinLocation().trim() : "";
+            accepted.add(new Object[]{sessionId, productId, bin, count.getCountedQuantity(), now});
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (sessionRepository.touchIfOpen(sessionId) == 0) {
+                throw new IllegalStateException("Stock take is not open for counting");
+            }
+            jdbcTemplate.batchUpdate(UPSERT_COUNT_SQL, accepted);
+        });
+        progress.accepted += accepted.size();
+    }
+
+    /**
+     * Applies one chunk of counted totals. The inventory updates are guarded by the version read with the
+     * chunk; rows that moved in between are locked, re-read and applied against their current quantity.
+     */
+    private void applyChunk(Long sessionId, Long warehouseId, long afterProductId, List<Object[]> rows) {
+        long throughProductId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+        if (sessionRepository.claimChunk(sessionId, afterProductId, throughProductId) == 0) {
+            throw new IllegalStateException("Stock take is being closed by another request");
+        }
+
+        Date countDate = Date.valueOf(LocalDate.now());
+        List<CountedLine> lines = new ArrayList<>(rows.size());
+        List<CountedLine> existing = new ArrayList<>();
+        List<CountedLine> created = new ArrayList<>();
+        for (Object[] row : rows) {
+            CountedLine line = new CountedLine(
+                    ((Number) row[0]).longValue(),
+                    ((Number) row[1]).intValue(),
+                    (String) row[2],
+                    row[3] != null ? ((Number) row[3]).longValue() : null);
+            lines.add(line);
+            if (line.inventoryId != null) {
+                line.quantityBefore = ((Number) row[4]).intValue();
+                line.version = ((Number) row[5]).longValue();
+                existing.add(line);
+            } else {
+                created.add(line);
+            }
+        }
+
+        if (!existing.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(APPLY_COUNT_SQL, existing, existing.size(), (ps, line) -> {
+                ps.setInt(1, line.countedQuantity);
+                ps.setDate(2, countDate);
+                ps.setString(3, line.binLocation);
+                ps.setLong(4, line.inventoryId);
+                ps.setLong(5, line.version);
+            })[0];
+            List<CountedLine> moved = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    moved.add(existing.get(i));
+                }
+            }
+            if (!moved.isEmpty()) {
+                applyLocked(moved, countDate);
+            }
+        }
+        if (!created.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_COUNTED_SQL, created, created.size(), (ps, line) -> {
+                ps.setLong(1, line.productId);
+                ps.setLong(2, warehouseId);
+                ps.setInt(3, line.countedQuantity);
+                ps.setDate(4, countDate);
+                ps.setString(5, line.binLocation);
+            });
+        }
+
+        Warehouse warehouse = entityManager.getReference(Warehouse.class, warehouseId);
+        int adjusted = 0;
+        long gained = 0;
+        long lost = 0;
+        for (CountedLine line : lines) {
+            int variance = line.countedQuantity - line.quantityBefore;
+            if (variance == 0) {
+                continue;
+            }
+            adjusted++;
+            if (variance > 0) {
+                gained += variance;
+            } else {
+                lost -= variance;
+            }
+            stockLedger.applyAfterCommit(line.productId, warehouseId, variance, 0);
+            inventoryJournal.append(InventoryTransaction.builder()
+                    .product(entityManager.getReference(Product.class, line.productId))
+                    .warehouse(warehouse)
+                    .transactionType(InventoryTransaction.TransactionType.ADJUSTMENT)
+                    .referenceId(sessionId)
+                    .referenceType(REFERENCE_TYPE)
+                    .quantityChange(variance)
+                    .quantityBefore(line.quantityBefore)
+                    .quantityAfter(line.countedQuantity)
+                    .notes("Stock take #" + sessionId)
+                    .build());
+            eventOutbox.publishStockChanged(line.productId, warehouseId, variance, 0, line.countedQuantity);
+        }
+        sessionRepository.addTotals(sessionId, adjusted, gained, lost);
+    }
+
+    private void applyLocked(List<CountedLine> lines, Date countDate) {
+        Map<Long, CountedLine> byInventoryId = lines.stream()
+                .collect(Collectors.toMap(line -> line.inventoryId, line -> line));
+        String placeholders = String.join(", ", Collections.nCopies(lines.size(), "?"));
+        jdbcTemplate.query("SELECT inventory_id, quantity_on_hand FROM inventory WHERE inventory_id IN (" +
+                        placeholders + ") FOR UPDATE",
+                rs -> {
+                    byInventoryId.get(rs.getLong(1)).quantityBefore = rs.getInt(2);
+                },
+                byInventoryId.keySet().toArray());
+        jdbcTemplate.batchUpdate("UPDATE inventory SET quantity_on_hand = ?, last_count_date = ?, " +
+                        "bin_location = COALESCE(?, bin_location), version = version + 1, updated_at = NOW() " +
+                        "WHERE inventory_id = ?",
+                lines, lines.size(), (ps, line) -> {
+                    ps.setInt(1, line.countedQuantity);
+                    ps.setDate(2, countDate);
+                    ps.setString(3, line.binLocation);
+                    ps.setLong(4, line.inventoryId);
+                });
+    }
+
+    private StockTakeSession findSession(Long sessionId) {
+        return sessionRepository.findWithDetailsBySessionId(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock take not found with id: " + sessionId));
+    }
+
+    private User getCurrentUser() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("Current user not found"));
+    }
+
+    private static String describe(StockTakeCountRequest count) {
+        return count.getProductId() != null ? "Product " + count.getProductId() : "Barcode " + count.getBarcode();
+    }
+
+    private StockTakeSessionResponse convertToResponse(StockTakeSession session, long countedProducts) {
+        return StockTakeSessionResponse.builder()
+                .sessionId(session.getSessionId())
+                .warehouseId(session.getWarehouse().getWarehouseId())
+                .warehouseName(session.getWarehouse().getWarehouseName())
+                .status(session.getStatus())
+                .notes(session.getNotes())
+                .createdBy(session.getCreatedBy() != null ? session.getCreatedBy().getUsername() : null)
+                .countedProducts(countedProducts)
+                .adjustedProducts(session.getAdjustedProducts())
+                .unitsGained(session.getUnitsGained())
+                .unitsLost(session.getUnitsLost())
+                .openedAt(session.getOpenedAt())
+                .lastCountAt(session.getLastCountAt())
+                .closedAt(session.getClosedAt())
+                .build();
+    }
+
+    private static final class CountedLine {
+        private final long productId;
+        private final int countedQuantity;
+        private final String binLocation;
+        private final Long inventoryId;
+        private int quantityBefore;
+        private long version;
+
+        CountedLine(long productId, int countedQuantity, String binLocation, Long inventoryId) {
+            this.productId = productId;
+            this.countedQuantity = countedQuantity;
+            this.binLocation = binLocation;
+            this.inventoryId = inventoryId;
+        }
+    }
+
+    private static final class CountProgress {
+        private long accepted;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        void reject(String error) {
+            rejected++;
+            if (errors.size() < REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        StockTakeCountResponse toResponse(Long sessionId) {
+            return StockTakeCountResponse.builder()
+                    .sessionId(sessionId)
+                    .accepted(accepted)
+                    .rejected(rejected)
+                    .errors(errors)
+                    .build();
+        }
+    }
+}
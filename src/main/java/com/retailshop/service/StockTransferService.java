@@ -0,0 +1,228 @@
+package com.retailshop.service;
+
+import com.retailshop.entity.Inventory;
+import com.retailshop.entity.InventoryTransaction;
+import com.retailshop.entity.StockTransfer;
+import com.retailshop.entity.Warehouse;
+import com.retailshop.exception.InsufficientStockException;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.retailshop.repository.InventoryRepository;
+import com.retailshop.repository.ProductRepository;
+import com.retailshop.repository.StockTransferRepository;
+import com.retailshop.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Participant side of the two-phase transfer between warehouses owned by different nodes. Prepare debits the
+ * source on its owner and records the transfer as PREPARED; commit credits the destination on its owner and
+ * abort re-credits the source. Both leave PREPARED through one conditional update, so a transfer is resolved
+ * exactly once. Prepared transfers left behind by a failed coordinator are rolled forward by the owner of
+ * their destination.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockTransferService implements IStockTransferService {
+
+    static final String REFERENCE_TYPE = "STOCK_TRANSFER";
+    private static final int RECOVERY_BATCH_SIZE = 100;
+
+    private final StockTransferRepository stockTransferRepository;
+    private final InventoryRepository inventoryRepository;
+    private final ProductRepository productRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final StockLedger stockLedger;
+    private final InventoryJournal inventoryJournal;
+    private final EventOutbox eventOutbox;
+    private final WarehouseShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.shard.transfer-timeout-ms:60000}")
+    private long transferTimeoutMs;
+
+    @Override
+    @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
+    public Long prepareTransfer(Long productId, Long fromWarehouseId, Long toWarehouseId, Integer quantity) {
+        if (fromWarehouseId.equals(toWarehouseId)) {
+            throw new IllegalStateException("Source and destination warehouse must differ");
+        }
+        shardRouter.requireLocal(fromWarehouseId);
+        Warehouse toWarehouse = warehouseRepository.findById(toWarehouseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Destination warehouse not found"));
+
+        Inventory fromInventory = inventoryRepository
+                .findByProduct_ProductIdAndWarehouse_WarehouseId(productId, fromWarehouseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Source inventory not found"));
+
+        if (fromInventory.getQuantityAvailable() < quantity) {
+            throw new InsufficientStockException("Insufficient stock for transfer");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        StockTransfer transfer = stockTransferRepository.save(StockTransfer.builder()
+                .productId(productId)
+                .fromWarehouseId(fromWarehouseId)
+                .toWarehouseId(toWarehouseId)
+                .quantity(quantity)
+                .status(StockTransfer.Status.PREPARED)
+                .requestedBy(currentUsername())
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        Integer oldQuantity = fromInventory.getQuantityOnHand();
+        fromInventory.setQuantityOnHand(oldQuantity - quantity);
+        inventoryRepository.save(fromInventory);
+        stockLedger.applyAfterCommit(productId, fromWarehouseId, -quantity, 0);
+
+        recordTransaction(fromInventory, transfer, -quantity, oldQuantity,
+                "Transfer to warehouse: " + toWarehouse.getWarehouseName());
+        return transfer.getTransferId();
+    }
+
+    @Override
+    @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
+    public void commitTransfer(Long transferId) {
+        applyCommit(transferId);
+    }
+
+    @Override
+    @Transactional
+    @Retryable(retryFor = ObjectOptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:3}",
+            backoff = @Backoff(delayExpression = "${inventory.optimistic-retry.backoff-ms:25}", multiplier = 2))
+    public boolean abortTransfer(Long transferId) {
+        StockTransfer transfer = findTransfer(transferId);
+        shardRouter.requireLocal(transfer.getFromWarehouseId());
+
+        if (stockTransferRepository.resolvePrepared(transferId, StockTransfer.Status.ABORTED.name()) == 0) {
+            return currentStatus(transferId) == StockTransfer.Status.ABORTED;
+        }
+
+        Inventory fromInventory = inventoryRepository
+                .findByProduct_ProductIdAndWarehouse_WarehouseId(transfer.getProductId(), transfer.getFromWarehouseId())
+                .orElseThrow(() -> new ResourceNotFoundException("Source inventory not found"));
+
+        Integer oldQuantity = fromInventory.getQuantityOnHand();
+        fromInventory.setQuantityOnHand(oldQuantity + transfer.getQuantity());
+        inventoryRepository.save(fromInventory);
+        stockLedger.applyAfterCommit(transfer.getProductId(), transfer.getFromWarehouseId(), transfer.getQuantity(), 0);
+
+        recordTransaction(fromInventory, transfer, transfer.getQuantity(), oldQuantity,
+                "Transfer " + transferId + " aborted");
+        return true;
+    }
+
+    /**
+     * Rolls forward transfers that stayed PREPARED past the timeout and whose destination this node owns.
+     * The stock already left the source, so completing the transfer is always safe.
+     */
+    @Scheduled(fixedDelayString = "${inventory.shard.transfer-recovery-ms:60000}",
+            initialDelayString = "${inventory.shard.transfer-recovery-ms:60000}")
+    public int recoverPreparedTransfers() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(transferTimeoutMs));
+        List<StockTransfer> stale = stockTransferRepository.findStalePrepared(before, PageRequest.of(0, RECOVERY_BATCH_SIZE));
+
+        int recovered = 0;
+        for (StockTransfer transfer : stale) {
+            if (!shardRouter.isLocal(transfer.getToWarehouseId())) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyCommit(transfer.getTransferId()));
+                recovered++;
+            } catch (RuntimeException ex) {
+                log.warn("Could not roll forward stock transfer {}: {}", transfer.getTransferId(), ex.getMessage());
+            }
+        }
+        if (recovered > 0) {
+            log.info("Rolled forward {} prepared stock transfers", recovered);
+        }
+        return recovered;
+    }
+
+    private void applyCommit(Long transferId) {
+        StockTransfer transfer = findTransfer(transferId);
+        shardRouter.requireLocal(transfer.getToWarehouseId());
+
+        if (stockTransferRepository.resolvePrepared(transferId, StockTransfer.Status.COMMITTED.name()) == 0) {
+            if (currentStatus(transferId) == StockTransfer.Status.ABORTED) {
+                throw new IllegalStateException("Stock transfer " + transferId + " was aborted");
+            }
+            return;
+        }
+
+        Inventory toInventory = inventoryRepository
+                .findByProduct_ProductIdAndWarehouse_WarehouseId(transfer.getProductId(), transfer.getToWarehouseId())
+                .orElseGet(() -> Inventory.builder()
+                        .product(productRepository.findById(transfer.getProductId())
+                                .orElseThrow(() -> new ResourceNotFoundException("Product not found")))
+                        .warehouse(warehouseRepository.findById(transfer.getToWarehouseId())
+                                .orElseThrow(() -> new ResourceNotFoundException("Destination warehouse not found")))
+                        .quantityOnHand(0)
+                        .quantityReserved(0)
+                        .build());
+
+        Integer oldQuantity = toInventory.getQuantityOnHand();
+        toInventory.setQuantityOnHand(oldQuantity + transfer.getQuantity());
+        inventoryRepository.save(toInventory);
+        stockLedger.applyAfterCommit(transfer.getProductId(), transfer.getToWarehouseId(), transfer.getQuantity(), 0);
+
+        recordTransaction(toInventory, transfer, transfer.getQuantity(), oldQuantity,
+                "Transfer from warehouse: " + transfer.getFromWarehouseId());
+    }
+
+    private StockTransfer findTransfer(Long transferId) {
+        return stockTransferRepository.findById(transferId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock transfer not found with id: " + transferId));
+    }
+
+    private StockTransfer.Status currentStatus(Long transferId) {
+        return stockTransferRepository.findStatus(transferId)
+                .orElseThrow(() -> new ResourceNotFoundException("Stock transfer not found with id: " + transferId));
+    }
+
+    private void recordTransaction(Inventory inventory, StockTransfer transfer, int quantityChange,
+                                   Integer quantityBefore, String notes) {
+        inventoryJournal.append(InventoryTransaction.builder()
+                .product(inventory.getProduct())
+                .warehouse(inventory.getWarehouse())
+                .transactionType(InventoryTransaction.TransactionType.TRANSFER)
+                .referenceId(transfer.getTransferId())
+                .referenceType(REFERENCE_TYPE)
+                .quantityChange(quantityChange)
+                .quantityBefore(quantityBefore)
+                .quantityAfter(inventory.getQuantityOnHand())
+                .notes(notes)
+                .build());
+        eventOutbox.publishStockChanged(inventory.getProduct().getProductId(), inventory.getWarehouse().getWarehouseId(),
+                quantityChange, 0, inventory.getQuantityOnHand());
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+}
@@ -1,20 +1,27 @@
 package com.retailshop.service;
 
+import com.retailshop.dto.response.CursorPage;
 import com.retailshop.entity.Supplier;
 import com.retailshop.exception.DuplicateResourceException;
 import com.retailshop.exception.ResourceNotFoundException;
 import com.retailshop.repository.SupplierRepository;
+import com.retailshop.util.PageUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class SupplierService implements ISupplierService {
 
     private final SupplierRepository supplierRepository;
+    private final EntityManager entityManager;
 
     @Override
     @Transactional
@@ -58,6 +65,22 @@ public class SupplierService implements ISupplierService {
         return supplierRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Supplier> getSuppliersPage(Long afterId, int size) {
+        return CursorPage.of(
+                supplierRepository.findBySupplierIdGreaterThanOrderBySupplierIdAsc(PageUtil.cursor(afterId), PageUtil.firstPage(size)),
+                Supplier::getSupplierId, Function.identity());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamSuppliers(Consumer<Supplier> consumer) {
+        try (Stream<Supplier> suppliers = supplierRepository.streamAll()) {
+            PageUtil.forEachDetached(suppliers, entityManager, consumer);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<Supplier> getActiveSuppliers() {
@@ -17,6 +17,7 @@ import java.util.List;
 public class UserService implements IUserService, UserDetailsService {
 
     private final UserRepository userRepository;
+    private final VerifiedPrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -60,7 +61,9 @@ public class UserService implements IUserService, UserDetailsService {
         existingUser.setLastName(user.getLastName());
         existingUser.setEmail(user.getEmail());
         existingUser.setRole(user.getRole());
-        return userRepository.save(existingUser);
+        User savedUser = userRepository.save(existingUser);
+        principalCache.evictUserAfterCommit(savedUser.getUsername());
+        return savedUser;
     }
 
     @Override
@@ -68,6 +71,7 @@ public class UserService implements IUserService, UserDetailsService {
     public void deleteUser(Long userId) {
         User user = getUserById(userId);
         userRepository.delete(user);
+        principalCache.evictUserAfterCommit(user.getUsername());
     }
 
     @Override
@@ -76,6 +80,7 @@ public class UserService implements IUserService, UserDetailsService {
         User user = getUserById(userId);
         user.setIsActive(false);
         userRepository.save(user);
+        principalCache.evictUserAfterCommit(user.getUsername());
     }
 
     @Override
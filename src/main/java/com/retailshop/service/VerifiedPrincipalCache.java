@@ -0,0 +1,96 @@
+package com.retailshop.service;
+
+import com.retailshop.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Principals of verified bearer tokens, keyed by a SHA-256 hash of the token so raw tokens are never
+ * held. An entry lives until the token expires or the configured TTL passes, whichever is first, and
+ * all entries of a user are dropped when that user is changed. Each eviction bumps the user's
+ * generation, so a lookup that read the user before the change cannot cache it afterwards.
+ */
+@Component
+@Slf4j
+public class VerifiedPrincipalCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    @Value("${jwt.principal-cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    @Value("${jwt.principal-cache.max-entries:100000}")
+    private int maxEntries;
+
+    public UserDetails get(String token) {
+        Entry entry = entries.get(hash(token));
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(entry.key, entry);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    public long generation(String username) {
+        return generations.getOrDefault(username, 0L);
+    }
+
+    /**
+     * Caches the principal unless the user was evicted since {@code generation} was read.
+     */
+    public void put(String token, UserDetails principal, long tokenExpiresAt, long generation) {
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                return;
+            }
+        }
+        String key = hash(token);
+        long expiresAt = Math.min(tokenExpiresAt, System.currentTimeMillis() + ttlMs);
+        entries.put(key, new Entry(key, principal, expiresAt));
+        if (generation(principal.getUsername()) != generation) {
+            entries.remove(key);
+        }
+    }
+
+    public void evictUserAfterCommit(String username) {
+        TransactionUtil.afterCommit(() -> evictUser(username));
+    }
+
+    public void evictUser(String username) {
+        generations.merge(username, 1L, Long::sum);
+        entries.values().removeIf(entry -> entry.principal.getUsername().equals(username));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.principal-cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(String key, UserDetails principal, long expiresAt) {
+    }
+}
@@ -0,0 +1,112 @@
+package com.retailshop.service;
+
+import java.util.*;
+
+/**
+ * Maps every warehouse to the application node that owns its stock. Nodes are listed as nodeId=baseUrl pairs;
+ * a warehouse goes to its explicit assignment if it has one, otherwise to the node at warehouseId modulo the
+ * node count in node id order, so every node derives the same owner from the same configuration. With fewer
+ * than two nodes the local node owns every warehouse and nothing is routed.
+ */
+public class WarehouseShardRouter {
+
+    private final String localNodeId;
+    private final List<String> nodeIds;
+    private final Map<String, String> nodeUrls;
+    private final Map<Long, String> assignments;
+
+    public WarehouseShardRouter(String localNodeId, Map<String, String> nodeUrls, Map<Long, String> assignments) {
+        this.localNodeId = localNodeId;
+        this.nodeUrls = Map.copyOf(nodeUrls);
+        this.assignments = Map.copyOf(assignments);
+        this.nodeIds = nodeUrls.keySet().stream().sorted().toList();
+
+        if (isSharded() && !this.nodeUrls.containsKey(localNodeId)) {
+            throw new IllegalStateException("Local node " + localNodeId + " is not listed in the shard nodes");
+        }
+        for (Map.Entry<Long, String> assignment : this.assignments.entrySet()) {
+            if (isSharded() && !this.nodeUrls.containsKey(assignment.getValue())) {
+                throw new IllegalStateException("Warehouse " + assignment.getKey()
+                        + " is assigned to unknown node " + assignment.getValue());
+            }
+        }
+    }
+
+    /**
+     * Parses the comma separated "nodeId=baseUrl" and "warehouseId=nodeId" property values.
+     */
+    public static WarehouseShardRouter parse(String localNodeId, String nodes, String assignments) {
+        Map<String, String> nodeUrls = new LinkedHashMap<>();
+        for (String[] pair : pairs(nodes)) {
+            nodeUrls.put(pair[0], pair[1].endsWith("/") ? pair[1].substring(0, pair[1].length() - 1) : pair[1]);
+        }
+        Map<Long, String> warehouseOwners = new HashMap<>();
+        for (String[] pair : pairs(assignments)) {
+            warehouseOwners.put(Long.valueOf(pair[0]), pair[1]);
+        }
+        return new WarehouseShardRouter(localNodeId, nodeUrls, warehouseOwners);
+    }
+
+    public boolean isSharded() {
+        return nodeUrls.size() > 1;
+    }
+
+    public String getLocalNodeId() {
+        return localNodeId;
+    }
+
+    public String ownerOf(Long warehouseId) {
+        if (!isSharded()) {
+            return localNodeId;
+        }
+        String assigned = assignments.get(warehouseId);
+        if (assigned != null) {
+            return assigned;
+        }
+        return nodeIds.get((int) Math.floorMod(warehouseId, (long) nodeIds.size()));
+    }
+
+    public boolean isLocal(Long warehouseId) {
+        return localNodeId.equals(ownerOf(warehouseId));
+    }
+
+    /**
+     * Stock of a warehouse is only written by its owner; anything else has to go through the owner's node.
+     */
+    public void requireLocal(Long warehouseId) {
+        if (!isLocal(warehouseId)) {
+            throw new IllegalStateException("Warehouse " + warehouseId + " is owned by node " + ownerOf(warehouseId));
+        }
+    }
+
+    public boolean ownsAll() {
+        return !isSharded();
+    }
+
+    public String urlOf(String nodeId) {
+        String url = nodeUrls.get(nodeId);
+        if (url == null) {
+            throw new IllegalStateException("Unknown shard node: " + nodeId);
+        }
+        return url;
+    }
+
+    private static List<String[]> pairs(String value) {
+        List<String[]> pairs = new ArrayList<>();
+        if (value == null || value.isBlank()) {
+            return pairs;
+        }
+        for (String entry : value.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf('=');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalStateException("Expected key=value but got: " + trimmed);
+            }
+            pairs.add(new String[]{trimmed.substring(0, separator).trim(), trimmed.substring(separator + 1).trim()});
+        }
+        return pairs;
+    }
+}
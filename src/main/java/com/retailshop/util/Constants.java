@@ -11,4 +11,10 @@ public class Constants {
 
     public static final String DATE_FORMAT = "yyyy-MM-dd";
     public static final String DATETIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    // A String so request parameters can use it as their defaultValue
+    public static final String DEFAULT_PAGE_SIZE = "50";
+    public static final int MAX_PAGE_SIZE = 500;
+    // MySQL Connector/J only streams rows one at a time for this fetch size
+    public static final String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
 }
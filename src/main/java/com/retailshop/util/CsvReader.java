@@ -0,0 +1,90 @@
+package com.retailshop.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// RFC 4180 records read one at a time: quoted fields may hold commas, doubled quotes and line breaks
+public class CsvReader {
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int lineNumber = 1;
+    private int recordLine;
+    private int pending = -2;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Line on which the record last returned by readRecord starts
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        recordLine = lineNumber;
+        List<String> values = new ArrayList<>();
+        boolean quoted = false;
+        field.setLength(0);
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        pending = next;
+                    }
+                }
+                values.add(field.toString());
+                return values;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pending != -2) {
+            c = pending;
+            pending = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,50 @@
+package com.retailshop.util;
+
+import org.springframework.http.MediaType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class CsvWriter {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType("text/csv");
+
+    private final Writer writer;
+
+    public CsvWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    public void writeRecord(List<?> values) {
+        try {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(values.get(i));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeField(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,37 @@
+package com.retailshop.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+public class NdjsonWriter implements Consumer<Object> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream out;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+    }
+
+    @Override
+    public void accept(Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
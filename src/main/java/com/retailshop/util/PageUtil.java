@@ -0,0 +1,46 @@
+package com.retailshop.util;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class PageUtil {
+
+    private static final int CLEAR_INTERVAL = 500;
+
+    public static Pageable firstPage(int size) {
+        return PageRequest.of(0, pageSize(size));
+    }
+
+    public static int pageSize(int size) {
+        return Math.max(1, Math.min(size, Constants.MAX_PAGE_SIZE));
+    }
+
+    public static long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    // Connector/J streams rows only for Integer.MIN_VALUE, which other drivers reject, so they get a plain fetch size
+    public static void streamResults(PreparedStatement statement) throws SQLException {
+        boolean mysql = "MySQL".equals(statement.getConnection().getMetaData().getDatabaseProductName());
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : CLEAR_INTERVAL);
+    }
+
+    // Clears the persistence context as it goes so a full-table stream never holds more than a chunk of entities
+    public static <E> void forEachDetached(Stream<E> stream, EntityManager entityManager, Consumer<E> consumer) {
+        int count = 0;
+        Iterator<E> iterator = stream.iterator();
+        while (iterator.hasNext()) {
+            consumer.accept(iterator.next());
+            if (++count % CLEAR_INTERVAL == 0) {
+                entityManager.clear();
+            }
+        }
+    }
+}
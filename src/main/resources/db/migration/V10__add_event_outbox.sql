@@ -0,0 +1,19 @@
+CREATE TABLE event_outbox (
+    event_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    partition_no INT NOT NULL,
+    payload LONGTEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    INDEX idx_event_outbox_partition (partition_no, event_id),
+    INDEX idx_event_outbox_created (created_at)
+);
+
+CREATE TABLE event_consumer_offsets (
+    consumer_name VARCHAR(100) NOT NULL,
+    node_id VARCHAR(100) NOT NULL,
+    partition_no INT NOT NULL,
+    event_id BIGINT NOT NULL,
+    updated_at DATETIME NOT NULL,
+    PRIMARY KEY (consumer_name, node_id, partition_no)
+);
@@ -0,0 +1,2 @@
+-- When the row was inserted by the database clock; transaction_date is the business time and may be backdated
+ALTER TABLE inventory_transactions ADD COLUMN recorded_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
@@ -0,0 +1,8 @@
+CREATE TABLE id_generators (
+    generator_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_value BIGINT NOT NULL
+);
+
+-- Pooled allocation hands out (next_value - 49 .. next_value), so seed one block past the current maximum
+INSERT INTO id_generators (generator_name, next_value)
+SELECT 'sales_order_items', COALESCE(MAX(so_item_id), 0) + 50 FROM sales_order_items;
@@ -0,0 +1,15 @@
+CREATE TABLE document_sequences (
+    sequence_key VARCHAR(32) NOT NULL PRIMARY KEY,
+    next_value BIGINT NOT NULL
+);
+
+-- Continue after the highest number already issued per prefix and year (format PREFIX-YYYY-NNNNNN)
+INSERT INTO document_sequences (sequence_key, next_value)
+SELECT CONCAT('SO-', SUBSTRING(so_number, 4, 4)), MAX(CAST(SUBSTRING(so_number, 9) AS UNSIGNED)) + 1
+FROM sales_orders
+GROUP BY SUBSTRING(so_number, 4, 4);
+
+INSERT INTO document_sequences (sequence_key, next_value)
+SELECT CONCAT('PO-', SUBSTRING(po_number, 4, 4)), MAX(CAST(SUBSTRING(po_number, 9) AS UNSIGNED)) + 1
+FROM purchase_orders
+GROUP BY SUBSTRING(po_number, 4, 4);
@@ -0,0 +1,6 @@
+CREATE TABLE inventory_journal_outbox (
+    outbox_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    payload LONGTEXT NOT NULL,
+    created_at DATETIME NOT NULL,
+    INDEX idx_journal_outbox_created (created_at)
+);
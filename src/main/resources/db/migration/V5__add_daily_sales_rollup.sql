@@ -0,0 +1,9 @@
+CREATE TABLE daily_sales_rollup (
+    product_id BIGINT NOT NULL,
+    warehouse_id BIGINT NOT NULL,
+    sale_date DATE NOT NULL,
+    quantity_sold BIGINT NOT NULL,
+    revenue DECIMAL(14, 2) NOT NULL,
+    PRIMARY KEY (product_id, warehouse_id, sale_date),
+    INDEX idx_rollup_sale_date (sale_date)
+);
@@ -0,0 +1,26 @@
+CREATE TABLE stock_take_sessions (
+    session_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    warehouse_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    notes TEXT,
+    applied_through_product_id BIGINT NOT NULL DEFAULT 0,
+    adjusted_products INT NOT NULL DEFAULT 0,
+    units_gained BIGINT NOT NULL DEFAULT 0,
+    units_lost BIGINT NOT NULL DEFAULT 0,
+    created_by BIGINT,
+    opened_at DATETIME NOT NULL,
+    last_count_at DATETIME,
+    closed_at DATETIME,
+    INDEX idx_stock_take_warehouse_status (warehouse_id, status),
+    CONSTRAINT fk_stock_take_warehouse FOREIGN KEY (warehouse_id) REFERENCES warehouses (warehouse_id),
+    CONSTRAINT fk_stock_take_created_by FOREIGN KEY (created_by) REFERENCES users (user_id)
+);
+
+CREATE TABLE stock_take_counts (
+    session_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    bin_location VARCHAR(50) NOT NULL DEFAULT '',
+    counted_quantity INT NOT NULL,
+    counted_at DATETIME NOT NULL,
+    PRIMARY KEY (session_id, product_id, bin_location)
+);
@@ -0,0 +1,15 @@
+CREATE TABLE stock_transfers (
+    transfer_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    from_warehouse_id BIGINT NOT NULL,
+    to_warehouse_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    requested_by VARCHAR(50),
+    created_at DATETIME NOT NULL,
+    updated_at DATETIME NOT NULL,
+    INDEX idx_stock_transfer_status_updated (status, updated_at),
+    CONSTRAINT fk_stock_transfer_product FOREIGN KEY (product_id) REFERENCES products (product_id),
+    CONSTRAINT fk_stock_transfer_from FOREIGN KEY (from_warehouse_id) REFERENCES warehouses (warehouse_id),
+    CONSTRAINT fk_stock_transfer_to FOREIGN KEY (to_warehouse_id) REFERENCES warehouses (warehouse_id)
+);
@@ -0,0 +1,35 @@
+CREATE INDEX idx_inventory_tx_product_warehouse_id ON inventory_transactions (product_id, warehouse_id, transaction_id);
+
+CREATE TABLE inventory_projection (
+    product_id BIGINT NOT NULL,
+    warehouse_id BIGINT NOT NULL,
+    on_hand INT NOT NULL,
+    event_count BIGINT NOT NULL,
+    events_since_snapshot INT NOT NULL,
+    through_transaction_id BIGINT NOT NULL,
+    as_of DATETIME(6) NOT NULL,
+    PRIMARY KEY (product_id, warehouse_id),
+    INDEX idx_inventory_projection_warehouse (warehouse_id)
+);
+
+CREATE TABLE inventory_snapshots (
+    product_id BIGINT NOT NULL,
+    warehouse_id BIGINT NOT NULL,
+    through_transaction_id BIGINT NOT NULL,
+    as_of DATETIME(6) NOT NULL,
+    on_hand INT NOT NULL,
+    event_count BIGINT NOT NULL,
+    created_at DATETIME NOT NULL,
+    PRIMARY KEY (product_id, warehouse_id, through_transaction_id),
+    INDEX idx_inventory_snapshot_as_of (product_id, warehouse_id, as_of, through_transaction_id)
+);
+
+CREATE TABLE inventory_projection_checkpoint (
+    name VARCHAR(50) NOT NULL PRIMARY KEY,
+    through_transaction_id BIGINT NOT NULL,
+    lease_owner VARCHAR(100),
+    lease_until DATETIME,
+    updated_at DATETIME NOT NULL
+);
+
+INSERT INTO inventory_projection_checkpoint (name, through_transaction_id, updated_at) VALUES ('inventory', 0, NOW());
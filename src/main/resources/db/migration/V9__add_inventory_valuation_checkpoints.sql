@@ -0,0 +1,11 @@
+CREATE TABLE inventory_valuation_checkpoints (
+    checkpoint_id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    through_transaction_id BIGINT NOT NULL,
+    as_of DATETIME(6) NOT NULL,
+    cutoff DATETIME NOT NULL,
+    key_count INT NOT NULL,
+    state LONGBLOB NOT NULL,
+    created_at DATETIME NOT NULL,
+    UNIQUE KEY uk_valuation_checkpoint_through (through_transaction_id),
+    INDEX idx_valuation_checkpoint_as_of (as_of, through_transaction_id)
+);
@@ -0,0 +1,74 @@
+package com.retailshop.forecast;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fitting one SKU. Run {@link #main} from the test classpath; the GC profiler's
+ * gc.alloc.rate.norm column should stay at 0 B/op for every model.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ForecastModelBenchmark {
+
+    private static final int HORIZON_DAYS = 30;
+
+    @Param({"SMA", "SES", "HOLT_WINTERS", "CROSTON"})
+    private ForecastMethod method;
+
+    @Param({"90", "365", "730"})
+    private int historyDays;
+
+    @Param({"REGULAR", "INTERMITTENT"})
+    private String demand;
+
+    private double[] series;
+    private ForecastWorkspace workspace;
+    private ForecastModel model;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        series = new double[historyDays];
+        for (int t = 0; t < historyDays; t++) {
+            if ("INTERMITTENT".equals(demand)) {
+                series[t] = random.nextDouble() < 0.15 ? 1 + random.nextInt(6) : 0;
+            } else {
+                double weekly = (t % 7 == 5 || t % 7 == 6) ? 8 : 0;
+                series[t] = Math.max(0, Math.round(20 + weekly + t * 0.01 + random.nextGaussian() * 4));
+            }
+        }
+        workspace = new ForecastWorkspace(historyDays, HORIZON_DAYS);
+        model = method.getModel();
+    }
+
+    @Benchmark
+    public void fit(Blackhole blackhole) {
+        model.fit(series, workspace);
+        blackhole.consume(workspace.forecast());
+    }
+
+    @Benchmark
+    public void fitAndEvaluate(Blackhole blackhole) {
+        model.fit(series, workspace);
+        blackhole.consume(ForecastErrors.evaluate(series, workspace.fitted()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ForecastModelBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
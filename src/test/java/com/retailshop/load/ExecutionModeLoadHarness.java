@@ -0,0 +1,181 @@
+package com.retailshop.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load against a running instance, for comparing the platform and virtual thread modes.
+ * Start the application once with VIRTUAL_THREADS=false and once with VIRTUAL_THREADS=true, run
+ * {@link #main} against each with the same settings, and compare the throughput and p99 lines.
+ *
+ * <p>Settings are system properties: {@code load.baseUrl}, {@code load.username}, {@code load.password},
+ * {@code load.concurrency}, {@code load.seconds}, {@code load.warmupSeconds}, {@code load.warehouseId},
+ * {@code load.customerId} and {@code load.productIds} (comma separated). Order creation reserves stock,
+ * so the products need enough of it in the warehouse for the run.
+ */
+public class ExecutionModeLoadHarness {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String baseUrl = System.getProperty("load.baseUrl", "http://localhost:8089");
+    private final int concurrency = Integer.getInteger("load.concurrency", 200);
+    private final int seconds = Integer.getInteger("load.seconds", 30);
+    private final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+    private final long warehouseId = Long.getLong("load.warehouseId", 1L);
+    private final long customerId = Long.getLong("load.customerId", 1L);
+    private final long[] productIds = Arrays.stream(System.getProperty("load.productIds", "1,2,3,4,5").split(","))
+            .map(String::trim)
+            .mapToLong(Long::parseLong)
+            .toArray();
+    private String token;
+
+    public static void main(String[] args) throws Exception {
+        ExecutionModeLoadHarness harness = new ExecutionModeLoadHarness();
+        harness.login();
+        System.out.printf("concurrency=%d, %ds per scenario after %ds warm-up%n",
+                harness.concurrency, harness.seconds, harness.warmupSeconds);
+        harness.run("inventory-read", harness::inventoryRead);
+        harness.run("order-create", harness::orderCreate);
+    }
+
+    private void login() throws Exception {
+        String body = MAPPER.writeValueAsString(Map.of(
+                "username", System.getProperty("load.username", "admin"),
+                "password", System.getProperty("load.password", "admin123")));
+        HttpResponse<String> response = client.send(json(HttpRequest.newBuilder(uri("/api/auth/login")), body).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+        JsonNode data = MAPPER.readTree(response.body()).path("data");
+        token = data.path("token").asText();
+    }
+
+    private HttpRequest inventoryRead() {
+        long productId = randomProduct();
+        return authorized(HttpRequest.newBuilder(
+                uri("/api/inventory/product/" + productId + "/warehouse/" + warehouseId + "/available")))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest orderCreate() {
+        try {
+            String body = MAPPER.writeValueAsString(Map.of(
+                    "customerId", customerId,
+                    "warehouseId", warehouseId,
+                    "notes", "load test",
+                    "items", List.of(Map.of("productId", randomProduct(), "quantity", 1, "unitPrice", 1))));
+            return json(authorized(HttpRequest.newBuilder(uri("/api/sales-orders"))), body).build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void run(String scenario, RequestFactory requests) throws InterruptedException {
+        drive(requests, warmupSeconds, new LatencyRecorder(1));
+
+        LatencyRecorder recorder = new LatencyRecorder(seconds * 100_000);
+        long elapsedNanos = drive(requests, seconds, recorder);
+        recorder.report(scenario, elapsedNanos);
+    }
+
+    private long drive(RequestFactory requests, int durationSeconds, LatencyRecorder recorder) throws InterruptedException {
+        long started = System.nanoTime();
+        long deadline = started + Duration.ofSeconds(durationSeconds).toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(requests.create(), HttpResponse.BodyHandlers.discarding());
+                            recorder.record(System.nanoTime() - sent, response.statusCode() < 400);
+                        } catch (Exception e) {
+                            recorder.record(System.nanoTime() - sent, false);
+                        }
+                    }
+                });
+            }
+        }
+        return System.nanoTime() - started;
+    }
+
+    private long randomProduct() {
+        return productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private HttpRequest.Builder authorized(HttpRequest.Builder builder) {
+        return builder.header("Authorization", "Bearer " + token).timeout(Duration.ofSeconds(30));
+    }
+
+    private static HttpRequest.Builder json(HttpRequest.Builder builder, String body) {
+        return builder.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create();
+    }
+
+    // Latencies go into a preallocated array; samples beyond its capacity are counted but not kept
+    private static final class LatencyRecorder {
+        private final long[] samples;
+        private final AtomicLong next = new AtomicLong();
+        private final LongAdder errors = new LongAdder();
+
+        LatencyRecorder(int capacity) {
+            samples = new long[capacity];
+        }
+
+        void record(long nanos, boolean success) {
+            long index = next.getAndIncrement();
+            if (index < samples.length) {
+                samples[(int) index] = nanos;
+            }
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        void report(String scenario, long elapsedNanos) {
+            long count = next.get();
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(sorted);
+            System.out.printf("%-15s %8d req  %8.1f req/s  errors=%d  p50=%.2fms  p99=%.2fms  max=%.2fms%n",
+                    scenario, count, count / (elapsedNanos / 1e9), errors.sum(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
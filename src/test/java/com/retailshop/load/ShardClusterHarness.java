@@ -0,0 +1,185 @@
+package com.retailshop.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.InventoryManagementApplication;
+import com.retailshop.service.WarehouseShardRouter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts several sharded nodes in this JVM on localhost ports, all against the configured database, and fires
+ * concurrent transfers of one product between warehouses through random nodes. Transfers between warehouses
+ * owned by different nodes take the two-phase path. At the end the product's total stock must be unchanged and
+ * every owner's ledger must agree with the inventory table.
+ *
+ * <p>Settings are system properties: {@code cluster.nodes}, {@code cluster.basePort}, {@code cluster.productId},
+ * {@code cluster.warehouseIds} (comma separated), {@code cluster.transfers}, {@code cluster.concurrency},
+ * {@code cluster.username} and {@code cluster.password}. The product needs stock in at least one of the warehouses.
+ */
+public class ShardClusterHarness {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final int nodeCount = Integer.getInteger("cluster.nodes", 3);
+    private final int basePort = Integer.getInteger("cluster.basePort", 18081);
+    private final long productId = Long.getLong("cluster.productId", 1L);
+    private final long[] warehouseIds = Arrays.stream(System.getProperty("cluster.warehouseIds", "1,2,3").split(","))
+            .map(String::trim)
+            .mapToLong(Long::parseLong)
+            .toArray();
+    private final int transfers = Integer.getInteger("cluster.transfers", 200);
+    private final int concurrency = Integer.getInteger("cluster.concurrency", 8);
+    private final List<String> baseUrls = new ArrayList<>();
+    private String token;
+
+    public static void main(String[] args) throws Exception {
+        ShardClusterHarness harness = new ShardClusterHarness();
+        List<ConfigurableApplicationContext> nodes = harness.startNodes();
+        try {
+            harness.login();
+            harness.run();
+        } finally {
+            nodes.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    private List<ConfigurableApplicationContext> startNodes() {
+        StringJoiner nodes = new StringJoiner(",");
+        for (int i = 1; i <= nodeCount; i++) {
+            String baseUrl = "http://localhost:" + (basePort + i - 1);
+            baseUrls.add(baseUrl);
+            nodes.add("node-" + i + "=" + baseUrl);
+        }
+
+        WarehouseShardRouter router = WarehouseShardRouter.parse("node-1", nodes.toString(), "");
+        for (long warehouseId : warehouseIds) {
+            System.out.printf("warehouse %d -> %s%n", warehouseId, router.ownerOf(warehouseId));
+        }
+
+        String secret = UUID.randomUUID().toString();
+        List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+        for (int i = 1; i <= nodeCount; i++) {
+            // Command line arguments, so they win over application.properties; the shared second level cache
+            // is off because nodes in one JVM would otherwise see each other's cached entities
+            contexts.add(new SpringApplicationBuilder(InventoryManagementApplication.class).run(
+                    "--server.port=" + (basePort + i - 1),
+                    "--inventory.shard.node-id=node-" + i,
+                    "--inventory.shard.nodes=" + nodes,
+                    "--inventory.shard.secret=" + secret,
+                    "--spring.datasource.hikari.maximum-pool-size=5",
+                    "--spring.datasource.hikari.minimum-idle=1",
+                    "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                    "--spring.jpa.properties.hibernate.cache.use_query_cache=false"));
+        }
+        return contexts;
+    }
+
+    private void login() throws Exception {
+        String body = MAPPER.writeValueAsString(Map.of(
+                "username", System.getProperty("cluster.username", "admin"),
+                "password", System.getProperty("cluster.password", "admin123")));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrls.get(0) + "/api/auth/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with HTTP " + response.statusCode() + ": " + response.body());
+        }
+        token = MAPPER.readTree(response.body()).path("data").path("token").asText();
+    }
+
+    private void run() throws Exception {
+        Map<Long, Integer> before = stockByWarehouse();
+        int totalBefore = before.values().stream().mapToInt(Integer::intValue).sum();
+        System.out.printf("before: %s (total %d)%n", before, totalBefore);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < transfers; i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int fromIndex = random.nextInt(warehouseIds.length);
+                long from = warehouseIds[fromIndex];
+                long to = warehouseIds[(fromIndex + 1 + random.nextInt(warehouseIds.length - 1)) % warehouseIds.length];
+                String path = "/api/inventory/transfer?productId=" + productId + "&fromWarehouseId=" + from
+                        + "&toWarehouseId=" + to + "&quantity=" + (1 + random.nextInt(3));
+                try {
+                    HttpResponse<Void> response = client.send(authorized(baseUrls.get(random.nextInt(baseUrls.size())) + path)
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build(), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        succeeded.incrementAndGet();
+                    } else if (response.statusCode() < 500) {
+                        rejected.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                } catch (Exception ex) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        Map<Long, Integer> after = stockByWarehouse();
+        int totalAfter = after.values().stream().mapToInt(Integer::intValue).sum();
+        System.out.printf("after:  %s (total %d)%n", after, totalAfter);
+        System.out.printf("%d transfers in %d ms: %d succeeded, %d rejected, %d failed%n",
+                transfers, elapsedMs, succeeded.get(), rejected.get(), failed.get());
+        System.out.println(totalAfter == totalBefore ? "total stock conserved" : "TOTAL STOCK CHANGED");
+        checkLedgers();
+    }
+
+    private Map<Long, Integer> stockByWarehouse() throws Exception {
+        JsonNode rows = get(baseUrls.get(0), "/api/inventory/product/" + productId);
+        Map<Long, Integer> stock = new TreeMap<>();
+        for (JsonNode row : rows) {
+            stock.put(row.path("warehouseId").asLong(), row.path("quantityOnHand").asInt());
+        }
+        return stock;
+    }
+
+    // Each node answers availability from its ledger for warehouses it owns and from the table otherwise
+    private void checkLedgers() throws Exception {
+        for (long warehouseId : warehouseIds) {
+            String path = "/api/inventory/product/" + productId + "/warehouse/" + warehouseId + "/available";
+            Set<Integer> answers = new TreeSet<>();
+            for (String baseUrl : baseUrls) {
+                answers.add(get(baseUrl, path).asInt());
+            }
+            System.out.printf("warehouse %d available: %s%s%n", warehouseId, answers, answers.size() > 1 ? " MISMATCH" : "");
+        }
+    }
+
+    private JsonNode get(String baseUrl, String path) throws Exception {
+        HttpResponse<String> response = client.send(authorized(baseUrl + path).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        return MAPPER.readTree(response.body()).path("data");
+    }
+
+    private HttpRequest.Builder authorized(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).header("Authorization", "Bearer " + token);
+    }
+}
@@ -0,0 +1,72 @@
+package com.retailshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventBusPartitionTest {
+
+    private static List<OutboxEvent> events(long... ids) {
+        return LongStream.of(ids)
+                .mapToObj(id -> new OutboxEvent(id, OutboxEvent.Type.STOCK_CHANGED, 1L, 0, "{}", LocalDateTime.now()))
+                .toList();
+    }
+
+    private static List<Long> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::eventId).toList();
+    }
+
+    @Test
+    void deliversBufferedEventsAfterTheOffsetInOrder() {
+        EventBus.Partition partition = new EventBus.Partition(0, 10);
+        partition.append(events(12, 15, 19), 100);
+        partition.append(events(23), 100);
+
+        assertThat(ids(partition.after(10, 10))).containsExactly(12L, 15L, 19L, 23L);
+        assertThat(ids(partition.after(15, 10))).containsExactly(19L, 23L);
+        assertThat(ids(partition.after(12, 2))).containsExactly(15L, 19L);
+        assertThat(partition.after(23, 10)).isEmpty();
+        assertThat(partition.countAfter(13)).isEqualTo(3);
+    }
+
+    @Test
+    void offsetsBehindTheBufferFallBackToTheTable() {
+        EventBus.Partition partition = new EventBus.Partition(0, 10);
+
+        assertThat(partition.after(5, 10)).isNull();
+        assertThat(partition.countAfter(5)).isEqualTo(-1);
+
+        partition.append(events(11, 12, 13, 14), 2);
+        assertThat(partition.after(11, 10)).isNull();
+        assertThat(ids(partition.after(12, 10))).containsExactly(13L, 14L);
+    }
+
+    @Test
+    void appendsAdvanceTheVersionWorkersWaitOn() throws InterruptedException {
+        EventBus.Partition partition = new EventBus.Partition(0, 0);
+        long seen = partition.version();
+        partition.append(events(1), 10);
+
+        long started = System.nanoTime();
+        partition.awaitAppend(seen, 5_000);
+        assertThat(System.nanoTime() - started).isLessThan(1_000_000_000L);
+        assertThat(partition.version()).isGreaterThan(seen);
+    }
+
+    @Test
+    void lateEventsAreHandedOverOnceOutsideTheOrderedBuffer() {
+        EventBus.Partition partition = new EventBus.Partition(0, 10);
+        partition.append(events(12, 15), 100);
+        long seen = partition.version();
+
+        partition.appendLate(events(13));
+        assertThat(partition.version()).isGreaterThan(seen);
+        assertThat(ids(partition.after(12, 10))).containsExactly(15L);
+        assertThat(ids(partition.takeLate())).containsExactly(13L);
+        assertThat(partition.takeLate()).isEmpty();
+    }
+}
@@ -0,0 +1,174 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.StockAtTimeResponse;
+import com.retailshop.repository.WarehouseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class InventoryEventStoreTest {
+
+    private static final LocalDateTime DAY_ONE = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private InventoryEventStore eventStore;
+    private InventoryHistoryService historyService;
+    private final List<Object[]> events = new ArrayList<>();
+
+    @BeforeEach
+    void createStore() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE inventory_transactions (transaction_id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "product_id BIGINT NOT NULL, warehouse_id BIGINT NOT NULL, quantity_change INT NOT NULL, " +
+                "transaction_date DATETIME(6) NOT NULL, recorded_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6))");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V8__add_inventory_event_store.sql"))
+                .execute(dataSource);
+
+        eventStore = new InventoryEventStore(jdbcTemplate, new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(eventStore, "snapshotEvery", 3);
+        ReflectionTestUtils.setField(eventStore, "partitions", 2);
+        ReflectionTestUtils.setField(eventStore, "settleMs", 0L);
+        ReflectionTestUtils.setField(eventStore, "leaseMs", 60000L);
+        ReflectionTestUtils.setField(eventStore, "batchSize", 2);
+        eventStore.start();
+        historyService = new InventoryHistoryService(jdbcTemplate, eventStore, mock(WarehouseRepository.class));
+    }
+
+    @AfterEach
+    void stopStore() throws Exception {
+        eventStore.stop();
+    }
+
+    private long record(long productId, long warehouseId, int quantityChange, LocalDateTime transactionDate) {
+        jdbcTemplate.update("INSERT INTO inventory_transactions (product_id, warehouse_id, quantity_change, transaction_date) " +
+                "VALUES (?, ?, ?, ?)", productId, warehouseId, quantityChange, Timestamp.valueOf(transactionDate));
+        events.add(new Object[]{productId, warehouseId, quantityChange, transactionDate});
+        return jdbcTemplate.queryForObject("SELECT MAX(transaction_id) FROM inventory_transactions", Long.class);
+    }
+
+    private int replayedByHand(long productId, long warehouseId, LocalDateTime at) {
+        return events.stream()
+                .filter(event -> (long) event[0] == productId && (long) event[1] == warehouseId)
+                .filter(event -> !((LocalDateTime) event[3]).isAfter(at))
+                .mapToInt(event -> (int) event[2])
+                .sum();
+    }
+
+    private Map<String, Object> head(long productId, long warehouseId) {
+        return jdbcTemplate.queryForMap("SELECT on_hand, event_count, through_transaction_id FROM inventory_projection " +
+                "WHERE product_id = ? AND warehouse_id = ?", productId, warehouseId);
+    }
+
+    @Test
+    void pointInTimeAnswersMatchAFullReplay() {
+        // Two keys across both partitions, with backdated entries arriving after later-dated ones
+        int[] changes = {50, -5, -7, 20, -3, -11, 8, -2, -9, 4};
+        int[] dayOffsets = {0, 1, 3, 2, 5, 4, 7, 6, 9, 8};
+        for (int i = 0; i < changes.length; i++) {
+            record(1L, 1L, changes[i], DAY_ONE.plusDays(dayOffsets[i]));
+            record(9L, 2L, changes[i] * 2, DAY_ONE.plusDays(dayOffsets[i]).plusHours(6));
+        }
+
+        assertThat(eventStore.project()).isEqualTo(20);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_snapshots", Integer.class)).isEqualTo(6);
+
+        boolean answeredFromSnapshot = false;
+        for (int hours = -12; hours <= 11 * 24; hours += 6) {
+            LocalDateTime at = DAY_ONE.plusHours(hours);
+            for (long[] key : new long[][]{{1L, 1L}, {9L, 2L}}) {
+                StockAtTimeResponse stock = historyService.getStockAt(key[0], key[1], at);
+                assertThat(stock.getQuantityOnHand()).as("stock of %s at %s", key[0], at)
+                        .isEqualTo(replayedByHand(key[0], key[1], at));
+                if (stock.getSnapshotThroughTransactionId() != null) {
+                    answeredFromSnapshot = true;
+                    assertThat(stock.getEventsReplayed()).isLessThan(changes.length);
+                }
+            }
+        }
+        assertThat(answeredFromSnapshot).isTrue();
+        assertThat(head(1L, 1L).get("on_hand")).isEqualTo(replayedByHand(1L, 1L, LocalDateTime.MAX));
+    }
+
+    @Test
+    void snapshotIsChosenByItsAsOfTime() {
+        ReflectionTestUtils.setField(eventStore, "snapshotEvery", 2);
+        record(1L, 1L, 10, DAY_ONE);
+        long second = record(1L, 1L, 5, DAY_ONE.plusDays(2));
+        record(1L, 1L, -3, DAY_ONE.plusDays(1));
+        eventStore.project();
+
+        // The snapshot through the second event covers day three, so a day two question must not use it
+        StockAtTimeResponse beforeSnapshot = historyService.getStockAt(1L, 1L, DAY_ONE.plusDays(1).plusHours(12));
+        assertThat(beforeSnapshot.getSnapshotThroughTransactionId()).isNull();
+        assertThat(beforeSnapshot.getQuantityOnHand()).isEqualTo(7);
+        assertThat(beforeSnapshot.getEventsReplayed()).isEqualTo(2);
+
+        StockAtTimeResponse afterSnapshot = historyService.getStockAt(1L, 1L, DAY_ONE.plusDays(3));
+        assertThat(afterSnapshot.getSnapshotThroughTransactionId()).isEqualTo(second);
+        assertThat(afterSnapshot.getQuantityOnHand()).isEqualTo(12);
+        assertThat(afterSnapshot.getEventsReplayed()).isEqualTo(1);
+    }
+
+    @Test
+    void backdatedEventsWaitForTheirInsertToSettle() {
+        ReflectionTestUtils.setField(eventStore, "settleMs", 60_000L);
+        record(1L, 1L, 10, DAY_ONE);
+        jdbcTemplate.update("UPDATE inventory_transactions SET recorded_at = ?", Timestamp.valueOf(LocalDateTime.now().minusHours(1)));
+        eventStore.project();
+        long settled = eventStore.getCheckpoint();
+
+        // Dated long ago but inserted just now, as a replayed journal batch would be
+        record(1L, 1L, 5, DAY_ONE.minusDays(3));
+        assertThat(eventStore.project()).isZero();
+        assertThat(eventStore.getCheckpoint()).isEqualTo(settled);
+
+        jdbcTemplate.update("UPDATE inventory_transactions SET recorded_at = ?", Timestamp.valueOf(LocalDateTime.now().minusHours(1)));
+        assertThat(eventStore.project()).isEqualTo(1);
+        assertThat(head(1L, 1L)).containsEntry("on_hand", 15);
+    }
+
+    @Test
+    void repeatingAHalfFinishedRunAppliesEachEventOnce() {
+        for (int i = 0; i < 7; i++) {
+            record(1L, 1L, 10 - i, DAY_ONE.plusHours(i));
+            record(2L, 1L, i, DAY_ONE.plusHours(i));
+        }
+        eventStore.project();
+        long checkpoint = eventStore.getCheckpoint();
+        int snapshots = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_snapshots", Integer.class);
+
+        // A run that wrote heads and snapshots but died before advancing the checkpoint leaves it behind
+        jdbcTemplate.update("UPDATE inventory_projection_checkpoint SET through_transaction_id = 0");
+        long late = record(2L, 1L, 100, DAY_ONE.plusDays(1));
+
+        assertThat(eventStore.project()).isEqualTo(1);
+        assertThat(eventStore.getCheckpoint()).isEqualTo(late).isGreaterThan(checkpoint);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_snapshots", Integer.class)).isEqualTo(snapshots);
+        assertThat(head(1L, 1L)).containsEntry("on_hand", 49).containsEntry("event_count", 7L);
+        assertThat(head(2L, 1L)).containsEntry("on_hand", 121).containsEntry("event_count", 8L)
+                .containsEntry("through_transaction_id", late);
+
+        assertThat(eventStore.rebuild()).isEqualTo(15);
+        assertThat(head(2L, 1L)).containsEntry("on_hand", 121).containsEntry("event_count", 8L);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_snapshots", Integer.class)).isEqualTo(snapshots);
+    }
+}
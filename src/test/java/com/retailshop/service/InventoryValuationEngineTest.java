@@ -0,0 +1,172 @@
+package com.retailshop.service;
+
+import com.retailshop.service.InventoryValuationEngine.ValuationState;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryValuationEngineTest {
+
+    private static long units(String amount) {
+        return InventoryValuationEngine.toUnits(new BigDecimal(amount));
+    }
+
+    private static long[] totals(ValuationState state) {
+        long[] totals = new long[3];
+        state.forEach((productId, warehouseId, quantity, fifoValue, weightedAverageValue) -> {
+            totals[0] += quantity;
+            totals[1] += fifoValue;
+            totals[2] += weightedAverageValue;
+        });
+        return totals;
+    }
+
+    private static long[] key(ValuationState state, long warehouseId) {
+        return keys(state).stream().filter(key -> key[1] == warehouseId).findFirst().orElseThrow();
+    }
+
+    private static long[] key(ValuationState state, long productId, long warehouseId) {
+        return keys(state).stream().filter(key -> key[0] == productId && key[1] == warehouseId).findFirst().orElseThrow();
+    }
+
+    private static List<long[]> keys(ValuationState state) {
+        List<long[]> keys = new ArrayList<>();
+        state.forEach((productId, warehouseId, quantity, fifoValue, weightedAverageValue) ->
+                keys.add(new long[]{productId, warehouseId, quantity, fifoValue, weightedAverageValue}));
+        return keys;
+    }
+
+    @Test
+    void issuesConsumeOldestLayersFirst() {
+        ValuationState state = new ValuationState();
+        state.apply(1, 1, 10, units("2.00"));
+        state.apply(1, 1, 10, units("3.00"));
+        state.apply(1, 1, -15, -1);
+
+        long[] key = keys(state).get(0);
+        assertThat(key[2]).isEqualTo(5);
+        assertThat(key[3]).isEqualTo(units("15.00"));
+        assertThat(key[4]).isEqualTo(units("12.50"));
+    }
+
+    @Test
+    void receiptsWithoutCostUseTheAverageThenLoggedCosts() {
+        ValuationState state = new ValuationState();
+        state.apply(1, 1, 4, units("1.00"));
+        state.apply(1, 1, 4, units("3.00"));
+        state.apply(1, 1, 2, -1);
+        state.apply(1, 2, 5, -1);
+        // Product 2 was never purchased, but a sale logged its cost price
+        state.apply(2, 1, 3, -1);
+        state.apply(2, 1, -1, units("9.00"));
+        state.apply(2, 2, 1, -1);
+        state.apply(3, 1, 1, -1);
+
+        assertThat(key(state, 1, 1)[4]).isEqualTo(units("20.00"));
+        assertThat(key(state, 1, 2)[3]).isEqualTo(units("15.00"));
+        assertThat(key(state, 2, 2)[3]).isEqualTo(units("9.00"));
+        assertThat(key(state, 3, 1)[3]).isZero();
+    }
+
+    @Test
+    void oversoldUnitsAreCoveredBeforeNewLayers() {
+        ValuationState state = new ValuationState();
+        state.apply(1, 1, 2, units("1.00"));
+        state.apply(1, 1, -5, -1);
+        state.apply(1, 1, 10, units("4.00"));
+
+        long[] key = keys(state).get(0);
+        assertThat(key[2]).isEqualTo(7);
+        assertThat(key[3]).isEqualTo(units("28.00"));
+        assertThat(key[4]).isEqualTo(units("28.00"));
+    }
+
+    @Test
+    void stateSurvivesACheckpointRoundTrip() {
+        ValuationState state = new ValuationState();
+        for (int i = 1; i <= 20; i++) {
+            state.apply(1, 1, 3, units(i + ".00"));
+            state.apply(1, 1, -1, -1);
+        }
+        ValuationState decoded = ValuationState.decode(state.encode());
+        decoded.apply(1, 1, -30, -1);
+        state.apply(1, 1, -30, -1);
+
+        assertThat(keys(decoded).get(0)).containsExactly(keys(state).get(0));
+        assertThat(keys(decoded).get(0)[3]).isEqualTo(units("188.00"));
+    }
+
+    @Test
+    void transfersMoveValueBetweenWarehousesWithoutChangingIt() {
+        ValuationState state = new ValuationState();
+        state.apply(1, 1, 10, units("1.00"));
+        state.apply(1, 1, 10, units("2.00"));
+        state.apply(1, 2, 5, units("3.00"));
+        long[] before = totals(state);
+
+        state.applyTransfer(1, 1, -15, 7);
+        state.applyTransfer(1, 2, 15, 7);
+
+        assertThat(totals(state)).containsExactly(before);
+        assertThat(key(state, 1)[3]).isEqualTo(units("10.00"));
+        assertThat(key(state, 2)[3]).isEqualTo(units("35.00"));
+        assertThat(key(state, 2)[4]).isEqualTo(units("37.50"));
+
+        // An aborted transfer puts the same layers back, and unreferenced transfers pair up by product
+        state.applyTransfer(1, 2, -20, 8);
+        state.applyTransfer(1, 2, 20, 8);
+        state.applyTransfer(1, 2, -4, -1);
+        state.applyTransfer(1, 3, 4, -1);
+
+        assertThat(totals(state)).containsExactly(before);
+        assertThat(key(state, 3)[3]).isEqualTo(units("12.00"));
+    }
+
+    @Test
+    void transfersInTransitSurviveACheckpointRoundTrip() {
+        ValuationState state = new ValuationState();
+        state.apply(1, 1, 6, units("1.00"));
+        state.apply(1, 1, 6, units("5.00"));
+        state.applyTransfer(1, 1, -9, 3);
+        state.applyTransfer(1, 1, -2, -1);
+
+        ValuationState decoded = ValuationState.decode(state.encode());
+        decoded.applyTransfer(1, 2, 9, 3);
+        decoded.applyTransfer(1, 3, 2, -1);
+
+        assertThat(totals(decoded)).containsExactly(12, units("36.00"), units("36.00"));
+        assertThat(key(decoded, 2)[3]).isEqualTo(units("21.00"));
+        assertThat(key(decoded, 3)[3]).isEqualTo(units("10.00"));
+    }
+
+    @Test
+    void transfersInLoggedBeforeTheirTransferOutWaitForIt() {
+        ValuationState state = new ValuationState();
+        state.apply(1, 1, 10, units("1.00"));
+        state.apply(1, 1, 10, units("2.00"));
+        long[] before = totals(state);
+
+        // The destination's journal flushed first; its receipt must not be costed at the fallback
+        state.applyTransfer(1, 2, 15, 7);
+        state.applyTransfer(1, 3, 4, -1);
+        assertThat(totals(state)).containsExactly(before);
+
+        ValuationState decoded = ValuationState.decode(state.encode());
+        decoded.applyTransfer(1, 1, -15, 7);
+        decoded.applyTransfer(1, 1, -4, -1);
+
+        assertThat(totals(decoded)).containsExactly(before);
+        assertThat(key(decoded, 2)[3]).isEqualTo(units("20.00"));
+        assertThat(key(decoded, 3)[3]).isEqualTo(units("8.00"));
+        assertThat(key(decoded, 1)[2]).isEqualTo(1);
+
+        // Nothing is left over to settle a later transfer with the same id
+        decoded.applyTransfer(1, 2, -5, 7);
+        decoded.applyTransfer(1, 2, 5, 7);
+        assertThat(totals(decoded)).containsExactly(before);
+    }
+}
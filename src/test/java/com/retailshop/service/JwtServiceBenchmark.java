@@ -0,0 +1,105 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request. Run {@link #main} from the test classpath; {@code verify} is the
+ * full signature and claims check done on a principal cache miss, {@code cachedPrincipal} the hit path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private static final String CURRENT_SECRET = "benchmark-current-secret-of-at-least-32-bytes";
+    private static final String PREVIOUS_SECRET = "benchmark-previous-secret-of-at-least-32-bytes";
+
+    private JwtService jwtService;
+    private VerifiedPrincipalCache principalCache;
+    private UserDetails user;
+    private String token;
+    private String rotatedToken;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        user = User.withUsername("benchmark").password("").authorities("ROLE_STAFF").build();
+
+        JwtService previous = createService("k1", PREVIOUS_SECRET, "");
+        rotatedToken = previous.generateToken(user);
+
+        jwtService = createService("k2", CURRENT_SECRET, "k1:" + PREVIOUS_SECRET);
+        token = jwtService.generateToken(user);
+        // The first signature character carries six significant bits, unlike the last one
+        int signatureStart = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signatureStart);
+        tamperedToken = token.substring(0, signatureStart) + (first == 'A' ? 'B' : 'A') + token.substring(signatureStart + 1);
+
+        principalCache = new VerifiedPrincipalCache();
+        ReflectionTestUtils.setField(principalCache, "ttlMs", 300_000L);
+        ReflectionTestUtils.setField(principalCache, "maxEntries", 100_000);
+        principalCache.put(token, user, Long.MAX_VALUE, principalCache.generation(user.getUsername()));
+    }
+
+    @Benchmark
+    public JwtService.Claims verify() {
+        return jwtService.parseToken(token);
+    }
+
+    @Benchmark
+    public JwtService.Claims verifyPreviousKey() {
+        return jwtService.parseToken(rotatedToken);
+    }
+
+    @Benchmark
+    public JwtService.Claims rejectTampered() {
+        return jwtService.parseToken(tamperedToken);
+    }
+
+    @Benchmark
+    public String issue() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public UserDetails cachedPrincipal() {
+        return principalCache.get(token);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public JwtService.Claims verifyContended() {
+        return jwtService.parseToken(token);
+    }
+
+    private static JwtService createService(String keyId, String secret, String previousKeys) {
+        JwtService service = new JwtService(new ObjectMapper());
+        ReflectionTestUtils.setField(service, "secretKey", secret);
+        ReflectionTestUtils.setField(service, "keyId", keyId);
+        ReflectionTestUtils.setField(service, "previousKeys", previousKeys);
+        ReflectionTestUtils.setField(service, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(service, "clockSkewSeconds", 30L);
+        service.initKeys();
+        return service;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
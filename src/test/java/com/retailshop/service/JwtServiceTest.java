@@ -0,0 +1,126 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final String CURRENT_SECRET = "test-current-secret-of-at-least-32-bytes";
+    private static final String PREVIOUS_SECRET = "test-previous-secret-of-at-least-32-bytes";
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final UserDetails user = User.withUsername("alice").password("").authorities("ROLE_STAFF").build();
+    private final JwtService jwtService = createService("k2", CURRENT_SECRET, "k1:" + PREVIOUS_SECRET);
+
+    private static JwtService createService(String keyId, String secret, String previousKeys) {
+        JwtService service = new JwtService(new ObjectMapper());
+        ReflectionTestUtils.setField(service, "secretKey", secret);
+        ReflectionTestUtils.setField(service, "keyId", keyId);
+        ReflectionTestUtils.setField(service, "previousKeys", previousKeys);
+        ReflectionTestUtils.setField(service, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(service, "clockSkewSeconds", 30L);
+        service.initKeys();
+        return service;
+    }
+
+    // Signs an arbitrary payload the way the service does, to build tokens it would never issue itself
+    private static String sign(String kid, String secret, String payload) throws Exception {
+        String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}";
+        String signingInput = ENCODER.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return signingInput + "." + ENCODER.encodeToString(mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static String claims(long issuedAt, long expiresAt) {
+        return "{\"sub\":\"alice\",\"iat\":" + issuedAt + ",\"exp\":" + expiresAt + "}";
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @Test
+    void acceptsItsOwnTokens() {
+        JwtService.Claims claims = jwtService.parseToken(jwtService.generateToken(user));
+
+        assertThat(claims).isNotNull();
+        assertThat(claims.subject()).isEqualTo("alice");
+        assertThat(claims.expiresAt()).isGreaterThan(System.currentTimeMillis());
+    }
+
+    @Test
+    void rejectsATamperedSignature() {
+        String token = jwtService.generateToken(user);
+        int signatureStart = token.lastIndexOf('.') + 1;
+        char first = token.charAt(signatureStart);
+        String tampered = token.substring(0, signatureStart) + (first == 'A' ? 'B' : 'A') + token.substring(signatureStart + 1);
+
+        assertThat(jwtService.parseToken(tampered)).isNull();
+    }
+
+    @Test
+    void rejectsANonCanonicalLastCharacter() {
+        String token = jwtService.generateToken(user);
+        // 32 bytes leave the two low bits of the 43rd character unused; setting them decodes to the same MAC
+        char last = token.charAt(token.length() - 1);
+        char sameBits = ALPHABET.charAt(ALPHABET.indexOf(last) ^ 1);
+        String variant = token.substring(0, token.length() - 1) + sameBits;
+
+        assertThat(Base64.getUrlDecoder().decode(variant.substring(variant.lastIndexOf('.') + 1)))
+                .isEqualTo(Base64.getUrlDecoder().decode(token.substring(token.lastIndexOf('.') + 1)));
+        assertThat(jwtService.parseToken(variant)).isNull();
+    }
+
+    @Test
+    void rejectsExpiredTokensBeyondTheClockSkew() throws Exception {
+        long now = nowSeconds();
+        assertThat(jwtService.parseToken(sign("k2", CURRENT_SECRET, claims(now - 3600, now - 60)))).isNull();
+        assertThat(jwtService.parseToken(sign("k2", CURRENT_SECRET, claims(now - 3600, now + 10)))).isNotNull();
+    }
+
+    @Test
+    void rejectsTokensIssuedInTheFuture() throws Exception {
+        long now = nowSeconds();
+        assertThat(jwtService.parseToken(sign("k2", CURRENT_SECRET, claims(now + 600, now + 3600)))).isNull();
+    }
+
+    @Test
+    void rejectsUnknownKeyIds() throws Exception {
+        long now = nowSeconds();
+        assertThat(jwtService.parseToken(sign("k9", CURRENT_SECRET, claims(now, now + 3600)))).isNull();
+    }
+
+    @Test
+    void acceptsTokensSignedWithAPreviousKey() {
+        String rotated = createService("k1", PREVIOUS_SECRET, "").generateToken(user);
+
+        assertThat(jwtService.parseToken(rotated)).isNotNull();
+        assertThat(createService("k2", CURRENT_SECRET, "").parseToken(rotated)).isNull();
+    }
+
+    @Test
+    void rejectsMalformedTokens() throws Exception {
+        String token = jwtService.generateToken(user);
+        long now = nowSeconds();
+
+        assertThat(jwtService.parseToken("")).isNull();
+        assertThat(jwtService.parseToken("not-a-token")).isNull();
+        assertThat(jwtService.parseToken(token + ".extra")).isNull();
+        assertThat(jwtService.parseToken(token.substring(0, token.lastIndexOf('.') + 1))).isNull();
+        assertThat(jwtService.parseToken(sign("k2", CURRENT_SECRET, "[1,2,3]"))).isNull();
+        assertThat(jwtService.parseToken(sign("k2", CURRENT_SECRET, "{\"sub\":\"alice\",\"exp\":" + (now + 60) + "}"))).isNull();
+    }
+}
@@ -0,0 +1,157 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.ProductResponse;
+import com.retailshop.entity.*;
+import com.retailshop.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Cached associations would hide lazy loads, so measure against the database only
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.retailshop.support.SqlStatementCounter"
+})
+@Import({InventoryService.class, SalesOrderService.class, PurchaseOrderService.class, ProductService.class})
+class ListQueryStatementCountTest {
+
+    private static final int ROWS = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private IInventoryService inventoryService;
+
+    @Autowired
+    private ISalesOrderService salesOrderService;
+
+    @Autowired
+    private IPurchaseOrderService purchaseOrderService;
+
+    @Autowired
+    private IProductService productService;
+
+    @MockBean
+    private StockLedger stockLedger;
+
+    @MockBean
+    private InventoryJournal inventoryJournal;
+
+    @MockBean
+    private IDocumentNumberService documentNumberService;
+
+    @MockBean
+    private ProductSearchIndex productSearchIndex;
+
+    @MockBean
+    private ProductRecommendationIndex productRecommendationIndex;
+
+    @MockBean
+    private ProductScanIndex productScanIndex;
+
+    @MockBean
+    private EventOutbox eventOutbox;
+
+    @MockBean
+    private WarehouseShardRouter shardRouter;
+
+    @BeforeEach
+    void seed() {
+        // Every row points at its own related entities, so lazy loading would show up as extra statements
+        for (int i = 1; i <= ROWS; i++) {
+            Category category = entityManager.persist(Category.builder()
+                    .categoryName("Category " + i).isActive(true).build());
+            Product product = entityManager.persist(Product.builder()
+                    .sku("SKU-" + i).productName("Product " + i).category(category)
+                    .costPrice(BigDecimal.ONE).sellingPrice(BigDecimal.TEN)
+                    .minStockLevel(10).maxStockLevel(1000).reorderPoint(20).reorderQuantity(50)
+                    .isActive(true).build());
+            Warehouse warehouse = entityManager.persist(Warehouse.builder()
+                    .warehouseCode("WH-" + i).warehouseName("Warehouse " + i).isActive(true).build());
+            User user = entityManager.persist(User.builder()
+                    .username("user" + i).email("user" + i + "@example.com").passwordHash("x")
+                    .role(User.Role.STAFF).isActive(true).build());
+            Customer customer = entityManager.persist(Customer.builder()
+                    .customerCode("C-" + i).customerName("Customer " + i)
+                    .customerType(Customer.CustomerType.RETAIL).isActive(true).build());
+            com.retailshop.entity.Supplier supplier = entityManager.persist(com.retailshop.entity.Supplier.builder()
+                    .supplierCode("S-" + i).supplierName("Supplier " + i).isActive(true).build());
+
+            entityManager.persist(Inventory.builder()
+                    .product(product).warehouse(warehouse).quantityOnHand(5).quantityReserved(0).build());
+            entityManager.persist(SalesOrder.builder()
+                    .soNumber("SO-" + i).customer(customer).warehouse(warehouse).orderDate(LocalDateTime.now())
+                    .status(SalesOrder.OrderStatus.PENDING).paymentStatus(SalesOrder.PaymentStatus.UNPAID)
+                    .createdBy(user).build());
+            entityManager.persist(PurchaseOrder.builder()
+                    .poNumber("PO-" + i).supplier(supplier).warehouse(warehouse).orderDate(LocalDate.now())
+                    .status(PurchaseOrder.OrderStatus.APPROVED).createdBy(user).approvedBy(user).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void inventoryListsRunInOneStatement() {
+        assertSingleStatement(inventoryService::getAllInventory);
+        assertSingleStatement(inventoryService::getLowStockItems);
+        assertSingleStatement(() -> inventoryService.getInventoryPage(null, 50).getContent());
+    }
+
+    @Test
+    void salesOrderListsRunInOneStatement() {
+        assertSingleStatement(salesOrderService::getAllSalesOrders);
+        assertSingleStatement(salesOrderService::getPendingOrders);
+        assertSingleStatement(() -> salesOrderService.getSalesOrdersByStatus(SalesOrder.OrderStatus.PENDING));
+    }
+
+    @Test
+    void purchaseOrderListsRunInOneStatement() {
+        assertSingleStatement(purchaseOrderService::getAllPurchaseOrders);
+        assertSingleStatement(purchaseOrderService::getPendingOrders);
+    }
+
+    @Test
+    void productListsRunInOneStatement() {
+        assertSingleStatement(productService::getAllProducts);
+        assertSingleStatement(productService::getActiveProducts);
+    }
+
+    @Test
+    void productKeywordFallbackPagesInTheDatabase() {
+        SqlStatementCounter.reset();
+
+        List<ProductResponse> page = productService.findProductsMatching("product", 1, 5);
+
+        assertThat(page).extracting(ProductResponse::getSku).containsExactly("SKU-2", "SKU-3");
+        assertThat(page.get(0).getCategoryName()).isEqualTo("Category 2");
+        assertThat(SqlStatementCounter.count()).as("SQL statements for one keyword page").isEqualTo(1);
+    }
+
+    private void assertSingleStatement(Supplier<List<?>> listCall) {
+        entityManager.clear();
+        SqlStatementCounter.reset();
+
+        List<?> result = listCall.get();
+
+        assertThat(result).hasSize(ROWS);
+        assertThat(SqlStatementCounter.count()).as("SQL statements for one list call").isEqualTo(1);
+    }
+}
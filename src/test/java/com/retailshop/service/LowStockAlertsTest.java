@@ -0,0 +1,76 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LowStockAlertsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LowStockAlerts lowStockAlerts;
+
+    @BeforeEach
+    void subscribe() {
+        WarehouseShardRouter router = WarehouseShardRouter.parse("node-1", "node-1=http://a,node-2=http://b",
+                "1=node-1,2=node-2");
+        lowStockAlerts = new LowStockAlerts(mock(EventBus.class), productRepository, router, objectMapper, meterRegistry);
+        lowStockAlerts.subscribe();
+    }
+
+    private OutboxEvent event(long productId, long warehouseId, int onHandDelta, Integer onHandAfter) throws Exception {
+        String payload = objectMapper.writeValueAsString(
+                new OutboxEvent.StockChanged(productId, warehouseId, onHandDelta, 0, onHandAfter));
+        return new OutboxEvent(1L, OutboxEvent.Type.STOCK_CHANGED, productId, 0, payload, LocalDateTime.now());
+    }
+
+    private double alerts() {
+        return meterRegistry.counter("inventory.stock.reorder-alerts").count();
+    }
+
+    @Test
+    void alertsOnTheChangeThatCrossesTheReorderPoint() throws Exception {
+        List<Object[]> reorderPoints = new ArrayList<>();
+        reorderPoints.add(new Object[]{1L, 20});
+        reorderPoints.add(new Object[]{2L, 20});
+        reorderPoints.add(new Object[]{3L, 20});
+        when(productRepository.findReorderPoints(any())).thenReturn(reorderPoints);
+
+        // Product 1 goes 23 -> 21 -> 18, product 2 was already low, product 3 stays above
+        lowStockAlerts.handle(List.of(event(1L, 1L, -2, 21), event(1L, 1L, -3, 18),
+                event(2L, 1L, -4, 10), event(3L, 1L, -1, 25)));
+        assertThat(alerts()).isEqualTo(1.0);
+
+        // A redelivered event is judged the same way, whatever the stock is by now
+        lowStockAlerts.handle(List.of(event(1L, 1L, -3, 18)));
+        assertThat(alerts()).isEqualTo(2.0);
+    }
+
+    @Test
+    void eventsWithoutTheStockTheyLeftAreSkipped() throws Exception {
+        lowStockAlerts.handle(List.of(event(1L, 1L, -5, null)));
+        assertThat(alerts()).isZero();
+        verify(productRepository, never()).findReorderPoints(any());
+    }
+
+    @Test
+    void warehousesOfOtherNodesAreLeftToThem() throws Exception {
+        lowStockAlerts.handle(List.of(event(1L, 2L, -50, 0)));
+        assertThat(alerts()).isZero();
+        verify(productRepository, never()).findReorderPoints(any());
+    }
+}
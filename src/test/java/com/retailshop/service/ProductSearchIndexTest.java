@@ -0,0 +1,80 @@
+package com.retailshop.service;
+
+import com.retailshop.dto.response.ProductResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private static ProductResponse product(long id, String name) {
+        return ProductResponse.builder()
+                .productId(id)
+                .sku("SKU-" + id)
+                .productName(name)
+                .build();
+    }
+
+    @Test
+    void anyTermSearchRanksProductsMatchingMoreTermsFirst() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.replaceAll(List.of(
+                product(1, "red cotton shirt"),
+                product(2, "blue cotton shirt"),
+                product(3, "red wool scarf"),
+                product(4, "green garden hose")));
+
+        List<Long> ids = index.search("red shirt", 0, 10, false).stream()
+                .map(ProductResponse::getProductId)
+                .toList();
+
+        assertThat(ids).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(ids.get(0)).isEqualTo(1L);
+        assertThat(index.search("red shirt", 1, 10, false)).hasSize(2);
+    }
+
+    @Test
+    void callersCannotChangeTheIndexedSnapshots() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        ProductResponse indexed = product(1, "red cotton shirt");
+        index.replaceAll(List.of(indexed));
+
+        indexed.setProductName("changed by the caller");
+        index.search("red", 0, 10, false).get(0).setProductName("changed by a reader");
+
+        assertThat(index.search("red", 0, 10, false))
+                .extracting(ProductResponse::getProductName)
+                .containsExactly("red cotton shirt");
+    }
+
+    @Test
+    void offsetsPastTheCatalogueFindNothing() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.replaceAll(List.of(product(1, "red cotton shirt"), product(2, "red wool scarf")));
+
+        assertThat(index.search("red", 2, 10, false)).isEmpty();
+        assertThat(index.search("red", Integer.MAX_VALUE, Integer.MAX_VALUE, false)).isEmpty();
+        assertThat(index.search("red", 1, Integer.MAX_VALUE, true)).hasSize(1);
+    }
+
+    @Test
+    void scoreTableKeepsEveryOrdinalItGrowsPast() {
+        ProductSearchIndex.ScoreTable table = new ProductSearchIndex.ScoreTable(2);
+        for (int ordinal = 0; ordinal < 1000; ordinal += 3) {
+            table.add(ordinal, 1.0);
+            table.max(ordinal, 0.5);
+            table.add(ordinal, ordinal);
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        table.forEach(scores::put);
+        assertThat(table.size()).isEqualTo(334);
+        assertThat(scores).hasSize(334);
+        assertThat(scores.get(999)).isEqualTo(1000.0);
+        assertThat(scores.get(0)).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,188 @@
+package com.retailshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.retailshop.dto.request.InventoryUpdateRequest;
+import com.retailshop.dto.response.InventoryResponse;
+import com.retailshop.exception.RemoteShardException;
+import com.retailshop.exception.ResourceNotFoundException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ShardRoutingInventoryServiceTest {
+
+    private static final String SECRET = "test-shard-secret";
+
+    // Warehouse 2 belongs to node-2 and warehouse 3 to node-3; node-1 is the one under test
+    private final StubNode node2 = new StubNode();
+    private final StubNode node3 = new StubNode();
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final IStockTransferService stockTransferService = mock(IStockTransferService.class);
+    private ShardClient shardClient;
+    private ShardRoutingInventoryService routingService;
+
+    @BeforeEach
+    void startCluster() throws IOException {
+        node2.start();
+        node3.start();
+        WarehouseShardRouter router = WarehouseShardRouter.parse("node-1",
+                "node-1=http://localhost:1,node-2=" + node2.url() + ",node-3=" + node3.url(),
+                "1=node-1,2=node-2,3=node-3");
+
+        shardClient = new ShardClient(router, new ObjectMapper().findAndRegisterModules(), RestClient.builder());
+        ReflectionTestUtils.setField(shardClient, "secret", SECRET);
+        ReflectionTestUtils.setField(shardClient, "connectTimeoutMs", 2000);
+        ReflectionTestUtils.setField(shardClient, "readTimeoutMs", 5000);
+        shardClient.start();
+        routingService = new ShardRoutingInventoryService(inventoryService, stockTransferService, router, shardClient);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("alice", null, List.of()));
+    }
+
+    @AfterEach
+    void stopCluster() throws InterruptedException {
+        SecurityContextHolder.clearContext();
+        shardClient.stop();
+        node2.stop();
+        node3.stop();
+    }
+
+    @Test
+    void writesForARemoteWarehouseRunOnItsOwner() {
+        node2.answer("/internal/shard/inventory/adjust", 200, null,
+                "{\"success\":true,\"data\":{\"productId\":5,\"warehouseId\":2,\"quantityOnHand\":17}}");
+
+        InventoryResponse response = routingService.adjustInventory(5L, 2L, 7, "recount");
+
+        assertThat(response.getQuantityOnHand()).isEqualTo(17);
+        StubNode.Request request = node2.requests.get(0);
+        assertThat(request.path()).isEqualTo("/internal/shard/inventory/adjust");
+        assertThat(request.query()).contains("productId=5", "warehouseId=2", "quantity=7", "reason=recount");
+        assertThat(request.secret()).isEqualTo(SECRET);
+        assertThat(request.user()).isEqualTo("alice");
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    void transferBetweenRemoteOwnersPreparesOnTheSourceAndCommitsOnTheDestination() {
+        node2.answer("/internal/shard/transfers/prepare", 200, null, "{\"success\":true,\"data\":41}");
+        node3.answer("/internal/shard/transfers/41/commit", 200, null, "{\"success\":true}");
+
+        routingService.transferStock(5L, 2L, 3L, 4);
+
+        assertThat(node2.paths()).containsExactly("/internal/shard/transfers/prepare");
+        assertThat(node2.requests.get(0).query()).contains("fromWarehouseId=2", "toWarehouseId=3", "quantity=4");
+        assertThat(node3.paths()).containsExactly("/internal/shard/transfers/41/commit");
+    }
+
+    @Test
+    void aFailedCommitAbortsThePreparedDebitAndKeepsTheOwnersStatus() {
+        node2.answer("/internal/shard/transfers/prepare", 200, null, "{\"success\":true,\"data\":42}");
+        node2.answer("/internal/shard/transfers/42/abort", 200, null, "{\"success\":true,\"data\":true}");
+        node3.answer("/internal/shard/transfers/42/commit", 409, null,
+                "{\"success\":false,\"message\":\"The record was modified concurrently, please retry\"}");
+
+        assertThatThrownBy(() -> routingService.transferStock(5L, 2L, 3L, 4))
+                .isInstanceOfSatisfying(RemoteShardException.class,
+                        ex -> assertThat(ex.getStatus().value()).isEqualTo(409))
+                .hasMessageContaining("modified concurrently");
+        assertThat(node2.paths()).containsExactly("/internal/shard/transfers/prepare", "/internal/shard/transfers/42/abort");
+    }
+
+    @Test
+    void ownerFailuresKeepTheirTypeOrStatus() {
+        node2.answer("/internal/shard/inventory/release", 422, "ResourceNotFoundException",
+                "{\"success\":false,\"message\":\"Inventory not found\"}");
+        node2.answer("/internal/shard/inventory/update", 400, null,
+                "{\"success\":false,\"message\":\"Validation failed\",\"data\":{\"quantity\":\"must not be null\"}}");
+        node2.answer("/internal/shard/inventory/reserve", 500, null, "<html>proxy error</html>");
+
+        assertThatThrownBy(() -> routingService.releaseReservedStock(5L, 2L, 1))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Inventory not found");
+        InventoryUpdateRequest update = new InventoryUpdateRequest();
+        update.setProductId(5L);
+        update.setWarehouseId(2L);
+        assertThatThrownBy(() -> routingService.updateInventory(update))
+                .isInstanceOfSatisfying(RemoteShardException.class, ex -> {
+                    assertThat(ex.getStatus().value()).isEqualTo(400);
+                    assertThat(ex.getData()).isEqualTo(Map.of("quantity", "must not be null"));
+                });
+        assertThatThrownBy(() -> routingService.reserveStock(5L, 2L, 1))
+                .isInstanceOfSatisfying(RemoteShardException.class,
+                        ex -> assertThat(ex.getStatus().value()).isEqualTo(500));
+    }
+
+    /**
+     * A peer node answering canned responses per path and recording what it was sent.
+     */
+    private static final class StubNode {
+        private record Request(String path, String query, String secret, String user) {
+        }
+
+        private record Answer(int status, String errorType, String body) {
+        }
+
+        private final Map<String, Answer> answers = new HashMap<>();
+        private final List<Request> requests = new ArrayList<>();
+        private HttpServer server;
+
+        void start() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", exchange -> {
+                String path = exchange.getRequestURI().getPath();
+                synchronized (this) {
+                    requests.add(new Request(path, exchange.getRequestURI().getQuery(),
+                            exchange.getRequestHeaders().getFirst(ShardClient.SECRET_HEADER),
+                            exchange.getRequestHeaders().getFirst(ShardClient.USER_HEADER)));
+                }
+                exchange.getRequestBody().readAllBytes();
+                Answer answer = answers.getOrDefault(path, new Answer(404, null, "{\"success\":false}"));
+                byte[] body = answer.body().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                if (answer.errorType() != null) {
+                    exchange.getResponseHeaders().set(ShardClient.ERROR_HEADER, answer.errorType());
+                }
+                exchange.sendResponseHeaders(answer.status(), body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+
+        void answer(String path, int status, String errorType, String body) {
+            answers.put(path, new Answer(status, errorType, body));
+        }
+
+        synchronized List<String> paths() {
+            return requests.stream().map(Request::path).toList();
+        }
+    }
+}
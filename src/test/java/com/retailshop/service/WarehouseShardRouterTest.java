@@ -0,0 +1,75 @@
+package com.retailshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WarehouseShardRouterTest {
+
+    private static final String NODES = "node-2=http://localhost:18082/, node-1=http://localhost:18081,node-3=http://localhost:18083";
+
+    @Test
+    void nodesAgreeOnOneOwnerPerWarehouse() {
+        List<WarehouseShardRouter> cluster = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            cluster.add(WarehouseShardRouter.parse("node-" + i, NODES, "7=node-3"));
+        }
+
+        for (long warehouseId = 1; warehouseId <= 50; warehouseId++) {
+            String owner = cluster.get(0).ownerOf(warehouseId);
+            int localOwners = 0;
+            for (WarehouseShardRouter node : cluster) {
+                assertThat(node.ownerOf(warehouseId)).isEqualTo(owner);
+                if (node.isLocal(warehouseId)) {
+                    localOwners++;
+                }
+            }
+            assertThat(localOwners).as("nodes owning warehouse %d", warehouseId).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void assignmentsOverrideTheDefaultSpread() {
+        WarehouseShardRouter router = WarehouseShardRouter.parse("node-1", NODES, "7=node-3, 8=node-3");
+
+        assertThat(router.ownerOf(7L)).isEqualTo("node-3");
+        assertThat(router.ownerOf(8L)).isEqualTo("node-3");
+        assertThat(router.ownerOf(3L)).isEqualTo("node-1");
+        assertThat(router.ownerOf(4L)).isEqualTo("node-2");
+        assertThat(router.urlOf("node-2")).isEqualTo("http://localhost:18082");
+        assertThat(router.ownsAll()).isFalse();
+    }
+
+    @Test
+    void singleNodeOwnsEveryWarehouse() {
+        WarehouseShardRouter router = WarehouseShardRouter.parse("node-1", "", "");
+
+        assertThat(router.isSharded()).isFalse();
+        assertThat(router.ownsAll()).isTrue();
+        assertThat(router.isLocal(42L)).isTrue();
+    }
+
+    @Test
+    void onlyTheOwnerMayWriteAWarehouse() {
+        WarehouseShardRouter router = WarehouseShardRouter.parse("node-1", NODES, "7=node-3");
+
+        router.requireLocal(3L);
+        assertThatThrownBy(() -> router.requireLocal(7L))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("node-3");
+    }
+
+    @Test
+    void rejectsInconsistentConfiguration() {
+        assertThatThrownBy(() -> WarehouseShardRouter.parse("node-9", NODES, ""))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> WarehouseShardRouter.parse("node-1", NODES, "5=node-9"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> WarehouseShardRouter.parse("node-1", "node-1", ""))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
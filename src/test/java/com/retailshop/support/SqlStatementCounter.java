@@ -0,0 +1,24 @@
+package com.retailshop.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.incrementAndGet();
+        return sql;
+    }
+}